@@ -1,59 +1,845 @@
 package ok;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
 
 /**
- * Singleton class representing an Arena where items can be added and updated.
- * The Arena is a fixed size and provides methods to manage and update its items.
+ * Class representing an Arena where items can be added and updated.
+ * The Arena has a fixed size and provides methods to manage and update its items.
+ *
+ * <p>
+ * Each Arena is an independent world: items receive the Arena they belong to when they are added,
+ * so several Arenas can run side by side in one process, for example on separate threads.
+ * </p>
+ *
+ * <p>
+ * Items are also indexed by a {@link ChunkedWorld}, so the size of the Arena can be far larger than
+ * the part of it that is occupied. Sensors query the chunks around a robot instead of every item
+ * in the Arena.
+ * </p>
+ *
+ * <p>
+ * Only active items are updated. Static items are never active, and other items can put themselves
+ * to sleep; a sleeping item is woken again when something collides with it, when an item next to it
+ * is removed, or when {@link #wake(Item)} is called. The cost of a tick therefore follows the number
+ * of moving items rather than the number of items.
+ * </p>
+ *
+ * <p>
+ * Every item receives a generational handle (see {@link EntityHandle}) when it is added.
+ * Items are stored densely and removed by swapping the last item into their place, so adding and
+ * removing are constant time, and a handle held after its item was removed simply stops resolving.
+ * </p>
+ *
+ * <p>
+ * Items are further indexed by their {@link ItemTag}s, so a query for lights or robots only
+ * touches items carrying that tag instead of filtering every item by type.
+ * </p>
+ *
+ * <p>
+ * Obstacles are also kept in an {@link OccupancyGrid} for ray casting. It is rebuilt lazily after
+ * obstacles are added or removed, and robots carrying a {@link RangeScanner} are scanned against it
+ * in one batch before the items are updated, spread over all cores when there are many of them.
+ * </p>
+ *
+ * <p>
+ * An Arena is not thread-safe: it is read and changed by the thread running the simulation. Other
+ * threads, such as UI handlers or external clients, change it by posting {@link ArenaCommand}s with
+ * {@link #post(ArenaCommand)}, which is lock-free. Commands are applied in order at the start of the
+ * next tick, before queued bulk changes, or by {@link #applyCommands()}.
+ * </p>
+ *
+ * <p>
+ * After all items have been updated, a {@link CollisionSystem} separates every pair of solid items
+ * that overlap, once per tick.
+ * </p>
  */
 public class Arena {
-    // Static instance of the Arena for singleton pattern
-    private static Arena instance;
-
     // List to hold all items within the Arena
-    private List<Item> objects;
+    private ArrayList<Item> objects;
+
+    // Read-only view of the items handed out to callers
+    private List<Item> objectsView;
+
+    // Slot table behind the entity handles: the item in each slot and the slot's generation
+    private Item[] slotItems = new Item[64];
+    private int[] slotGenerations = new int[64];
+    private int slotCount;
+
+    // Slots freed by removed items, reused before new slots are taken, and where each slot sits in that list
+    private int[] freeSlots = new int[64];
+    private int[] freePositions = new int[64];
+    private int freeCount;
+
+    // On a DomainNode, new items take every sharedParts-th slot from sharedBase + sharedPart, so no two nodes hand out the same handle
+    private int sharedBase, sharedPart, sharedParts, sharedCount;
+
+    // Bulk changes queued to be applied between ticks
+    private final List<Item> pendingAdds = new ArrayList<>();
+    private final List<Item> pendingRemoves = new ArrayList<>();
+
+    // Changes posted from any thread, applied at the start of the next tick
+    private final CommandQueue commands = new CommandQueue();
+
+    // Items carrying each tag, indexed by tag ordinal, with read-only views for callers
+    private static final ItemTag[] TAGS = ItemTag.values();
+    private final List<List<Item>> tagLists = new ArrayList<>();
+    private final List<List<Item>> tagViews = new ArrayList<>();
+
+    // Sparse chunk index of the items by position
+    private final ChunkedWorld world = new ChunkedWorld();
+
+    // Ray casting grid over the obstacles, rebuilt when it is stale
+    private OccupancyGrid occupancyGrid;
+    private boolean occupancyStale = true;
+
+    // Number of scanning robots from which scans are spread over several threads
+    private static final int PARALLEL_SCAN_THRESHOLD = 64;
+
+    // Broad and narrow phase collision handling between solid items
+    private final CollisionSystem collisions = new CollisionSystem(this);
+
+    // Items updated every tick, in no particular order
+    private final ArrayList<Item> activeItems = new ArrayList<>();
+
+    // Items woken during the current tick, whose movement still has to be measured
+    private final List<Item> wokenItems = new ArrayList<>();
+
+    // Reusable buffers for the update loop and for neighbourhood queries
+    private final List<Item> updateBuffer = new ArrayList<>();
+    private final List<Item> queryBuffer = new ArrayList<>();
+    private final List<Item> wakeBuffer = new ArrayList<>();
+
+    // Render passes are numbered across all Arenas, so a decoration shared between Arenas never
+    // mistakes one Arena's pass for another's
+    private static final AtomicLong RENDER_PASSES = new AtomicLong();
+    private long renderPass;      // Number of the current render pass, 0 before the first
 
     // Dimensions of the Arena (width and height in pixels)
-    private double width = 800;
-    private double height = 600;
+    private double width;
+    private double height;
+
+    // Number of updates performed since the Arena was created
+    private long tick;
+
+    // Simulated time per tick, scaling how far robots move in one update
+    private double timeStep = 1;
+
+    // Highest maximum speed of any robot added, bounding how far an item moves per tick
+    private double maxSpeed;
+
+    // Sum over all ticks of the furthest any item moved in that tick, collisions included
+    private double travel;
+
+    // Bumped whenever items appear, disappear or jump, invalidating cached sensor answers
+    private long version;
+
+    // Whether cached sensor answers may be reused, and how often sensors were evaluated or reused
+    private boolean sensorCaching = true;
+    private long sensorEvaluations;
+    private long sensorCacheHits;
+
+    /**
+     * Constructs an empty Arena with the default size of 800 by 600 pixels.
+     */
+    public Arena() {
+        this(800, 600);
+    }
 
     /**
-     * Private constructor to enforce singleton pattern.
-     * Initializes the list of items in the Arena.
+     * Constructs an empty Arena with the given size.
+     *
+     * @param width the width in pixels
+     * @param height the height in pixels
      */
-    private Arena() {
+    public Arena(double width, double height) {
+        this.width = width;
+        this.height = height;
         objects = new ArrayList<>();
+        objectsView = Collections.unmodifiableList(objects);
+        for (int i = 0; i < TAGS.length; i++) {
+            List<Item> list = new ArrayList<>();
+            tagLists.add(list);
+            tagViews.add(Collections.unmodifiableList(list));
+        }
     }
 
     /**
-     * Returns the single instance of the Arena. If it doesn't exist, it creates one.
+     * Adds a new item to the Arena and attaches the item to it.
      *
-     * @return the singleton instance of Arena
+     * @param obj the item to be added
+     * @return the handle of the item
+     * @throws IllegalStateException if the item is already in an Arena
      */
-    public static Arena getInstance() {
-        if (instance == null) {
-            instance = new Arena(); // Create a new instance if none exists
+    public long addObject(Item obj) {
+        if (obj.getArena() != null) {
+            throw new IllegalStateException("Item is already in an Arena");
         }
-        return instance;
+        int slot = allocateSlot();
+        return attach(obj, EntityHandle.of(slot, slotGenerations[slot]));
     }
 
     /**
-     * Adds a new item to the Arena.
+     * Adds an item under a given handle, claiming that handle's slot. A {@link DomainNode} uses this
+     * so that an item keeps the handle it had in the full world on every process it visits.
      *
      * @param obj the item to be added
+     * @param handle the handle the item must have
+     * @return the handle of the item
+     * @throws IllegalStateException if the item is already in an Arena or the slot is taken
      */
-    public void addObject(Item obj) {
+    long addObject(Item obj, long handle) {
+        if (obj.getArena() != null) {
+            throw new IllegalStateException("Item is already in an Arena");
+        }
+        int slot = EntityHandle.slot(handle);
+        claimSlot(slot);
+        slotGenerations[slot] = EntityHandle.generation(handle);
+        return attach(obj, handle);
+    }
+
+    /**
+     * Stores an item in the slot of its handle and indexes it.
+     *
+     * @param obj the item to be added
+     * @param handle the handle of the item, whose slot is free
+     * @return the handle of the item
+     */
+    private long attach(Item obj, long handle) {
+        slotItems[EntityHandle.slot(handle)] = obj;
+        obj.handle = handle;
+        obj.index = objects.size();
+        obj.setArena(this); // Let the item reach the world it lives in
         objects.add(obj); // Add the item to the list
+        obj.prevX = obj.x; // The item has not moved yet
+        obj.prevY = obj.y;
+        world.insert(obj); // Index the item by position
+        addToTagLists(obj); // Index the item by its tags
+        if (obj.hasTag(ItemTag.OBSTACLE)) {
+            occupancyStale = true; // The ray casting grid no longer matches the obstacles
+        }
+        collisions.add(obj); // Let the item take part in collisions
+        if (!obj.isStatic()) {
+            activate(obj); // Moving items start awake
+        }
+        if (obj instanceof Robot robot) {
+            maxSpeed = Math.max(maxSpeed, robot.maxSpeed);
+        }
+        version++;
+        return obj.handle;
+    }
+
+    /**
+     * Removes an item from the Arena in constant time, invalidating its handle.
+     *
+     * @param obj the item to be removed
+     * @return true if the item was in the Arena
+     */
+    public boolean removeObject(Item obj) {
+        if (obj.getArena() != this) {
+            return false;
+        }
+
+        // Swap the last item into the removed item's place
+        Item last = objects.remove(objects.size() - 1);
+        if (last != obj) {
+            objects.set(obj.index, last);
+            last.index = obj.index;
+        }
+
+        world.remove(obj); // Drop the item from its chunk
+        deactivate(obj);
+        removeFromTagLists(obj);
+        if (obj.hasTag(ItemTag.OBSTACLE)) {
+            occupancyStale = true;
+        }
+        collisions.remove(obj);
+        releaseSlot(EntityHandle.slot(obj.handle));
+        obj.handle = EntityHandle.NONE;
+        obj.setArena(null);
+        wakeNear(obj.x, obj.y, obj.radius); // Items resting against the removed one may move again
+        version++;
+        return true;
+    }
+
+    /**
+     * Removes the item a handle refers to.
+     *
+     * @param handle the handle of the item to be removed
+     * @return true if the handle was valid and its item was removed
+     */
+    public boolean removeObject(long handle) {
+        Item obj = getObject(handle);
+        return obj != null && removeObject(obj);
+    }
+
+    /**
+     * Looks up the item a handle refers to.
+     *
+     * @param handle the handle
+     * @return the item, or null if the handle is stale or was never valid
+     */
+    public Item getObject(long handle) {
+        int slot = EntityHandle.slot(handle);
+        if (slot < 0 || slot >= slotCount || slotGenerations[slot] != EntityHandle.generation(handle)) {
+            return null;
+        }
+        return slotItems[slot];
+    }
+
+    /**
+     * Checks whether a handle still refers to an item in the Arena.
+     *
+     * @param handle the handle
+     * @return true if the item is still in the Arena
+     */
+    public boolean isAlive(long handle) {
+        return getObject(handle) != null;
+    }
+
+    /**
+     * Queues items to be added at the start of the next update, or by {@link #applyPendingChanges()}.
+     * Their handles are available from {@link Item#getHandle()} once they have been added.
+     *
+     * @param items the items to add
+     */
+    public void addObjects(Collection<? extends Item> items) {
+        pendingAdds.addAll(items);
+    }
+
+    /**
+     * Queues items to be removed at the start of the next update, or by {@link #applyPendingChanges()}.
+     * Items that are no longer in the Arena by then are ignored.
+     *
+     * @param items the items to remove
+     */
+    public void removeObjects(Collection<? extends Item> items) {
+        pendingRemoves.addAll(items);
+    }
+
+    /**
+     * Queues the items behind the given handles to be removed between ticks.
+     * Handles that are already stale are ignored.
+     *
+     * @param handles the handles of the items to remove
+     */
+    public void removeObjects(long... handles) {
+        for (long handle : handles) {
+            Item obj = getObject(handle);
+            if (obj != null) {
+                pendingRemoves.add(obj);
+            }
+        }
+    }
+
+    /**
+     * Applies all queued bulk removals, then all queued bulk additions.
+     * Called automatically at the start of every update.
+     */
+    public void applyPendingChanges() {
+        if (!pendingRemoves.isEmpty()) {
+            for (Item obj : pendingRemoves) {
+                removeObject(obj);
+            }
+            pendingRemoves.clear();
+        }
+        if (!pendingAdds.isEmpty()) {
+            objects.ensureCapacity(objects.size() + pendingAdds.size()); // Grow the list once for the batch
+            for (Item obj : pendingAdds) {
+                if (obj.getArena() == null) {
+                    addObject(obj);
+                }
+            }
+            pendingAdds.clear();
+        }
+    }
+
+    /**
+     * Posts a command to be applied at the start of the next update, or by {@link #applyCommands()}.
+     * Unlike every other method of the Arena, this one may be called from any thread, and it never
+     * blocks.
+     *
+     * @param command the command
+     */
+    public void post(ArenaCommand command) {
+        commands.post(command);
+    }
+
+    /**
+     * Applies the commands posted so far, in the order they were posted. Called automatically at the
+     * start of every update, and by the simulation thread when it needs them applied without a tick,
+     * such as while the simulation is paused. Commands posted while this runs are left for next time.
+     *
+     * @return the number of commands applied
+     */
+    public int applyCommands() {
+        return commands.apply(this);
+    }
+
+    /**
+     * Moves an item to a new position at once, outside the update loop, as if it had been picked up
+     * and put down: it does not sweep across the items in between. The item is woken, and so are the
+     * items resting against it at its old position.
+     *
+     * @param obj the item to move
+     * @param x the new x-coordinate
+     * @param y the new y-coordinate
+     * @return true if the item is in the Arena
+     */
+    public boolean moveObject(Item obj, double x, double y) {
+        if (obj.getArena() != this) {
+            return false;
+        }
+        double oldX = obj.x;
+        double oldY = obj.y;
+        obj.x = x;
+        obj.y = y;
+        obj.prevX = x; // A jump, so continuous collisions must not sweep the way in between
+        obj.prevY = y;
+        if (obj.hasTag(ItemTag.OBSTACLE)) {
+            occupancyStale = true;
+        }
+        reindex(obj);
+        wake(obj);
+        wakeNear(oldX, oldY, obj.radius);
+        return true;
+    }
+
+    /**
+     * Removes every item from the Arena, invalidating all handles.
+     */
+    public void clear() {
+        for (Item obj : objects) {
+            releaseSlot(EntityHandle.slot(obj.handle));
+            obj.handle = EntityHandle.NONE;
+            obj.activeIndex = -1;
+            obj.setArena(null);
+        }
+        objects.clear();
+        activeItems.clear();
+        wokenItems.clear();
+        world.clear();
+        collisions.clear();
+        for (List<Item> list : tagLists) {
+            list.clear();
+        }
+        occupancyStale = true;
+        maxSpeed = 0;
+        version++;
+    }
+
+    /**
+     * Re-indexes an item whose state was overwritten from outside the update loop, such as a copy of
+     * an item owned by another process, and drops cached sensor answers that may depend on it.
+     *
+     * @param obj the item that jumped
+     */
+    void reindex(Item obj) {
+        if (obj.getArena() == this) {
+            world.relocate(obj);
+            version++;
+        }
+    }
+
+    /**
+     * Puts an item to sleep, so it is no longer updated until it is woken.
+     * Static items and items that are already asleep are left as they are.
+     *
+     * @param obj the item to put to sleep
+     */
+    public void sleep(Item obj) {
+        if (obj.getArena() == this) {
+            deactivate(obj);
+        }
+    }
+
+    /**
+     * Wakes a sleeping item, so it is updated again from the next tick.
+     * Static items are never woken.
+     *
+     * @param obj the item to wake
+     */
+    public void wake(Item obj) {
+        if (obj.getArena() == this && obj.activeIndex < 0 && !obj.isStatic()) {
+            activate(obj);
+            wokenItems.add(obj); // It may be pushed before the tick ends, so include it in the travel
+        }
+    }
+
+    /**
+     * Wakes every sleeping item that may lie within a range of a point.
+     *
+     * @param x the x-coordinate of the point
+     * @param y the y-coordinate of the point
+     * @param range the range
+     */
+    public void wakeNear(double x, double y, double range) {
+        wakeBuffer.clear();
+        world.query(x, y, range, wakeBuffer); // Own buffer, callers may be iterating the query buffer
+        for (Item obj : wakeBuffer) {
+            wake(obj);
+        }
+    }
+
+    /**
+     * Checks whether an item is updated every tick, meaning it is neither static nor asleep.
+     *
+     * @param obj the item
+     * @return true if the item is active
+     */
+    public boolean isActive(Item obj) {
+        return obj.getArena() == this && obj.activeIndex >= 0;
+    }
+
+    /**
+     * Gets the number of items updated every tick.
+     *
+     * @return the active item count
+     */
+    public int getActiveCount() {
+        return activeItems.size();
+    }
+
+    /**
+     * Adds an item to the active list.
+     *
+     * @param obj the item to schedule
+     */
+    private void activate(Item obj) {
+        obj.activeIndex = activeItems.size();
+        activeItems.add(obj);
+        collisions.add(obj); // Rejoin the sweep if the item dropped out of it while asleep
+    }
+
+    /**
+     * Removes an item from the active list by swapping the last active item into its place.
+     *
+     * @param obj the item to unschedule
+     */
+    private void deactivate(Item obj) {
+        if (obj.activeIndex < 0) {
+            return;
+        }
+        Item last = activeItems.remove(activeItems.size() - 1);
+        if (last != obj) {
+            activeItems.set(obj.activeIndex, last);
+            last.activeIndex = obj.activeIndex;
+        }
+        obj.activeIndex = -1;
+    }
+
+    /**
+     * Adds an item to the list of every tag it carries.
+     *
+     * @param obj the item to index
+     */
+    private void addToTagLists(Item obj) {
+        if (obj.tags == 0) {
+            return;
+        }
+        if (obj.tagIndex == null) {
+            obj.tagIndex = new int[Integer.bitCount(obj.tags)]; // One entry per tag the item carries
+        }
+        for (ItemTag tag : TAGS) {
+            if (obj.hasTag(tag)) {
+                List<Item> list = tagLists.get(tag.ordinal());
+                obj.tagIndex[tagRank(obj, tag)] = list.size();
+                list.add(obj);
+            }
+        }
+    }
+
+    /**
+     * Gets where an item keeps its position in a tag list: the number of tags it carries that come
+     * before that tag.
+     *
+     * @param obj the item
+     * @param tag a tag the item carries
+     * @return the index into the item's tag positions
+     */
+    private static int tagRank(Item obj, ItemTag tag) {
+        return Integer.bitCount(obj.tags & (tag.mask() - 1));
+    }
+
+    /**
+     * Removes an item from the list of every tag it carries, by swapping the last item into its place.
+     *
+     * @param obj the item to drop from the tag index
+     */
+    private void removeFromTagLists(Item obj) {
+        for (ItemTag tag : TAGS) {
+            if (obj.hasTag(tag)) {
+                List<Item> list = tagLists.get(tag.ordinal());
+                Item last = list.remove(list.size() - 1);
+                if (last != obj) {
+                    int position = obj.tagIndex[tagRank(obj, tag)];
+                    list.set(position, last);
+                    last.tagIndex[tagRank(last, tag)] = position;
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes a free slot for a new item, growing the slot table if none is free.
+     *
+     * @return the slot index
+     */
+    private int allocateSlot() {
+        if (sharedParts > 0) {
+            int slot = sharedBase + sharedPart + sharedParts * sharedCount++;
+            claimSlot(slot);
+            slotGenerations[slot] = 0; // Never used by any node, like a new slot of a single Arena
+            return slot;
+        }
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        growSlotTable();
+        return slotCount++;
+    }
+
+    /**
+     * Takes a given slot off the free list, growing the slot table up to it if needed.
+     *
+     * @param slot the slot index
+     * @throws IllegalStateException if the slot is taken
+     */
+    private void claimSlot(int slot) {
+        reserveSlots(slot + 1);
+        int position = freePositions[slot];
+        if (slotItems[slot] != null || position >= freeCount || freeSlots[position] != slot) {
+            throw new IllegalStateException("Slot " + slot + " is already taken");
+        }
+        int last = freeSlots[--freeCount]; // Take the slot off the free list
+        freeSlots[position] = last;
+        freePositions[last] = position;
+    }
+
+    /**
+     * Makes room in the slot table for one more slot.
+     */
+    private void growSlotTable() {
+        if (slotCount == slotItems.length) {
+            slotItems = Arrays.copyOf(slotItems, slotCount * 2);
+            slotGenerations = Arrays.copyOf(slotGenerations, slotCount * 2);
+            freePositions = Arrays.copyOf(freePositions, slotCount * 2);
+        }
+    }
+
+    /**
+     * Grows the slot table to at least a number of slots, leaving the new slots free. A scenario
+     * building only part of a world uses this so the table is as long as the full world's.
+     *
+     * @param count the number of slots
+     */
+    void reserveSlots(int count) {
+        while (slotCount < count) {
+            growSlotTable();
+            releaseSlot(slotCount++);
+        }
+    }
+
+    /**
+     * Gets the length of the slot table: one more than the highest slot ever used or reserved.
+     *
+     * @return the number of slots
+     */
+    int getSlotCount() {
+        return slotCount;
+    }
+
+    /**
+     * Makes items added from now on take their slots from one share of the slot numbers beyond the
+     * current table, instead of reusing free slots. A {@link DomainNode} uses this so that the items
+     * each node adds while the cluster runs get handles no other node hands out, and free slots,
+     * which belong to items living on other nodes, are left to them.
+     *
+     * @param part the share of this Arena, from 0
+     * @param parts the number of shares, one per node
+     */
+    void shareSlots(int part, int parts) {
+        sharedBase = slotCount;
+        sharedPart = part;
+        sharedParts = parts;
+        sharedCount = 0;
+    }
+
+    /**
+     * Frees a slot, bumping its generation so existing handles to it go stale.
+     *
+     * @param slot the slot index
+     */
+    private void releaseSlot(int slot) {
+        slotItems[slot] = null;
+        slotGenerations[slot] = (slotGenerations[slot] + 1) & Integer.MAX_VALUE;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freePositions[slot] = freeCount;
+        freeSlots[freeCount++] = slot;
     }
 
     /**
      * Retrieves the list of items currently in the Arena.
+     * The list is read-only; use {@link #addObject(Item)} and {@link #removeObject(Item)} to change it.
      *
      * @return a list of items
      */
     public List<Item> getObjects() {
-        return objects; // Return the list of items
+        return objectsView; // Return the list of items
+    }
+
+    /**
+     * Draws every item on a surface in full detail, in the order of {@link #getObjects()}.
+     *
+     * @param gc the surface to draw on: the application's canvas or an offscreen framebuffer
+     */
+    public void render(DrawingSurface gc) {
+        render(gc, RenderQuality.FULL);
+    }
+
+    /**
+     * Draws every item on a surface at a level of detail, in the order of {@link #getObjects()}:
+     * the order the items were added, except that removing an item moves the last one into its place.
+     * Each call is a new render pass for {@link #claimSharedDecoration(SharedDecoration)}.
+     *
+     * @param gc the surface to draw on: the application's canvas or an offscreen framebuffer
+     * @param quality the level of detail
+     */
+    public void render(DrawingSurface gc, RenderQuality quality) {
+        renderPass = RENDER_PASSES.incrementAndGet();
+        for (Item obj : objects) {
+            obj.render(gc, quality);
+        }
+    }
+
+    /**
+     * Claims a decoration shared by many items, such as a patrol path they all follow, for the
+     * current render pass, so that it is drawn by the first item that needs it rather than by all.
+     *
+     * @param decoration the decoration
+     * @return true if it has not been claimed yet in this pass, and should be drawn
+     */
+    public boolean claimSharedDecoration(SharedDecoration decoration) {
+        if (decoration.lastPass == renderPass) {
+            return false;
+        }
+        decoration.lastPass = renderPass;
+        return true;
+    }
+
+    /**
+     * Retrieves the items that may lie within a range of a point, using the chunk index.
+     * Every item within range is included, along with some that are slightly further away,
+     * so callers still apply their own distance test.
+     *
+     * <p>
+     * The returned list is reused by the next call and must not be kept.
+     * </p>
+     *
+     * @param x the x-coordinate of the point
+     * @param y the y-coordinate of the point
+     * @param range the query range
+     * @return the candidate items
+     */
+    public List<Item> getObjectsNear(double x, double y, double range) {
+        queryBuffer.clear();
+        world.query(x, y, range, queryBuffer);
+        return queryBuffer;
+    }
+
+    /**
+     * Retrieves the items carrying a tag that may lie within a range of a point.
+     * Every such item within range is included, along with some that are slightly further away,
+     * so callers still apply their own distance test.
+     *
+     * <p>
+     * Rare tags are answered from the tag index directly, common ones from the chunks around the
+     * point. The returned list is reused by the next call and must not be kept.
+     * </p>
+     *
+     * @param x the x-coordinate of the point
+     * @param y the y-coordinate of the point
+     * @param range the query range
+     * @param tag the tag candidates must carry, or null for all items
+     * @return the candidate items
+     */
+    public List<Item> getObjectsNear(double x, double y, double range, ItemTag tag) {
+        if (tag == null) {
+            return getObjectsNear(x, y, range);
+        }
+        queryBuffer.clear();
+        List<Item> tagged = tagLists.get(tag.ordinal());
+        double span = 2 * range / ChunkedWorld.CHUNK_SIZE + 1;
+        if (tagged.size() <= span * span) {
+            // Fewer tagged items than chunks to visit: scan the tag list
+            for (Item obj : tagged) {
+                double reach = range + obj.radius;
+                if (Math.abs(obj.x - x) <= reach && Math.abs(obj.y - y) <= reach) {
+                    queryBuffer.add(obj);
+                }
+            }
+        } else {
+            world.query(x, y, range, tag, queryBuffer);
+        }
+        return queryBuffer;
+    }
+
+    /**
+     * Finds the nearest item whose centre lies inside a cone, such as a sensor beam.
+     *
+     * @param x the x-coordinate of the apex
+     * @param y the y-coordinate of the apex
+     * @param heading the direction the cone points in, in radians
+     * @param halfAngle half the opening angle of the cone, in radians
+     * @param range the length of the cone
+     * @param exclude an item to ignore, usually the one at the apex, or null
+     * @param tag the tag hits must carry, or null for all items
+     * @param hit the result, overwritten by the query
+     * @return true if an item was found
+     */
+    public boolean queryCone(double x, double y, double heading, double halfAngle, double range,
+                             Item exclude, ItemTag tag, ConeHit hit) {
+        return world.queryCone(x, y, heading, halfAngle, range, exclude, tag, hit);
+    }
+
+    /**
+     * Gets the ray casting grid over the Arena's obstacles, rebuilding it first if obstacles
+     * have been added or removed since it was built.
+     *
+     * @return the occupancy grid
+     */
+    public OccupancyGrid getOccupancyGrid() {
+        if (occupancyStale) {
+            occupancyGrid = new OccupancyGrid(getObjectsByTag(ItemTag.OBSTACLE));
+            occupancyStale = false;
+        }
+        return occupancyGrid;
+    }
+
+    /**
+     * Retrieves every item carrying a tag. The list is read-only.
+     *
+     * @param tag the tag
+     * @return the items carrying the tag
+     */
+    public List<Item> getObjectsByTag(ItemTag tag) {
+        return tagViews.get(tag.ordinal());
+    }
+
+    /**
+     * Gets the chunk index of the Arena.
+     *
+     * @return the chunked world
+     */
+    public ChunkedWorld getWorld() {
+        return world;
     }
 
     /**
@@ -75,12 +861,241 @@ public class Arena {
     }
 
     /**
-     * Updates all items in the Arena by calling their update methods.
+     * Gets the number of updates performed so far.
+     *
+     * @return the current tick count
+     */
+    public long getTick() {
+        return tick; // Return the tick count
+    }
+
+    /**
+     * Sets the tick count, used when the Arena is rewound to a checkpoint.
+     *
+     * @param tick the new tick count
+     */
+    public void setTick(long tick) {
+        this.tick = tick; // Set the tick count
+        version++; // Items may have jumped to their checkpointed positions
+    }
+
+    /**
+     * Gets the version of the Arena, which changes whenever items are added or removed
+     * or the Arena is rewound.
+     *
+     * @return the version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the sum, over every tick so far, of the furthest any item moved during that tick,
+     * collision separations included. The difference between two readings bounds how far any
+     * item can have moved in between.
+     *
+     * @return the accumulated travel
+     */
+    public double getTravel() {
+        return travel;
+    }
+
+    /**
+     * Gets the furthest a robot can move by itself in one tick: the highest maximum speed of any
+     * robot added so far, scaled by the time step.
+     *
+     * @return the maximum step length
+     */
+    public double getMaxStep() {
+        return maxSpeed * timeStep;
+    }
+
+    /**
+     * Checks whether sensors may reuse cached answers.
+     *
+     * @return true if sensor caching is enabled
+     */
+    public boolean isSensorCaching() {
+        return sensorCaching;
+    }
+
+    /**
+     * Enables or disables the reuse of cached sensor answers, for example to compare behaviour
+     * with and without the cache.
+     *
+     * @param sensorCaching true to enable sensor caching
+     */
+    public void setSensorCaching(boolean sensorCaching) {
+        this.sensorCaching = sensorCaching;
+    }
+
+    /**
+     * Records one answer given by a cached sensor.
+     *
+     * @param hit true if the answer was reused, false if the sensor was evaluated
+     */
+    void countSensorEvaluation(boolean hit) {
+        if (hit) {
+            sensorCacheHits++;
+        } else {
+            sensorEvaluations++;
+        }
+    }
+
+    /**
+     * Gets the number of times cached sensors had to be evaluated.
+     *
+     * @return the evaluation count
+     */
+    public long getSensorEvaluations() {
+        return sensorEvaluations;
+    }
+
+    /**
+     * Gets the number of times cached sensors reused an earlier answer.
+     *
+     * @return the cache hit count
+     */
+    public long getSensorCacheHits() {
+        return sensorCacheHits;
+    }
+
+    /**
+     * Gets the simulated time per tick.
+     *
+     * @return the time step, 1 being the original step size
+     */
+    public double getTimeStep() {
+        return timeStep;
+    }
+
+    /**
+     * Sets the simulated time per tick. Robots move this many times further per update,
+     * so fewer, larger ticks cover the same simulated time. Large steps should be combined
+     * with continuous collisions to keep fast robots from passing through thin items.
+     *
+     * @param timeStep the time step, 1 being the original step size
+     */
+    public void setTimeStep(double timeStep) {
+        if (timeStep <= 0) {
+            throw new IllegalArgumentException("Time step must be positive");
+        }
+        this.timeStep = timeStep;
+    }
+
+    /**
+     * Checks whether continuous collision detection is enabled.
+     *
+     * @return true if robots are swept along their path each tick
+     */
+    public boolean isContinuousCollisions() {
+        return collisions.isContinuous();
+    }
+
+    /**
+     * Enables or disables continuous collision detection. When enabled, each robot's motion during a
+     * tick is treated as a swept circle and stopped at the first time of impact, so robots cannot
+     * tunnel through items or each other however large the time step is.
+     *
+     * @param continuous true to enable continuous collisions
+     */
+    public void setContinuousCollisions(boolean continuous) {
+        collisions.setContinuous(continuous);
+    }
+
+    /**
+     * Updates the Arena's active items by calling their update methods.
      * This is typically used to apply logic like movement or state changes.
+     * Static and sleeping items are skipped.
+     *
+     * <p>
+     * Every item is updated before any item moves, so what an item senses does not depend on the
+     * order the items are updated in. Items are then moved, and collisions resolved once.
+     * </p>
      */
     public void update() {
-        for (Item obj : objects) {
-            obj.update(); // Update each item in the list
+        moveItems();
+        finishTick();
+    }
+
+    /**
+     * First half of a tick: applies posted commands and queued changes, then updates and moves every
+     * active item.
+     * Ghosts, the copies of items owned by another process, are left for their owner to move.
+     */
+    void moveItems() {
+        applyCommands(); // Changes posted from other threads land between ticks, in order
+        applyPendingChanges(); // Bulk additions and removals land between ticks
+        updateBuffer.clear();
+        updateBuffer.addAll(activeItems); // Snapshot, since items may sleep or wake while updating
+        scanAll(); // Range scans only read positions and the grid, so they run as one batch
+        for (Item obj : updateBuffer) {
+            if (obj.activeIndex < 0 || obj.ghost) {
+                continue; // Removed or put to sleep by an item updated earlier this tick, or owned elsewhere
+            }
+            obj.prevX = obj.x; // Remember where the item started, for continuous collisions
+            obj.prevY = obj.y;
+            obj.update(); // Update each active item
+        }
+        for (Item obj : updateBuffer) {
+            if (obj.activeIndex < 0 || obj.ghost) {
+                continue;
+            }
+            obj.advance(); // Move each item once every item has decided where to go
+            world.relocate(obj); // Move the item to a new chunk if it left its old one
+        }
+    }
+
+    /**
+     * Second half of a tick: resolves collisions and advances the tick count.
+     */
+    void finishTick() {
+        collisions.step(); // Separate every overlapping pair once, after all items have moved
+
+        // Record the furthest any item moved this tick, for cached sensor answers, and settle the
+        // start positions so that items falling asleep do not look like they are still moving
+        double maxMoveSq = Math.max(settle(updateBuffer), settle(wokenItems));
+        wokenItems.clear();
+        travel += Math.sqrt(maxMoveSq);
+        tick++; // Advance the tick count
+    }
+
+    /**
+     * Measures how far items moved during the tick and resets their start positions.
+     *
+     * @param items the items that may have moved
+     * @return the largest squared distance moved
+     */
+    private static double settle(List<Item> items) {
+        double maxMoveSq = 0;
+        for (Item obj : items) {
+            double dx = obj.x - obj.prevX;
+            double dy = obj.y - obj.prevY;
+            maxMoveSq = Math.max(maxMoveSq, dx * dx + dy * dy);
+            obj.prevX = obj.x;
+            obj.prevY = obj.y;
+        }
+        return maxMoveSq;
+    }
+
+    /**
+     * Fills the range scans of every scanning robot that scans on the current tick. The scans are
+     * independent of each other, so with many scanners they are spread over the common fork-join pool.
+     */
+    private void scanAll() {
+        List<Item> scanners = tagLists.get(ItemTag.SCANNER.ordinal());
+        if (scanners.isEmpty()) {
+            return;
+        }
+        OccupancyGrid grid = getOccupancyGrid(); // Build the grid before the threads share it
+        IntStream indices = IntStream.range(0, scanners.size());
+        if (scanners.size() >= PARALLEL_SCAN_THRESHOLD) {
+            indices = indices.parallel();
         }
+        indices.forEach(i -> {
+            if (scanners.get(i) instanceof LidarRobot robot && !robot.ghost && robot.isScanDue()) {
+                robot.getScanner().scan(grid, robot.x, robot.y, robot.direction, tick);
+            }
+        });
     }
 }
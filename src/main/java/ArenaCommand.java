@@ -0,0 +1,83 @@
+package ok;
+
+import java.util.function.Consumer;
+
+/**
+ * A change to an Arena, posted from any thread with {@link Arena#post(ArenaCommand)} and applied on
+ * the thread running the simulation, between two ticks.
+ *
+ * <p>
+ * Items are named by handle, since an item may be removed, or a handle reused, between the moment a
+ * command is posted and the moment it is applied; commands naming a stale handle do nothing.
+ * </p>
+ */
+@FunctionalInterface
+public interface ArenaCommand {
+    /**
+     * Applies the change. Called on the simulation thread, between two ticks.
+     *
+     * @param arena the Arena the command was posted to
+     */
+    void apply(Arena arena);
+
+    /**
+     * Creates a command adding an item. The item's handle is available from {@link Item#getHandle()}
+     * once the command has been applied.
+     *
+     * @param obj the item to add, which must not be touched by the posting thread afterwards
+     * @return the command; it does nothing if the item is in an Arena by then
+     */
+    static ArenaCommand add(Item obj) {
+        return arena -> {
+            if (obj.getArena() == null) {
+                arena.addObject(obj);
+            }
+        };
+    }
+
+    /**
+     * Creates a command removing an item.
+     *
+     * @param handle the handle of the item
+     * @return the command
+     */
+    static ArenaCommand remove(long handle) {
+        return arena -> arena.removeObject(handle);
+    }
+
+    /**
+     * Creates a command moving an item to a new position, as {@link Arena#moveObject(Item, double, double)} does.
+     *
+     * @param handle the handle of the item
+     * @param x the new x-coordinate
+     * @param y the new y-coordinate
+     * @return the command
+     */
+    static ArenaCommand move(long handle, double x, double y) {
+        return arena -> {
+            Item obj = arena.getObject(handle);
+            if (obj != null) {
+                arena.moveObject(obj, x, y);
+            }
+        };
+    }
+
+    /**
+     * Creates a command changing a parameter of an item through one of its setters, for instance
+     * {@code set(handle, EchoRobot.class, robot -> robot.setBeamRange(80))}.
+     *
+     * @param handle the handle of the item
+     * @param type the class the item must have for the change to apply
+     * @param change the change, run on the simulation thread
+     * @param <T> the type of the item
+     * @return the command; it does nothing if the item is not of the given class
+     */
+    static <T extends Item> ArenaCommand set(long handle, Class<T> type, Consumer<? super T> change) {
+        return arena -> {
+            Item obj = arena.getObject(handle);
+            if (type.isInstance(obj)) {
+                change.accept(type.cast(obj));
+            }
+        };
+    }
+}
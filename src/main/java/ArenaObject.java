@@ -1,7 +1,5 @@
 package ok;
 
-import javafx.scene.canvas.GraphicsContext;
-
 /**
  * Abstract class representing an object within an Arena.
  * Each object has a position (x, y), a radius, and can be updated or rendered.
@@ -39,9 +37,9 @@ public abstract class ArenaObject {
      * Abstract method to render the object on a canvas.
      * Subclasses must provide a concrete implementation of this method.
      *
-     * @param gc the GraphicsContext used to draw the object
+     * @param gc the DrawingSurface used to draw the object
      */
-    public abstract void render(GraphicsContext gc);
+    public abstract void render(DrawingSurface gc);
 
     /**
      * Checks if this object collides with another ArenaObject.
@@ -0,0 +1,150 @@
+package ok;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BiFunction;
+
+/**
+ * Compares the steering of robots run by their compiled {@link BehaviourTree} with the same
+ * steering written out by hand, to check that the tree engine costs nothing over plain code.
+ *
+ * <p>
+ * Each robot type is measured twice on identical Arenas: once as it ships, and once as a subclass
+ * whose {@link Robot#move()} does the same work as the tree in straight-line code, drawing the same
+ * random numbers and running the same sensors in the same order. Only steering is timed, not the
+ * rest of the tick. The two are measured in alternating rounds in one JVM, so both see the same
+ * compiler and machine state, and the best round of each is reported.
+ * </p>
+ */
+public class BehaviourBenchmark {
+    private static final int ROBOTS = 300;    // Robots of each Arena
+    private static final int SETTLE = 30;     // Ticks run before timing, so the robots spread and meet obstacles
+    private static final int REPEATS = 300;   // Steering passes over every robot per round
+
+    /**
+     * SimpleRobot steering written out by hand.
+     */
+    private static class HandSimpleRobot extends SimpleRobot {
+        HandSimpleRobot(double x, double y) {
+            super(x, y);
+        }
+
+        @Override
+        public void move() {
+            updateSpeed();
+            if (nextRandom() < 0.02) {
+                direction = nextRandom() * 2 * Math.PI;
+            }
+            for (Sensor sensor : sensors) {
+                if (sensor.sense(arena, x, y)) {
+                    direction += Math.PI / 2 + (nextRandom() - 0.5);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * EchoRobot steering written out by hand.
+     */
+    private static class HandEchoRobot extends EchoRobot {
+        HandEchoRobot(double x, double y) {
+            super(x, y);
+        }
+
+        @Override
+        public void move() {
+            updateSpeed();
+            if (nextRandom() < 0.015) {
+                direction = nextRandom() * 2 * Math.PI;
+            }
+            for (Sensor sensor : sensors) {
+                if (sensor.sense(arena, x, y)) {
+                    direction += Math.PI + (nextRandom() - 0.5);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Utility class, not meant to be instantiated.
+     */
+    private BehaviourBenchmark() {
+    }
+
+    /**
+     * Prints the steering cost per robot of the tree and of the handwritten code, for each robot
+     * type. Usage: {@code BehaviourBenchmark [rounds]}, the number of rounds measured, 60 by default.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 60;
+        compare("SimpleRobot", SimpleRobot::new, HandSimpleRobot::new, rounds);
+        compare("EchoRobot", EchoRobot::new, HandEchoRobot::new, rounds);
+    }
+
+    /**
+     * Measures and prints one robot type.
+     *
+     * @param name the name of the type
+     * @param tree builds a robot steered by its tree
+     * @param hand builds a robot steered by handwritten code
+     * @param rounds the number of rounds measured
+     */
+    private static void compare(String name, BiFunction<Double, Double, Robot> tree,
+            BiFunction<Double, Double, Robot> hand, int rounds) {
+        List<Robot> treeRobots = populate(tree);
+        List<Robot> handRobots = populate(hand);
+        double bestTree = Double.MAX_VALUE;
+        double bestHand = Double.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            bestHand = Math.min(bestHand, steer(handRobots));
+            bestTree = Math.min(bestTree, steer(treeRobots));
+        }
+        System.out.printf("%-12s tree %6.1f ns, handwritten %6.1f ns per robot%n", name, bestTree, bestHand);
+    }
+
+    /**
+     * Builds an Arena with a few obstacles and a seeded crowd of robots, and runs it for a while.
+     *
+     * @param type builds a robot
+     * @return the robots
+     */
+    private static List<Robot> populate(BiFunction<Double, Double, Robot> type) {
+        Arena arena = new Arena(800, 600);
+        arena.addObject(new Obstacle(100, 100));
+        arena.addObject(new Obstacle(300, 400));
+        arena.addObject(new Obstacle(600, 200));
+        List<Robot> robots = new ArrayList<>();
+        Random random = new Random(1); // Same positions in both Arenas
+        for (int i = 0; i < ROBOTS; i++) {
+            Robot robot = type.apply(random.nextDouble() * 800, random.nextDouble() * 600);
+            robot.setSeed(i);
+            arena.addObject(robot);
+            robots.add(robot);
+        }
+        for (int tick = 0; tick < SETTLE; tick++) {
+            arena.update();
+        }
+        return robots;
+    }
+
+    /**
+     * Times one round of steering.
+     *
+     * @param robots the robots to steer
+     * @return the time per robot and pass, in nanoseconds
+     */
+    private static double steer(List<Robot> robots) {
+        long start = System.nanoTime();
+        for (int pass = 0; pass < REPEATS; pass++) {
+            for (Robot robot : robots) {
+                robot.move();
+            }
+        }
+        return (System.nanoTime() - start) / ((double) REPEATS * robots.size());
+    }
+}
@@ -0,0 +1,503 @@
+package ok;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A behaviour tree steering a robot, compiled into a flat program.
+ *
+ * <p>
+ * Trees are put together from {@link Node}s: the composites {@link #sequence(Node...)},
+ * {@link #selector(Node...)} and {@link #optional(Node)}, conditions on the robot's sensors and
+ * random generator, and actions that change its speed or direction. Every node succeeds or fails:
+ * a sequence runs its children until one fails, a selector until one succeeds, and actions always
+ * succeed. Work that only some robot types need is reached through {@link #call(int)}, which hands
+ * a number to {@link Robot#behaviourCall(int)}.
+ * </p>
+ *
+ * <p>
+ * {@link #compile(Node)} compiles the composites away. Each condition and action becomes one
+ * instruction holding the instruction to go to when it succeeds and the one to go to when it fails,
+ * so running a tree is a loop over one int array, without recursion, a stack, allocations or a
+ * virtual call per node. A compiled tree holds no state of its own, so one tree is shared by every
+ * robot of a type.
+ * </p>
+ *
+ * <p>
+ * Runs of nodes that most robots steer with are fused into a single instruction while compiling:
+ * {@code optional(sequence(chance(p), wander()))}, the same preceded by {@code varySpeed()},
+ * {@code optional(sequence(sensing(), avoid(angle)))}, and the three in a row, which is the whole
+ * tree of the robots that roam and turn away from what they sense. A fused instruction does exactly
+ * what the nodes it replaces do, in the same order, so a tree steers the same whether or not it is
+ * fused; it only saves the dispatch of the instructions in between. A tree that is nothing but the
+ * three in a row is run without the loop, as fast as the same steering written out by hand
+ * ({@link BehaviourBenchmark} compares the two).
+ * </p>
+ */
+public final class BehaviourTree {
+    // Operation codes of the nodes; only conditions and actions remain after compiling
+    private static final int SEQUENCE = 0;     // Children until one fails
+    private static final int SELECTOR = 1;     // Children until one succeeds
+    private static final int SUCCEED = 2;      // Always succeeds
+    private static final int SENSE_ANY = 3;    // Any sensor detects something, trying them in order
+    private static final int SENSE = 4;        // The sensor with the index in the argument detects something
+    private static final int CHANCE = 5;       // A random draw falls below the probability in the argument
+    private static final int DUE = 6;          // Work every argument ticks is due on this tick
+    private static final int VARY_SPEED = 7;   // Randomly changes the speed now and then
+    private static final int WANDER = 8;       // Turns to a random direction
+    private static final int AVOID = 9;        // Turns by the angle in the argument, give or take half a radian
+    private static final int STEER_TOWARD = 10; // Faces the robot's steering target, turned by the argument
+    private static final int CALL = 11;        // Runs the robot's own behaviour with the number in the argument
+    // Fused operations, which compile() puts in place of common runs of nodes
+    private static final int WANDER_SOMETIMES = 12; // Turns to a random direction with the probability in the argument
+    private static final int VARY_AND_WANDER = 13;  // VARY_SPEED followed by WANDER_SOMETIMES
+    private static final int AVOID_SENSED = 14;     // Turns by the angle in the argument if any sensor detects something
+    private static final int ROAM = 15;             // VARY_AND_WANDER then AVOID_SENSED, with the two constants from the argument on
+
+    // Layout of an instruction: operation, argument, next instruction on success and on failure
+    private static final int STRIDE = 4;
+    private static final int SUCCESS = -1;     // Next instruction once the tree has succeeded
+    private static final int FAILURE = -2;     // Next instruction once the tree has failed
+
+    private final int[] code;          // The instructions
+    private final double[] constants;  // Angles and probabilities referred to by the instructions
+    private final int entry;           // Offset of the first instruction to run
+    private final boolean roamOnly;    // Whether the tree is a single ROAM instruction, which run() executes without the loop
+
+    /**
+     * A node of a tree under construction. Nodes are only a description; the robot runs the
+     * compiled form.
+     */
+    public static final class Node {
+        private final int op;           // Operation code
+        private final int arg;          // Integer argument
+        private final double constant;  // Floating-point argument
+        private final Node[] children;  // Child nodes, for composites
+
+        private Node(int op, int arg, double constant, Node... children) {
+            this.op = op;
+            this.arg = arg;
+            this.constant = constant;
+            this.children = children;
+        }
+    }
+
+    /**
+     * Creates a compiled tree.
+     *
+     * @param code the instructions
+     * @param constants the floating-point arguments
+     * @param entry the offset of the first instruction to run
+     */
+    private BehaviourTree(int[] code, double[] constants, int entry) {
+        this.code = code;
+        this.constants = constants;
+        this.entry = entry;
+        roamOnly = code.length == STRIDE && code[0] == ROAM;
+    }
+
+    /**
+     * Runs children in order until one fails.
+     *
+     * @param children the child nodes
+     * @return a node succeeding if every child succeeds
+     */
+    public static Node sequence(Node... children) {
+        return new Node(SEQUENCE, 0, 0, children);
+    }
+
+    /**
+     * Runs children in order until one succeeds.
+     *
+     * @param children the child nodes
+     * @return a node succeeding if any child succeeds
+     */
+    public static Node selector(Node... children) {
+        return new Node(SELECTOR, 0, 0, children);
+    }
+
+    /**
+     * Runs a node and succeeds whatever it returns, to continue a sequence past a failed branch.
+     *
+     * @param child the node to run
+     * @return a node that always succeeds
+     */
+    public static Node optional(Node child) {
+        return selector(child, new Node(SUCCEED, 0, 0));
+    }
+
+    /**
+     * Succeeds if any of the robot's sensors detects something. Sensors are tried in the order they
+     * were added, and those after the first detecting one are not run.
+     *
+     * @return the condition node
+     */
+    public static Node sensing() {
+        return new Node(SENSE_ANY, 0, 0);
+    }
+
+    /**
+     * Succeeds if one of the robot's sensors detects something.
+     *
+     * @param sensor the index of the sensor, in the order sensors were added
+     * @return the condition node
+     */
+    public static Node sensing(int sensor) {
+        return new Node(SENSE, sensor, 0);
+    }
+
+    /**
+     * Succeeds with a probability, drawn from the robot's random generator.
+     *
+     * @param probability the probability of succeeding
+     * @return the condition node
+     */
+    public static Node chance(double probability) {
+        return new Node(CHANCE, 0, probability);
+    }
+
+    /**
+     * Succeeds once every given number of ticks, staggered between robots.
+     *
+     * @param period the number of ticks between successes
+     * @return the condition node
+     */
+    public static Node due(int period) {
+        return new Node(DUE, period, 0);
+    }
+
+    /**
+     * Gives the robot a new random speed now and then (see {@link Robot#updateSpeed()}).
+     *
+     * @return the action node
+     */
+    public static Node varySpeed() {
+        return new Node(VARY_SPEED, 0, 0);
+    }
+
+    /**
+     * Turns the robot to a random direction.
+     *
+     * @return the action node
+     */
+    public static Node wander() {
+        return new Node(WANDER, 0, 0);
+    }
+
+    /**
+     * Turns the robot away from what it sensed, by an angle give or take half a radian.
+     *
+     * @param angle the turn in radians
+     * @return the action node
+     */
+    public static Node avoid(double angle) {
+        return new Node(AVOID, 0, angle);
+    }
+
+    /**
+     * Faces the robot toward its steering target (see {@link Robot#steeringTarget()}), turned by an
+     * angle; a half turn faces it away. Fails if the robot has no target.
+     *
+     * @param offset the angle added to the direction of the target, in radians
+     * @return the action node
+     */
+    public static Node steerToward(double offset) {
+        return new Node(STEER_TOWARD, 0, offset);
+    }
+
+    /**
+     * Runs behaviour specific to a robot type, through {@link Robot#behaviourCall(int)}.
+     *
+     * @param id the number identifying the behaviour to the robot
+     * @return a node succeeding if the robot's behaviour does
+     */
+    public static Node call(int id) {
+        return new Node(CALL, id, 0);
+    }
+
+    /**
+     * Compiles a tree.
+     *
+     * @param root the root node
+     * @return the compiled tree
+     */
+    public static BehaviourTree compile(Node root) {
+        Compiler compiler = new Compiler();
+        int entry = compiler.emit(fuse(root), SUCCESS, FAILURE);
+        return compiler.finish(entry);
+    }
+
+    /**
+     * Replaces the runs of nodes that have a fused operation with a single node, throughout a tree.
+     *
+     * @param node the root of the tree
+     * @return the root of the fused tree; the nodes given are left as they are
+     */
+    private static Node fuse(Node node) {
+        if (node.children.length == 0) {
+            return node;
+        }
+        Node[] children = new Node[node.children.length];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = fuse(node.children[i]);
+        }
+
+        // optional(sequence(test, action)), where the action always succeeds
+        if (node.op == SELECTOR && children.length == 2 && children[1].op == SUCCEED
+                && children[0].op == SEQUENCE && children[0].children.length == 2) {
+            Node test = children[0].children[0];
+            Node action = children[0].children[1];
+            if (test.op == CHANCE && action.op == WANDER) {
+                return new Node(WANDER_SOMETIMES, 0, test.constant);
+            }
+            if (test.op == SENSE_ANY && action.op == AVOID) {
+                return new Node(AVOID_SENSED, 0, action.constant);
+            }
+        }
+
+        if (node.op == SEQUENCE) {
+            List<Node> fused = new ArrayList<>();
+            for (int i = 0; i < children.length; i++) {
+                if (children[i].op == VARY_SPEED && i + 1 < children.length && children[i + 1].op == WANDER_SOMETIMES) {
+                    fused.add(new Node(VARY_AND_WANDER, 0, children[++i].constant));
+                } else {
+                    fused.add(children[i]);
+                }
+            }
+            children = fused.toArray(new Node[0]);
+            if (children.length == 2 && children[0].op == VARY_AND_WANDER && children[1].op == AVOID_SENSED) {
+                return new Node(ROAM, 0, 0, children); // The fused nodes are kept for their constants
+            }
+        }
+        return new Node(node.op, node.arg, node.constant, children);
+    }
+
+    /**
+     * Turns nodes into instructions. Children are compiled last to first, since each one's
+     * successor is the entry of the child after it.
+     */
+    private static class Compiler {
+        private final List<int[]> instructions = new ArrayList<>(); // Operation, argument, on success, on failure
+        private final List<Double> constants = new ArrayList<>();
+
+        /**
+         * Compiles a node given where to continue once it succeeds or fails.
+         *
+         * @param node the node
+         * @param onSuccess the instruction to run when the node succeeds
+         * @param onFailure the instruction to run when the node fails
+         * @return the first instruction of the node
+         */
+        int emit(Node node, int onSuccess, int onFailure) {
+            switch (node.op) {
+                case SUCCEED:
+                    return onSuccess;
+                case SEQUENCE: {
+                    int next = onSuccess; // An empty sequence succeeds
+                    for (int i = node.children.length - 1; i >= 0; i--) {
+                        next = emit(node.children[i], next, onFailure);
+                    }
+                    return next;
+                }
+                case SELECTOR: {
+                    int next = onFailure; // An empty selector fails
+                    for (int i = node.children.length - 1; i >= 0; i--) {
+                        next = emit(node.children[i], onSuccess, next);
+                    }
+                    return next;
+                }
+                default: {
+                    int arg = node.arg;
+                    if (node.op == CHANCE || node.op == AVOID || node.op == STEER_TOWARD
+                            || node.op == WANDER_SOMETIMES || node.op == VARY_AND_WANDER || node.op == AVOID_SENSED) {
+                        arg = constants.size();
+                        constants.add(node.constant);
+                    } else if (node.op == ROAM) {
+                        arg = constants.size();
+                        constants.add(node.children[0].constant); // Probability of wandering
+                        constants.add(node.children[1].constant); // Angle of avoiding
+                    }
+                    instructions.add(new int[] {node.op, arg, onSuccess, onFailure});
+                    return instructions.size() - 1;
+                }
+            }
+        }
+
+        /**
+         * Lays the instructions out in one array, in the order they run when every node succeeds
+         * first time, which is the reverse of the order they were compiled in.
+         *
+         * @param entry the first instruction to run
+         * @return the compiled tree
+         */
+        BehaviourTree finish(int entry) {
+            int count = instructions.size();
+            int[] code = new int[count * STRIDE];
+            for (int i = 0; i < count; i++) {
+                int[] instruction = instructions.get(i);
+                int at = remap(i, count);
+                code[at] = instruction[0];
+                code[at + 1] = instruction[1];
+                code[at + 2] = remap(instruction[2], count);
+                code[at + 3] = remap(instruction[3], count);
+            }
+            double[] values = new double[constants.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = constants.get(i);
+            }
+            return new BehaviourTree(code, values, remap(entry, count));
+        }
+
+        /**
+         * Converts an instruction index from compile order to the offset of the instruction in the
+         * code array.
+         *
+         * @param index the index in compile order, or SUCCESS or FAILURE
+         * @param count the number of instructions
+         * @return the offset in the code array, or SUCCESS or FAILURE unchanged
+         */
+        private static int remap(int index, int count) {
+            return index < 0 ? index : (count - 1 - index) * STRIDE;
+        }
+    }
+
+    /**
+     * Runs the tree for a robot, steering it for this tick. A tree made of a single ROAM
+     * instruction, the common case, is run directly; others go through the interpreter. This method
+     * is kept small, so that the JIT compiler inlines it into the robot's {@link Robot#move()}.
+     *
+     * @param robot the robot to steer
+     * @return true if the tree succeeded
+     */
+    public boolean run(Robot robot) {
+        if (roamOnly) {
+            roam(robot, constants[0], constants[1]);
+            return true;
+        }
+        return interpret(robot);
+    }
+
+    /**
+     * Runs the tree for a robot through the interpreter, which is one loop over the code array with
+     * the operations in one switch.
+     *
+     * @param robot the robot to steer
+     * @return true if the tree succeeded
+     */
+    private boolean interpret(Robot robot) {
+        int[] code = this.code;
+        int at = entry;
+        while (at >= 0) {
+            int arg = code[at + 1];
+            boolean ok = switch (code[at]) {
+                case SENSE_ANY -> senseAny(robot);
+                case SENSE -> robot.sensors[arg].sense(robot.arena, robot.x, robot.y);
+                case CHANCE -> robot.nextRandom() < constants[arg];
+                case DUE -> robot.isDue(arg);
+                case VARY_SPEED -> {
+                    robot.updateSpeed();
+                    yield true;
+                }
+                case WANDER -> {
+                    robot.direction = robot.nextRandom() * 2 * Math.PI;
+                    yield true;
+                }
+                case AVOID -> {
+                    robot.direction += constants[arg] + (robot.nextRandom() - 0.5);
+                    yield true;
+                }
+                case STEER_TOWARD -> steerToward(robot, constants[arg]);
+                case CALL -> robot.behaviourCall(arg);
+                case WANDER_SOMETIMES -> {
+                    wanderSometimes(robot, constants[arg]);
+                    yield true;
+                }
+                case VARY_AND_WANDER -> {
+                    robot.updateSpeed();
+                    wanderSometimes(robot, constants[arg]);
+                    yield true;
+                }
+                case AVOID_SENSED -> {
+                    avoidSensed(robot, constants[arg]);
+                    yield true;
+                }
+                case ROAM -> {
+                    roam(robot, constants[arg], constants[arg + 1]);
+                    yield true;
+                }
+                default -> throw new IllegalStateException("Unknown operation " + code[at]);
+            };
+            at = code[at + (ok ? 2 : 3)];
+        }
+        return at == SUCCESS;
+    }
+
+    /**
+     * Turns the robot to a random direction with a probability.
+     *
+     * @param robot the robot
+     * @param probability the probability of turning
+     */
+    private static void wanderSometimes(Robot robot, double probability) {
+        if (robot.nextRandom() < probability) {
+            robot.direction = robot.nextRandom() * 2 * Math.PI;
+        }
+    }
+
+    /**
+     * Turns the robot away from what it senses, if any of its sensors detects something.
+     *
+     * @param robot the robot
+     * @param angle the turn in radians, give or take half a radian
+     */
+    private static void avoidSensed(Robot robot, double angle) {
+        if (senseAny(robot)) {
+            robot.direction += angle + (robot.nextRandom() - 0.5);
+        }
+    }
+
+    /**
+     * Varies the robot's speed, turns it to a random direction with a probability, and turns it
+     * away from what it senses.
+     *
+     * @param robot the robot
+     * @param probability the probability of wandering
+     * @param angle the turn away from what is sensed, in radians
+     */
+    private static void roam(Robot robot, double probability, double angle) {
+        robot.updateSpeed();
+        wanderSometimes(robot, probability);
+        avoidSensed(robot, angle);
+    }
+
+    /**
+     * Checks the robot's sensors in order until one detects something.
+     *
+     * @param robot the robot
+     * @return true if a sensor detected something
+     */
+    private static boolean senseAny(Robot robot) {
+        for (Sensor sensor : robot.sensors) {
+            if (sensor.sense(robot.arena, robot.x, robot.y)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Faces the robot toward its steering target, turned by an offset.
+     *
+     * @param robot the robot
+     * @param offset the angle added to the direction of the target, in radians
+     * @return true if the robot has a target
+     */
+    private static boolean steerToward(Robot robot, double offset) {
+        Item target = robot.steeringTarget();
+        if (target == null) {
+            return false;
+        }
+        robot.direction = Math.atan2(target.y - robot.y, target.x - robot.x) + offset;
+        return true;
+    }
+}
@@ -0,0 +1,129 @@
+package ok;
+
+/**
+ * Base of the sensors whose answers can be reused across ticks.
+ * Robots move a few pixels per tick while sensor ranges span tens of pixels, so most answers stay
+ * the same from one tick to the next. Each time such a sensor is evaluated it reports a safe margin,
+ * with {@link #setSafeMargin(double)}: how far the robot and the items around it could move relative
+ * to each other before its answer could change. The answer is then reused until that margin has
+ * been used up.
+ *
+ * <p>
+ * The margin is spent by the robot's own displacement since the evaluation and, unless the sensor
+ * only targets static items, by the furthest any other item may have moved since: the Arena's
+ * measured travel for finished ticks plus one step for the tick in progress. Adding or removing
+ * items, or rewinding the Arena, discards every cached answer.
+ * </p>
+ *
+ * <p>
+ * The cache is only consulted on the sensor's sampling ticks, like every {@link SampledSensor}, and
+ * lives in the sensor itself, so a cached sensor is still a single object per robot.
+ * </p>
+ */
+public abstract class CachedSensor extends SampledSensor {
+    public static final double REACH = 32; // Extra query distance, which also caps the margin of an answer
+
+    private double margin;           // Safe margin of the last evaluation
+    private double anchorX, anchorY; // Robot position when the cached answer was computed
+    private double anchorTravel;     // Arena travel when the cached answer was computed
+    private long version = -1;       // Arena version the cached answer was computed in, -1 if there is none
+
+    /**
+     * Creates a cached sensor.
+     *
+     * @param robot the robot carrying the sensor
+     * @param config the range and sampling period
+     */
+    protected CachedSensor(Robot robot, SensorConfig config) {
+        super(robot, config);
+    }
+
+    /**
+     * Returns the cached answer if its margin has not been used up, or evaluates the sensor.
+     * Evaluations look a little beyond the sensor's range, so that items just out of range count
+     * toward the margin instead of being unknown.
+     *
+     * @param arena the Arena to sense
+     * @param x the x-coordinate of the robot
+     * @param y the y-coordinate of the robot
+     * @return the sensor's answer
+     */
+    @Override
+    protected boolean measure(Arena arena, double x, double y) {
+        if (arena.isSensorCaching() && version == arena.getVersion()) {
+            double used = Math.sqrt((x - anchorX) * (x - anchorX) + (y - anchorY) * (y - anchorY));
+            ItemTag target = getTarget();
+            if (target == null || !target.isStatic()) {
+                // Others moved at most the measured travel since, plus one step in the tick in progress
+                used += arena.getTravel() - anchorTravel + arena.getMaxStep();
+            }
+            if (used < Math.min(margin, REACH)) {
+                arena.countSensorEvaluation(true);
+                return getLastAnswer();
+            }
+        }
+
+        boolean answer = detect(arena.getObjectsNear(x, y, getRange() + REACH, getTarget()));
+        anchorX = x;
+        anchorY = y;
+        anchorTravel = arena.getTravel();
+        version = arena.getVersion();
+        arena.countSensorEvaluation(false);
+        return answer;
+    }
+
+    /**
+     * Declares that the sensor reports a safe margin, so its answers can be cached.
+     *
+     * @return true
+     */
+    @Override
+    public boolean isCacheable() {
+        return true;
+    }
+
+    /**
+     * Gets how far the robot and the items around it could move before the last answer could change.
+     *
+     * @return the safe margin of the last answer
+     */
+    @Override
+    public double getSafeMargin() {
+        return margin;
+    }
+
+    /**
+     * Records the safe margin of an answer. Called by {@link #detect(java.util.List)}, which may
+     * also be called directly with any list of items, so the cached answer is dropped; evaluations
+     * made for the cache anchor it again afterwards.
+     *
+     * @param margin how far the robot and the items it was given could move before the answer could change
+     */
+    protected void setSafeMargin(double margin) {
+        this.margin = margin;
+        version = -1;
+    }
+
+    /**
+     * Moves the sensor over to another configuration and drops the cached answer, which was
+     * computed with the old range.
+     *
+     * @param config the new range and sampling period
+     */
+    @Override
+    public void setConfig(SensorConfig config) {
+        super.setConfig(config);
+        version = -1;
+    }
+
+    /**
+     * Sets the answer reported until the next sample and drops the cached answer.
+     *
+     * @param answer the last answer
+     */
+    @Override
+    void setLastAnswer(boolean answer) {
+        super.setLastAnswer(answer);
+        version = -1;
+    }
+}
@@ -0,0 +1,218 @@
+package ok;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A ring buffer of in-memory checkpoints of the Arena.
+ * Every few ticks the state of every item is copied into pooled primitive buffers,
+ * so the simulation can be stepped back without cloning any objects.
+ *
+ * <p>
+ * A checkpoint holds references to the items that were in the Arena and a flat array of their
+ * state values. Restoring puts those same items back and copies the values into them,
+ * so no robot is ever reconstructed.
+ * </p>
+ */
+public class CheckpointBuffer {
+    private final Checkpoint[] slots; // Pooled checkpoints, reused as the ring wraps around
+    private final int interval;       // Number of ticks between two checkpoints
+    private int newest = -1;          // Slot index of the most recent checkpoint
+    private int count;                // Number of valid checkpoints in the ring
+
+    /**
+     * Constructs a checkpoint buffer.
+     *
+     * @param capacity the maximum number of checkpoints kept
+     * @param interval the number of ticks between two checkpoints
+     */
+    public CheckpointBuffer(int capacity, int interval) {
+        if (capacity <= 0 || interval <= 0) {
+            throw new IllegalArgumentException("Capacity and interval must be positive");
+        }
+        this.slots = new Checkpoint[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Checkpoint();
+        }
+        this.interval = interval;
+    }
+
+    /**
+     * Captures a checkpoint if the Arena's tick count falls on the checkpoint interval.
+     * Intended to be called once after every update.
+     *
+     * @param arena the Arena to capture
+     */
+    public void onTick(Arena arena) {
+        if (arena.getTick() % interval == 0) {
+            capture(arena);
+        }
+    }
+
+    /**
+     * Copies the current state of the Arena into the next slot of the ring,
+     * overwriting the oldest checkpoint once the ring is full.
+     *
+     * @param arena the Arena to capture
+     */
+    public void capture(Arena arena) {
+        // Never keep a checkpoint at or after the current tick twice
+        discardFrom(arena.getTick());
+
+        newest = (newest + 1) % slots.length;
+        if (count < slots.length) {
+            count++;
+        }
+        slots[newest].save(arena);
+    }
+
+    /**
+     * Restores the most recent checkpoint, leaving it in the buffer.
+     *
+     * @param arena the Arena to restore into
+     * @return true if a checkpoint was restored, false if the buffer is empty
+     */
+    public boolean restoreLatest(Arena arena) {
+        if (count == 0) {
+            return false;
+        }
+        slots[newest].restore(arena);
+        return true;
+    }
+
+    /**
+     * Steps the Arena back to the newest checkpoint taken before its current tick.
+     * Checkpoints at or after the current tick are discarded, so repeated calls keep
+     * moving further into the past.
+     *
+     * @param arena the Arena to rewind
+     * @return true if a checkpoint was restored, false if there is nothing older
+     */
+    public boolean rewind(Arena arena) {
+        discardFrom(arena.getTick());
+        return restoreLatest(arena);
+    }
+
+    /**
+     * Drops every checkpoint and the references they hold to items, for when the Arena is cleared
+     * and its history no longer applies.
+     */
+    public void clear() {
+        for (Checkpoint checkpoint : slots) {
+            checkpoint.release();
+        }
+        newest = -1;
+        count = 0;
+    }
+
+    /**
+     * Gets the number of checkpoints currently held.
+     *
+     * @return the checkpoint count
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Drops every checkpoint whose tick is at or after the given tick.
+     *
+     * @param tick the first tick to discard
+     */
+    private void discardFrom(long tick) {
+        while (count > 0 && slots[newest].tick >= tick) {
+            newest = (newest - 1 + slots.length) % slots.length;
+            count--;
+        }
+    }
+
+    /**
+     * A single pooled checkpoint. Its arrays grow when the Arena grows and are otherwise reused.
+     */
+    private static class Checkpoint {
+        long tick;                       // Tick at which the checkpoint was taken
+        Item[] roster = new Item[16];    // Items that were in the Arena
+        int itemCount;                   // Number of valid entries in the roster
+        double[] data = new double[128]; // Flat state values of all items, in roster order
+
+        /**
+         * Copies the Arena's items and their state into this checkpoint.
+         *
+         * @param arena the Arena to save
+         */
+        void save(Arena arena) {
+            List<Item> objects = arena.getObjects();
+            int n = objects.size();
+            if (roster.length < n) {
+                roster = new Item[n + (n >> 1)];
+            } else if (itemCount > n) {
+                // Release references to items beyond the new count
+                Arrays.fill(roster, n, itemCount, null);
+            }
+
+            int size = 0;
+            for (int i = 0; i < n; i++) {
+                Item item = objects.get(i);
+                roster[i] = item;
+                size += item.getStateSize();
+            }
+            if (data.length < size) {
+                data = new double[size + (size >> 1)];
+            }
+
+            int offset = 0;
+            for (int i = 0; i < n; i++) {
+                offset = roster[i].saveState(data, offset);
+            }
+            itemCount = n;
+            tick = arena.getTick();
+        }
+
+        /**
+         * Forgets the saved items, so they can be collected.
+         */
+        void release() {
+            Arrays.fill(roster, 0, itemCount, null);
+            itemCount = 0;
+        }
+
+        /**
+         * Puts the saved items back into the Arena and copies their state into them.
+         * Items that stayed in the Arena since the checkpoint keep their handles. Every restored
+         * item is woken, since one that fell asleep after the checkpoint may have been moving then.
+         *
+         * @param arena the Arena to restore into
+         */
+        void restore(Arena arena) {
+            // Remove the items that were added after the checkpoint
+            Set<Item> saved = Collections.newSetFromMap(new IdentityHashMap<>(itemCount));
+            saved.addAll(Arrays.asList(roster).subList(0, itemCount));
+            List<Item> added = new ArrayList<>();
+            for (Item item : arena.getObjects()) {
+                if (!saved.contains(item)) {
+                    added.add(item);
+                }
+            }
+            for (Item item : added) {
+                arena.removeObject(item);
+            }
+
+            int offset = 0;
+            for (int i = 0; i < itemCount; i++) {
+                Item item = roster[i];
+                offset = item.restoreState(data, offset);
+                if (item.getArena() == arena) {
+                    arena.getWorld().relocate(item); // Re-index at the restored position
+                } else {
+                    arena.addObject(item); // Put back an item removed since the checkpoint
+                }
+                arena.wake(item);
+            }
+            arena.setTick(tick);
+        }
+    }
+}
@@ -0,0 +1,442 @@
+package ok;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A sparse spatial index that divides the world into fixed-size square chunks.
+ * Chunks are only allocated where items exist and are released again once they are empty,
+ * so memory tracks the occupied area of the world rather than its total size.
+ */
+public class ChunkedWorld {
+    public static final double CHUNK_SIZE = 128; // Side length of a chunk in pixels
+    private static final ItemTag[] TAGS = ItemTag.values(); // Cached, values() copies the array
+
+    private final Map<Long, Chunk> chunks = new HashMap<>(); // Allocated chunks, keyed by packed coordinates
+    private double maxRadius; // Largest radius of any item ever inserted, used to pad queries
+
+    /**
+     * Adds an item to the chunk containing its position.
+     *
+     * @param item the item to add
+     */
+    public void insert(Item item) {
+        Chunk chunk = chunkAt(item.x, item.y, true);
+        chunk.add(item);
+        maxRadius = Math.max(maxRadius, item.radius);
+    }
+
+    /**
+     * Removes an item from the chunk it is in, releasing the chunk if it becomes empty.
+     *
+     * @param item the item to remove
+     */
+    public void remove(Item item) {
+        Chunk chunk = item.chunk;
+        if (chunk != null) {
+            chunk.remove(item);
+            if (chunk.items.isEmpty()) {
+                chunks.remove(key(chunk.cx, chunk.cy));
+            }
+        }
+    }
+
+    /**
+     * Moves an item to a different chunk if its position has left the chunk it was in.
+     *
+     * @param item the item that may have moved
+     */
+    public void relocate(Item item) {
+        Chunk chunk = item.chunk;
+        if (chunk == null || !chunk.contains(item.x, item.y)) {
+            remove(item);
+            insert(item);
+        }
+    }
+
+    /**
+     * Removes every item and releases every chunk.
+     */
+    public void clear() {
+        for (Chunk chunk : chunks.values()) {
+            for (Item item : chunk.items) {
+                item.chunk = null;
+            }
+        }
+        chunks.clear();
+        maxRadius = 0;
+    }
+
+    /**
+     * Collects the items that may lie within a range of a point.
+     * The result is a superset: every item whose centre lies within the range plus the largest
+     * item radius is included, but so may be some items further away.
+     *
+     * @param x the x-coordinate of the point
+     * @param y the y-coordinate of the point
+     * @param range the query range
+     * @param out the list the candidates are added to
+     */
+    public void query(double x, double y, double range, List<Item> out) {
+        query(x, y, range, null, out);
+    }
+
+    /**
+     * Collects the items carrying a tag that may lie within a range of a point.
+     * Chunks without any item carrying the tag are skipped without looking at their items.
+     *
+     * @param x the x-coordinate of the point
+     * @param y the y-coordinate of the point
+     * @param range the query range
+     * @param tag the tag candidates must carry, or null for all items
+     * @param out the list the candidates are added to
+     */
+    public void query(double x, double y, double range, ItemTag tag, List<Item> out) {
+        double reach = range + maxRadius;
+        int minCx = chunkCoordinate(x - reach);
+        int maxCx = chunkCoordinate(x + reach);
+        int minCy = chunkCoordinate(y - reach);
+        int maxCy = chunkCoordinate(y + reach);
+
+        // Visit whichever is smaller: the chunks under the query square, or all allocated chunks
+        long area = (long) (maxCx - minCx + 1) * (maxCy - minCy + 1);
+        if (area > chunks.size()) {
+            for (Chunk chunk : chunks.values()) {
+                if (chunk.cx >= minCx && chunk.cx <= maxCx && chunk.cy >= minCy && chunk.cy <= maxCy) {
+                    chunk.collect(tag, out);
+                }
+            }
+            return;
+        }
+        for (int cy = minCy; cy <= maxCy; cy++) {
+            for (int cx = minCx; cx <= maxCx; cx++) {
+                Chunk chunk = chunks.get(key(cx, cy));
+                if (chunk != null) {
+                    chunk.collect(tag, out);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the nearest item whose centre lies inside a cone.
+     * Only chunks overlapping the bounding box of the cone's sector are visited, chunks further
+     * than the range from the apex are skipped, and items are tested with dot products, so no
+     * angle is computed except the bearing of the final hit.
+     *
+     * @param x the x-coordinate of the apex
+     * @param y the y-coordinate of the apex
+     * @param heading the direction the cone points in, in radians
+     * @param halfAngle half the opening angle of the cone, in radians
+     * @param range the length of the cone
+     * @param exclude an item to ignore, usually the one at the apex, or null
+     * @param tag the tag hits must carry, or null for all items
+     * @param hit the result, overwritten by the query
+     * @return true if an item was found
+     */
+    public boolean queryCone(double x, double y, double heading, double halfAngle, double range,
+                             Item exclude, ItemTag tag, ConeHit hit) {
+        hit.reset();
+        double hx = Math.cos(heading);
+        double hy = Math.sin(heading);
+        double cosHalf = Math.cos(Math.min(halfAngle, Math.PI));
+
+        // Bounding box of the sector: the apex, both edge ends and any axis extreme inside the cone
+        double minX = x, maxX = x, minY = y, maxY = y;
+        for (int edge = -1; edge <= 1; edge += 2) {
+            double angle = heading + edge * Math.min(halfAngle, Math.PI);
+            double ex = x + range * Math.cos(angle);
+            double ey = y + range * Math.sin(angle);
+            minX = Math.min(minX, ex);
+            maxX = Math.max(maxX, ex);
+            minY = Math.min(minY, ey);
+            maxY = Math.max(maxY, ey);
+        }
+        if (hx >= cosHalf) maxX = x + range;  // +x axis inside the cone
+        if (-hx >= cosHalf) minX = x - range; // -x axis
+        if (hy >= cosHalf) maxY = y + range;  // +y axis
+        if (-hy >= cosHalf) minY = y - range; // -y axis
+
+        int minCx = chunkCoordinate(minX);
+        int maxCx = chunkCoordinate(maxX);
+        int minCy = chunkCoordinate(minY);
+        int maxCy = chunkCoordinate(maxY);
+        double rangeSq = range * range;
+        long area = (long) (maxCx - minCx + 1) * (maxCy - minCy + 1);
+        Item nearest = null;
+        double nearestSq = rangeSq;
+
+        if (area > chunks.size()) {
+            for (Chunk chunk : chunks.values()) {
+                if (chunk.cx >= minCx && chunk.cx <= maxCx && chunk.cy >= minCy && chunk.cy <= maxCy) {
+                    Item found = nearestInCone(chunk, x, y, hx, hy, cosHalf, nearestSq, exclude, tag);
+                    if (found != null) {
+                        nearest = found;
+                        nearestSq = distanceSq(found, x, y);
+                    }
+                }
+            }
+        } else {
+            for (int cy = minCy; cy <= maxCy; cy++) {
+                for (int cx = minCx; cx <= maxCx; cx++) {
+                    Chunk chunk = chunks.get(key(cx, cy));
+                    if (chunk != null) {
+                        Item found = nearestInCone(chunk, x, y, hx, hy, cosHalf, nearestSq, exclude, tag);
+                        if (found != null) {
+                            nearest = found;
+                            nearestSq = distanceSq(found, x, y);
+                        }
+                    }
+                }
+            }
+        }
+
+        if (nearest != null) {
+            double dx = nearest.x - x;
+            double dy = nearest.y - y;
+            hit.set(nearest, Math.sqrt(nearestSq), Math.atan2(hx * dy - hy * dx, hx * dx + hy * dy));
+        }
+        return nearest != null;
+    }
+
+    /**
+     * Finds the item of a chunk inside a cone that is closer to the apex than a limit.
+     *
+     * @param chunk the chunk to search
+     * @param x the x-coordinate of the apex
+     * @param y the y-coordinate of the apex
+     * @param hx the x-component of the cone's unit heading
+     * @param hy the y-component of the cone's unit heading
+     * @param cosHalf the cosine of the cone's half angle
+     * @param limitSq the squared distance a hit must be closer than
+     * @param exclude an item to ignore, or null
+     * @param tag the tag hits must carry, or null for all items
+     * @return the nearest item inside the cone, or null if none is closer than the limit
+     */
+    private static Item nearestInCone(Chunk chunk, double x, double y, double hx, double hy, double cosHalf,
+                                      double limitSq, Item exclude, ItemTag tag) {
+        if (tag != null && (chunk.tagMask & tag.mask()) == 0) {
+            return null;
+        }
+        // Skip the chunk if even its closest point is out of reach
+        double left = chunk.cx * CHUNK_SIZE;
+        double top = chunk.cy * CHUNK_SIZE;
+        double gapX = Math.max(0, Math.max(left - x, x - (left + CHUNK_SIZE)));
+        double gapY = Math.max(0, Math.max(top - y, y - (top + CHUNK_SIZE)));
+        if (gapX * gapX + gapY * gapY >= limitSq) {
+            return null;
+        }
+
+        int mask = tag == null ? 0 : tag.mask();
+        Item nearest = null;
+        for (Item item : chunk.items) {
+            if (item == exclude || (mask != 0 && (item.tags & mask) == 0)) {
+                continue;
+            }
+            double dx = item.x - x;
+            double dy = item.y - y;
+            double distSq = dx * dx + dy * dy;
+            if (distSq < limitSq && insideCone(dx, dy, distSq, hx, hy, cosHalf)) {
+                nearest = item;
+                limitSq = distSq;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Checks whether an offset from a cone's apex lies within its opening angle.
+     * The test compares the dot product with the heading against the cosine of the half angle,
+     * squared on both sides so that no square root is needed.
+     *
+     * @param dx the x-offset from the apex
+     * @param dy the y-offset from the apex
+     * @param distSq the squared length of the offset
+     * @param hx the x-component of the cone's unit heading
+     * @param hy the y-component of the cone's unit heading
+     * @param cosHalf the cosine of the cone's half angle
+     * @return true if the offset is inside the cone
+     */
+    static boolean insideCone(double dx, double dy, double distSq, double hx, double hy, double cosHalf) {
+        double dot = dx * hx + dy * hy;
+        if (cosHalf >= 0) {
+            return dot > 0 && dot * dot > cosHalf * cosHalf * distSq;
+        }
+        return dot >= 0 || dot * dot < cosHalf * cosHalf * distSq; // Cone wider than a half plane
+    }
+
+    /**
+     * Computes the squared distance from an item's centre to a point.
+     *
+     * @param item the item
+     * @param x the x-coordinate of the point
+     * @param y the y-coordinate of the point
+     * @return the squared distance
+     */
+    private static double distanceSq(Item item, double x, double y) {
+        double dx = item.x - x;
+        double dy = item.y - y;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Gets all allocated chunks.
+     *
+     * @return the allocated chunks
+     */
+    public Collection<Chunk> getChunks() {
+        return chunks.values();
+    }
+
+    /**
+     * Gets the number of allocated chunks.
+     *
+     * @return the chunk count
+     */
+    public int getChunkCount() {
+        return chunks.size();
+    }
+
+    /**
+     * Finds the chunk containing a position.
+     *
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @param create whether to allocate the chunk if it does not exist
+     * @return the chunk, or null if it does not exist and create is false
+     */
+    private Chunk chunkAt(double x, double y, boolean create) {
+        int cx = chunkCoordinate(x);
+        int cy = chunkCoordinate(y);
+        long key = key(cx, cy);
+        Chunk chunk = chunks.get(key);
+        if (chunk == null && create) {
+            chunk = new Chunk(cx, cy);
+            chunks.put(key, chunk);
+        }
+        return chunk;
+    }
+
+    /**
+     * Converts a world coordinate to a chunk coordinate.
+     *
+     * @param value the world coordinate
+     * @return the chunk coordinate
+     */
+    private static int chunkCoordinate(double value) {
+        return (int) Math.floor(value / CHUNK_SIZE);
+    }
+
+    /**
+     * Packs two chunk coordinates into a single map key.
+     *
+     * @param cx the chunk x-coordinate
+     * @param cy the chunk y-coordinate
+     * @return the packed key
+     */
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+
+    /**
+     * A fixed-size square region of the world with the list of items inside it.
+     */
+    public static class Chunk {
+        private final int cx, cy;                            // Chunk coordinates
+        private final List<Item> items = new ArrayList<>();  // Items whose centre lies in the chunk
+        private final int[] tagCounts = new int[TAGS.length]; // Number of items per tag
+        private int tagMask;                                 // Tags carried by at least one item
+
+        /**
+         * Constructs an empty chunk.
+         *
+         * @param cx the chunk x-coordinate
+         * @param cy the chunk y-coordinate
+         */
+        Chunk(int cx, int cy) {
+            this.cx = cx;
+            this.cy = cy;
+        }
+
+        /**
+         * Adds an item to the chunk.
+         *
+         * @param item the item to add
+         */
+        void add(Item item) {
+            item.chunk = this;
+            item.chunkIndex = items.size();
+            items.add(item);
+            for (ItemTag tag : TAGS) {
+                if (item.hasTag(tag) && tagCounts[tag.ordinal()]++ == 0) {
+                    tagMask |= tag.mask();
+                }
+            }
+        }
+
+        /**
+         * Removes an item from the chunk by swapping the last item into its place.
+         *
+         * @param item the item to remove
+         */
+        void remove(Item item) {
+            Item last = items.remove(items.size() - 1);
+            if (last != item) {
+                items.set(item.chunkIndex, last);
+                last.chunkIndex = item.chunkIndex;
+            }
+            item.chunk = null;
+            for (ItemTag tag : TAGS) {
+                if (item.hasTag(tag) && --tagCounts[tag.ordinal()] == 0) {
+                    tagMask &= ~tag.mask();
+                }
+            }
+        }
+
+        /**
+         * Adds the chunk's items carrying a tag to a list.
+         *
+         * @param tag the tag to filter by, or null for all items
+         * @param out the list the items are added to
+         */
+        void collect(ItemTag tag, List<Item> out) {
+            if (tag == null) {
+                out.addAll(items);
+            } else if ((tagMask & tag.mask()) != 0) {
+                if (tagCounts[tag.ordinal()] == items.size()) {
+                    out.addAll(items); // Every item carries the tag
+                } else {
+                    int mask = tag.mask();
+                    for (Item item : items) {
+                        if ((item.tags & mask) != 0) {
+                            out.add(item);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Checks whether a position lies inside the chunk.
+         *
+         * @param x the x-coordinate
+         * @param y the y-coordinate
+         * @return true if the position is inside the chunk
+         */
+        boolean contains(double x, double y) {
+            return chunkCoordinate(x) == cx && chunkCoordinate(y) == cy;
+        }
+
+        /**
+         * Gets the items in the chunk.
+         *
+         * @return the items
+         */
+        public List<Item> getItems() {
+            return items;
+        }
+    }
+}
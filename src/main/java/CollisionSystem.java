@@ -0,0 +1,643 @@
+package ok;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Detects and resolves collisions between solid items once per tick.
+ *
+ * <p>
+ * The broad phase is a sweep-and-prune along the x-axis over the items that move. They are kept in
+ * an array sorted by the left edge of their bounds; since items move only a little between ticks the
+ * array stays nearly sorted, and an insertion sort restores the order in close to linear time.
+ * Sweeping the sorted array then only pairs moving items whose x-extents overlap. Static and sleeping
+ * items stay out of the array; each moving item finds them by querying the Arena's chunks around it,
+ * so the cost of a tick follows the number of moving items, however many static ones there are.
+ * </p>
+ *
+ * <p>
+ * The narrow phase tests circle against circle for robots, and circle against axis-aligned box for
+ * {@link Obstacle}s and {@link MetalWall}s, which are drawn as squares. All contacts of a tick are
+ * gathered first and then resolved in a single pass: overlapping items are pushed apart and robots
+ * moving into a contact have their direction reflected. A sleeping item (see {@link Arena#sleep(Item)})
+ * that gets pushed or hit is woken up and rejoins the sweep.
+ * </p>
+ *
+ * <p>
+ * In continuous mode each moving item's bounds cover its whole path during the tick, from where it
+ * started to where it ended up. Before the overlap tests, every candidate pair is checked for a time
+ * of impact along those paths (swept circle against circle, or against a box expanded by the circle's
+ * radius), and items that would have passed through something are stopped at their first impact.
+ * This keeps fast robots from tunnelling through thin walls and each other at large time steps.
+ * </p>
+ */
+public class CollisionSystem {
+    private final Arena arena;         // Arena whose items are checked
+    private final List<Item> nearby = new ArrayList<>(); // Static and sleeping candidates around one item
+    private Item[] items = new Item[64];    // Moving items, sorted by the left edge of their bounds
+    private double[] minX = new double[64]; // Left edge of each item's bounds, parallel to items
+    private double[] maxX = new double[64]; // Right edge of each item's bounds, parallel to items
+    private int count;                 // Number of entries in the arrays, including stale ones
+    private boolean continuous;        // Whether moving items are swept along their path
+
+    // Earliest impact of each item during the tick, parallel to items, used and grown in continuous mode
+    private double[] impactTime = new double[64];
+    private double[] impactNx = new double[64];
+    private double[] impactNy = new double[64];
+    private Item[] impactOther = new Item[64];
+
+    // Normal of the last impact found, pointing from the first item of the pair into the second
+    private double hitNx, hitNy;
+
+    private static final double NO_IMPACT = Double.POSITIVE_INFINITY; // Marks a pair that does not collide
+    private static final double IMPACT_BACKOFF = 1e-3; // Fraction of the path kept free before an impact
+
+    // Contacts found during a tick, stored in parallel arrays to avoid allocating per contact
+    private Item[] contactA = new Item[64];
+    private Item[] contactB = new Item[64];
+    private double[] contactNx = new double[64];
+    private double[] contactNy = new double[64];
+    private double[] contactDepth = new double[64];
+    private int contactCount;
+
+    /**
+     * Constructs a collision system for an Arena.
+     *
+     * @param arena the Arena whose items are checked
+     */
+    public CollisionSystem(Arena arena) {
+        this.arena = arena;
+    }
+
+    /**
+     * Registers a solid item. Items that are not solid are ignored, and static items are found
+     * through the Arena's chunks instead of joining the sweep. Called again when a sleeping item
+     * wakes up, to put it back into the sweep.
+     *
+     * @param item the item added to the Arena
+     */
+    public void add(Item item) {
+        if (!item.isSolid()) {
+            return;
+        }
+        item.collidable = true;
+        if (!item.inSweep && !item.isStatic()) {
+            if (count == items.length) {
+                int size = count * 2;
+                items = Arrays.copyOf(items, size);
+                minX = Arrays.copyOf(minX, size);
+                maxX = Arrays.copyOf(maxX, size);
+                if (continuous) {
+                    growImpacts(size);
+                }
+            }
+            items[count] = item;
+            minX[count] = item.x - item.radius;
+            maxX[count] = item.x + item.radius;
+            if (continuous) {
+                impactTime[count] = NO_IMPACT; // May join in the middle of a step
+            }
+            count++;
+            item.inSweep = true;
+        }
+    }
+
+    /**
+     * Unregisters an item. Its entry is dropped lazily during the next step.
+     *
+     * @param item the item removed from the Arena
+     */
+    public void remove(Item item) {
+        item.collidable = false;
+    }
+
+    /**
+     * Unregisters every item.
+     */
+    public void clear() {
+        for (int i = 0; i < count; i++) {
+            items[i].collidable = false;
+            items[i].inSweep = false;
+            items[i] = null;
+        }
+        count = 0;
+    }
+
+    /**
+     * Checks whether moving items are swept along their path.
+     *
+     * @return true in continuous mode
+     */
+    public boolean isContinuous() {
+        return continuous;
+    }
+
+    /**
+     * Enables or disables continuous mode.
+     *
+     * @param continuous true to sweep moving items along their path
+     */
+    public void setContinuous(boolean continuous) {
+        this.continuous = continuous;
+        if (continuous && impactTime.length < items.length) {
+            growImpacts(items.length);
+        }
+    }
+
+    /**
+     * Grows the impact arrays to match the item array. They are only kept as large as the item array
+     * in continuous mode, saving their 28 bytes per item otherwise.
+     *
+     * @param size the new length
+     */
+    private void growImpacts(int size) {
+        impactTime = Arrays.copyOf(impactTime, size);
+        impactNx = Arrays.copyOf(impactNx, size);
+        impactNy = Arrays.copyOf(impactNy, size);
+        impactOther = Arrays.copyOf(impactOther, size);
+    }
+
+    /**
+     * Finds all contacts between solid items and resolves them.
+     * Called once per tick, after every item has been updated.
+     */
+    public void step() {
+        refreshBounds();
+        sortByMinX();
+        for (int i = 0; i < count; i++) {
+            Item item = items[i];
+            maxX[i] = (continuous ? Math.max(item.x, item.prevX) : item.x) + item.radius;
+        }
+        if (continuous) {
+            findImpacts();
+            resolveImpacts();
+        }
+        findContacts();
+        resolveContacts();
+    }
+
+    /**
+     * Recomputes the left edge of every item's bounds and drops unregistered items and items that
+     * have fallen asleep without moving. In continuous mode the bounds cover the item's whole path
+     * during the tick.
+     */
+    private void refreshBounds() {
+        int live = 0;
+        for (int i = 0; i < count; i++) {
+            Item item = items[i];
+            if (item.collidable && moved(item)) {
+                items[live] = item;
+                double left = continuous ? Math.min(item.x, item.prevX) : item.x;
+                minX[live] = left - item.radius;
+                live++;
+            } else {
+                item.inSweep = false;
+            }
+        }
+        Arrays.fill(items, live, count, null);
+        count = live;
+    }
+
+    /**
+     * Sweeps the sorted array and finds the earliest time of impact of every moving item,
+     * against other moving items and against the static and sleeping items along its path.
+     */
+    private void findImpacts() {
+        Arrays.fill(impactTime, 0, count, NO_IMPACT);
+        for (int i = 0; i < count; i++) {
+            Item a = items[i];
+            for (int j = i + 1; j < count && minX[j] <= maxX[i]; j++) {
+                testImpact(i, a, j, items[j]);
+            }
+            // Query around the middle of the path, far enough to cover both of its ends
+            double reach = Math.max(Math.abs(a.x - a.prevX), Math.abs(a.y - a.prevY)) / 2 + a.radius;
+            for (Item b : findNearby((a.x + a.prevX) / 2, (a.y + a.prevY) / 2, reach)) {
+                testImpact(i, a, -1, b);
+            }
+        }
+    }
+
+    /**
+     * Finds the time of impact of one pair and keeps it if it is the earliest of either item.
+     *
+     * @param i the sweep index of the first item
+     * @param a the first item, which is moving
+     * @param j the sweep index of the second item, or -1 if it is static or asleep
+     * @param b the second item
+     */
+    private void testImpact(int i, Item a, int j, Item b) {
+        if (!moved(a) && !moved(b) || a.isBox() && b.isBox()) {
+            return; // Neither item moved this tick, or two boxes
+        }
+        if (Math.max(a.y, a.prevY) + a.radius < Math.min(b.y, b.prevY) - b.radius
+                || Math.max(b.y, b.prevY) + b.radius < Math.min(a.y, a.prevY) - a.radius) {
+            return; // Paths do not overlap along the y-axis
+        }
+
+        double t;
+        if (a.isBox()) {
+            t = sweepCircleBox(b, a);
+            hitNx = -hitNx; // Turn the normal around to point from a into b
+            hitNy = -hitNy;
+        } else if (b.isBox()) {
+            t = sweepCircleBox(a, b);
+        } else {
+            t = sweepCircleCircle(a, b);
+        }
+
+        if (t < impactTime[i]) {
+            impactTime[i] = t;
+            impactNx[i] = hitNx;
+            impactNy[i] = hitNy;
+            impactOther[i] = b;
+        }
+        if (j >= 0 && t < impactTime[j]) {
+            impactTime[j] = t;
+            impactNx[j] = -hitNx;
+            impactNy[j] = -hitNy;
+            impactOther[j] = a;
+        }
+    }
+
+    /**
+     * Collects the solid items around a point that are not in the sweep, meaning static or asleep.
+     *
+     * @param x the x-coordinate of the point
+     * @param y the y-coordinate of the point
+     * @param range the query range, padded by the chunk index with the largest item radius
+     * @return the candidates, in a list reused by the next call
+     */
+    private List<Item> findNearby(double x, double y, double range) {
+        nearby.clear();
+        arena.getWorld().query(x, y, range, nearby);
+        int kept = 0;
+        for (Item item : nearby) {
+            if (item.collidable && !item.inSweep) {
+                nearby.set(kept++, item);
+            }
+        }
+        nearby.subList(kept, nearby.size()).clear();
+        return nearby;
+    }
+
+    /**
+     * Moves every item that hit something back to its first impact and turns robots away from it.
+     */
+    private void resolveImpacts() {
+        for (int i = 0; i < count; i++) {
+            if (impactTime[i] == NO_IMPACT) {
+                continue;
+            }
+            Item item = items[i];
+            double t = Math.max(0, impactTime[i] - IMPACT_BACKOFF);
+            item.x = item.prevX + (item.x - item.prevX) * t;
+            item.y = item.prevY + (item.y - item.prevY) * t;
+            if (item instanceof Robot robot) {
+                reflect(robot, impactNx[i], impactNy[i]);
+                robot.onCollision(impactOther[i]);
+            }
+            arena.getWorld().relocate(item);
+            arena.wake(impactOther[i]); // A sleeping item that was hit wakes up
+            impactOther[i] = null;
+        }
+    }
+
+    /**
+     * Finds when two moving circles first touch during the tick.
+     * Sets the impact normal to point from the first circle into the second.
+     *
+     * @param a the first circle
+     * @param b the second circle
+     * @return the time of impact as a fraction of the tick, or NO_IMPACT
+     */
+    private double sweepCircleCircle(Item a, Item b) {
+        // Work in b's frame: a moves relative to a resting b
+        double px = a.prevX - b.prevX;
+        double py = a.prevY - b.prevY;
+        double vx = (a.x - a.prevX) - (b.x - b.prevX);
+        double vy = (a.y - a.prevY) - (b.y - b.prevY);
+        double radii = a.radius + b.radius;
+
+        double c = px * px + py * py - radii * radii;
+        double vv = vx * vx + vy * vy;
+        double pv = px * vx + py * vy;
+        if (c <= 0 || vv < 1e-12 || pv >= 0) {
+            return NO_IMPACT; // Already overlapping (left to the overlap test), still, or separating
+        }
+        double disc = pv * pv - vv * c;
+        if (disc < 0) {
+            return NO_IMPACT; // Paths miss each other
+        }
+        double t = (-pv - Math.sqrt(disc)) / vv;
+        if (t > 1) {
+            return NO_IMPACT; // Would only touch after this tick
+        }
+        double nx = -(px + vx * t);
+        double ny = -(py + vy * t);
+        double length = Math.sqrt(nx * nx + ny * ny);
+        hitNx = nx / length;
+        hitNy = ny / length;
+        return t;
+    }
+
+    /**
+     * Finds when a moving circle first touches a square during the tick, by casting the circle's
+     * centre against the square expanded by the circle's radius, with rounded corners.
+     * Sets the impact normal to point from the circle into the square.
+     *
+     * @param circle the circle
+     * @param box the square, centred on its position with half-size equal to its radius
+     * @return the time of impact as a fraction of the tick, or NO_IMPACT
+     */
+    private double sweepCircleBox(Item circle, Item box) {
+        double half = box.radius;
+        double r = circle.radius;
+        double px = circle.prevX - box.prevX;
+        double py = circle.prevY - box.prevY;
+        double vx = (circle.x - circle.prevX) - (box.x - box.prevX);
+        double vy = (circle.y - circle.prevY) - (box.y - box.prevY);
+
+        // Already touching at the start of the tick: left to the overlap test
+        double ox = px - Math.max(-half, Math.min(half, px));
+        double oy = py - Math.max(-half, Math.min(half, py));
+        if (ox * ox + oy * oy <= r * r) {
+            return NO_IMPACT;
+        }
+
+        // Slab test against the square expanded by the radius
+        double expanded = half + r;
+        double tEnter = 0, tExit = 1;
+        double nx = 0, ny = 0;
+        if (Math.abs(vx) < 1e-12) {
+            if (Math.abs(px) > expanded) {
+                return NO_IMPACT;
+            }
+        } else {
+            double t1 = (-expanded - px) / vx;
+            double t2 = (expanded - px) / vx;
+            double near = Math.min(t1, t2);
+            if (near > tEnter) {
+                tEnter = near;
+                nx = vx > 0 ? 1 : -1;
+                ny = 0;
+            }
+            tExit = Math.min(tExit, Math.max(t1, t2));
+        }
+        if (Math.abs(vy) < 1e-12) {
+            if (Math.abs(py) > expanded) {
+                return NO_IMPACT;
+            }
+        } else {
+            double t1 = (-expanded - py) / vy;
+            double t2 = (expanded - py) / vy;
+            double near = Math.min(t1, t2);
+            if (near > tEnter) {
+                tEnter = near;
+                nx = 0;
+                ny = vy > 0 ? 1 : -1;
+            }
+            tExit = Math.min(tExit, Math.max(t1, t2));
+        }
+        if (tEnter > tExit) {
+            return NO_IMPACT;
+        }
+
+        double hx = px + vx * tEnter;
+        double hy = py + vy * tEnter;
+        if (Math.abs(hx) > half && Math.abs(hy) > half) {
+            // Entered the expanded square in a corner region: test against the rounded corner
+            double cx = hx > 0 ? half : -half;
+            double cy = hy > 0 ? half : -half;
+            double qx = px - cx;
+            double qy = py - cy;
+            double vv = vx * vx + vy * vy;
+            double qv = qx * vx + qy * vy;
+            double disc = qv * qv - vv * (qx * qx + qy * qy - r * r);
+            if (disc < 0) {
+                return NO_IMPACT; // Passes the corner without touching it
+            }
+            double t = (-qv - Math.sqrt(disc)) / vv;
+            if (t < 0 || t > 1) {
+                return NO_IMPACT;
+            }
+            hitNx = -(qx + vx * t) / r;
+            hitNy = -(qy + vy * t) / r;
+            return t;
+        }
+        hitNx = nx;
+        hitNy = ny;
+        return tEnter;
+    }
+
+    /**
+     * Insertion sort by left edge. Close to linear because the order barely changes between ticks.
+     */
+    private void sortByMinX() {
+        for (int i = 1; i < count; i++) {
+            Item item = items[i];
+            double key = minX[i];
+            int j = i - 1;
+            while (j >= 0 && minX[j] > key) {
+                items[j + 1] = items[j];
+                minX[j + 1] = minX[j];
+                j--;
+            }
+            items[j + 1] = item;
+            minX[j + 1] = key;
+        }
+    }
+
+    /**
+     * Sweeps the sorted array and runs the narrow phase on every pair whose x-extents overlap,
+     * then on every moving item and the static and sleeping items around it.
+     */
+    private void findContacts() {
+        contactCount = 0;
+        for (int i = 0; i < count; i++) {
+            Item a = items[i];
+            for (int j = i + 1; j < count && minX[j] <= maxX[i]; j++) {
+                testContact(a, items[j]);
+            }
+            for (Item b : findNearby(a.x, a.y, a.radius)) {
+                testContact(a, b);
+            }
+        }
+    }
+
+    /**
+     * Runs the narrow phase on one pair.
+     *
+     * @param a the first item
+     * @param b the second item
+     */
+    private void testContact(Item a, Item b) {
+        if (!moved(a) && !moved(b)) {
+            return; // Neither item moved this tick, so they cannot have come into contact
+        }
+        if (Math.abs(a.y - b.y) > a.radius + b.radius) {
+            return; // No overlap along the y-axis
+        }
+        if (a.isBox()) {
+            if (!b.isBox()) {
+                testCircleBox(b, a);
+            }
+        } else if (b.isBox()) {
+            testCircleBox(a, b);
+        } else {
+            testCircleCircle(a, b);
+        }
+    }
+
+    /**
+     * Tests two circles for overlap and records a contact pointing from the first to the second.
+     *
+     * @param a the first circle
+     * @param b the second circle
+     */
+    private void testCircleCircle(Item a, Item b) {
+        double dx = b.x - a.x;
+        double dy = b.y - a.y;
+        double radii = a.radius + b.radius;
+        double distSq = dx * dx + dy * dy;
+        if (distSq >= radii * radii) {
+            return;
+        }
+        double dist = Math.sqrt(distSq);
+        if (dist > 1e-9) {
+            addContact(a, b, dx / dist, dy / dist, radii - dist);
+        } else {
+            addContact(a, b, 1, 0, radii); // Exactly on top of each other: pick any axis
+        }
+    }
+
+    /**
+     * Tests a circle against an axis-aligned square and records a contact pointing from the
+     * square to the circle.
+     *
+     * @param circle the circle
+     * @param box the square, centred on its position with half-size equal to its radius
+     */
+    private void testCircleBox(Item circle, Item box) {
+        double half = box.radius;
+        double dx = circle.x - box.x;
+        double dy = circle.y - box.y;
+        double closestX = Math.max(-half, Math.min(half, dx));
+        double closestY = Math.max(-half, Math.min(half, dy));
+
+        if (closestX != dx || closestY != dy) {
+            // Centre outside the box: push away from the closest point on its edge
+            double ox = dx - closestX;
+            double oy = dy - closestY;
+            double distSq = ox * ox + oy * oy;
+            if (distSq >= circle.radius * circle.radius) {
+                return;
+            }
+            double dist = Math.sqrt(distSq);
+            addContact(box, circle, ox / dist, oy / dist, circle.radius - dist);
+        } else {
+            // Centre inside the box: push out through the nearest face
+            double penX = half - Math.abs(dx);
+            double penY = half - Math.abs(dy);
+            if (penX < penY) {
+                addContact(box, circle, dx < 0 ? -1 : 1, 0, penX + circle.radius);
+            } else {
+                addContact(box, circle, 0, dy < 0 ? -1 : 1, penY + circle.radius);
+            }
+        }
+    }
+
+    /**
+     * Records a contact.
+     *
+     * @param a the first item
+     * @param b the second item
+     * @param nx x-component of the unit normal pointing from a to b
+     * @param ny y-component of the unit normal pointing from a to b
+     * @param depth the overlap along the normal
+     */
+    private void addContact(Item a, Item b, double nx, double ny, double depth) {
+        if (contactCount == contactA.length) {
+            int size = contactCount * 2;
+            contactA = Arrays.copyOf(contactA, size);
+            contactB = Arrays.copyOf(contactB, size);
+            contactNx = Arrays.copyOf(contactNx, size);
+            contactNy = Arrays.copyOf(contactNy, size);
+            contactDepth = Arrays.copyOf(contactDepth, size);
+        }
+        contactA[contactCount] = a;
+        contactB[contactCount] = b;
+        contactNx[contactCount] = nx;
+        contactNy[contactCount] = ny;
+        contactDepth[contactCount] = depth;
+        contactCount++;
+    }
+
+    /**
+     * Separates every contact pair and turns robots away from what they hit.
+     */
+    private void resolveContacts() {
+        for (int c = 0; c < contactCount; c++) {
+            Item a = contactA[c];
+            Item b = contactB[c];
+            double nx = contactNx[c];
+            double ny = contactNy[c];
+            double depth = contactDepth[c];
+
+            // Split the correction between the items that can move
+            double shareA = a.isStatic() ? 0 : b.isStatic() ? 1 : 0.5;
+            double shareB = 1 - shareA;
+            a.x -= nx * depth * shareA;
+            a.y -= ny * depth * shareA;
+            b.x += nx * depth * shareB;
+            b.y += ny * depth * shareB;
+
+            if (a instanceof Robot robot) {
+                reflect(robot, nx, ny); // a is pushed against the normal
+                robot.onCollision(b);
+            }
+            if (b instanceof Robot robot) {
+                reflect(robot, -nx, -ny); // b is pushed along the normal
+                robot.onCollision(a);
+            }
+
+            // Keep the chunk index in step with the corrected positions, and wake pushed sleepers
+            if (shareA > 0) {
+                arena.getWorld().relocate(a);
+                arena.wake(a);
+            }
+            if (shareB > 0) {
+                arena.getWorld().relocate(b);
+                arena.wake(b);
+            }
+            contactA[c] = null;
+            contactB[c] = null;
+        }
+    }
+
+    /**
+     * Checks whether an item may have moved this tick: it is active, or it moved before falling asleep.
+     *
+     * @param item the item
+     * @return true if the item may have moved
+     */
+    private static boolean moved(Item item) {
+        return item.activeIndex >= 0 || item.x != item.prevX || item.y != item.prevY;
+    }
+
+    /**
+     * Reflects a robot's direction if it is heading into a contact.
+     *
+     * @param robot the robot
+     * @param nx x-component of the contact normal, pointing into the other item
+     * @param ny y-component of the contact normal, pointing into the other item
+     */
+    private static void reflect(Robot robot, double nx, double ny) {
+        double dirX = robot.headingX();
+        double dirY = robot.headingY();
+        double dot = dirX * nx + dirY * ny;
+        if (dot > 0) {
+            robot.direction = Math.atan2(dirY - 2 * dot * ny, dirX - 2 * dot * nx);
+        }
+    }
+}
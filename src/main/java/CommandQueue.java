@@ -0,0 +1,70 @@
+package ok;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A lock-free queue of {@link ArenaCommand}s with any number of posting threads and a single
+ * thread applying them.
+ *
+ * <p>
+ * The queue is a linked list. Posting swaps the new node into the tail with one atomic exchange and
+ * then links the previous tail to it, so a post never waits for another thread and never retries.
+ * Only the applying thread reads the head. Between the exchange and the link, a node is briefly
+ * unreachable from the head; the applying thread stops there and finds the node on its next pass,
+ * still in order. Commands from one thread are applied in the order they were posted.
+ * </p>
+ */
+class CommandQueue {
+    private Node head = new Node(null);                   // Last node consumed, owned by the applying thread
+    private final AtomicReference<Node> tail = new AtomicReference<>(head); // Last node posted
+
+    /**
+     * A posted command and the link to the next one.
+     */
+    private static final class Node {
+        ArenaCommand command;       // The command, or null once it has been taken
+        volatile Node next;         // The node posted after this one, or null if none is linked yet
+
+        /**
+         * Creates a node.
+         *
+         * @param command the command it holds
+         */
+        Node(ArenaCommand command) {
+            this.command = command;
+        }
+    }
+
+    /**
+     * Adds a command at the tail of the queue. Safe to call from any thread.
+     *
+     * @param command the command
+     */
+    void post(ArenaCommand command) {
+        Node node = new Node(command);
+        tail.getAndSet(node).next = node;
+    }
+
+    /**
+     * Applies the commands posted before the call, oldest first. Commands they post in turn are left
+     * for the next call, so a command that reposts itself cannot keep the loop running. Must only
+     * be called by one thread at a time. Should a command throw, the exception propagates and the
+     * commands after it stay queued.
+     *
+     * @param arena the Arena the commands apply to
+     * @return the number of commands applied
+     */
+    int apply(Arena arena) {
+        Node last = tail.get(); // Newest command posted before the call
+        int applied = 0;
+        Node node = head;
+        while (node != last && (node = head.next) != null) {
+            head = node;
+            ArenaCommand command = node.command;
+            node.command = null; // The node stays as the head, the command need not
+            applied++;
+            command.apply(arena);
+        }
+        return applied;
+    }
+}
@@ -0,0 +1,70 @@
+package ok;
+
+/**
+ * The result of a cone query: the nearest item inside the cone, its distance and its bearing.
+ * Instances are meant to be reused from one query to the next to avoid allocation.
+ */
+public class ConeHit {
+    private Item item;       // Nearest item inside the cone, or null if none was found
+    private double distance; // Distance from the apex to the item's centre
+    private double bearing;  // Angle of the item relative to the cone's heading, in radians
+
+    /**
+     * Clears the result before a new query.
+     */
+    void reset() {
+        item = null;
+        distance = Double.POSITIVE_INFINITY;
+        bearing = 0;
+    }
+
+    /**
+     * Records the nearest item found by a query.
+     *
+     * @param item the item
+     * @param distance the distance from the apex
+     * @param bearing the angle relative to the heading
+     */
+    void set(Item item, double distance, double bearing) {
+        this.item = item;
+        this.distance = distance;
+        this.bearing = bearing;
+    }
+
+    /**
+     * Checks whether the query found an item.
+     *
+     * @return true if an item was found inside the cone
+     */
+    public boolean isHit() {
+        return item != null;
+    }
+
+    /**
+     * Gets the nearest item inside the cone.
+     *
+     * @return the item, or null if none was found
+     */
+    public Item getItem() {
+        return item;
+    }
+
+    /**
+     * Gets the distance from the apex to the nearest item.
+     *
+     * @return the distance, or positive infinity if nothing was found
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    /**
+     * Gets the angle of the nearest item relative to the cone's heading.
+     * Positive angles are counter-clockwise in world coordinates, which is clockwise on screen.
+     *
+     * @return the bearing in radians, between -pi and pi
+     */
+    public double getBearing() {
+        return bearing;
+    }
+}
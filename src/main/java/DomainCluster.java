@@ -0,0 +1,192 @@
+package ok;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs a distributed simulation on one machine and checks it against a single-process run.
+ *
+ * <p>
+ * The cluster starts one {@link DomainNode} process per region, all on the same JVM and module path
+ * as the cluster itself, linked by Unix domain sockets in a temporary directory. Meanwhile it runs
+ * the same scenario in its own process. Once every node has finished, the state of each moving item
+ * is compared bit for bit with the single-process run. Robots spawned during the run (see
+ * {@link DomainNode#spawnWave(Map, Arena, ScenarioTemplate.Region)}) are added to the single-process
+ * run under the handles their nodes give them.
+ * </p>
+ */
+public class DomainCluster {
+    /**
+     * Utility class, not meant to be instantiated.
+     */
+    private DomainCluster() {
+    }
+
+    /**
+     * Starts the node processes, runs the reference simulation and compares the results.
+     * Usage: {@code DomainCluster <columns> <rows> <ticks> [NAME=value ...]}, with the parameters
+     * of {@link DomainNode#main(String[])}. Exits with status 1 if any item differs.
+     *
+     * @param args the command-line arguments
+     * @throws Exception if a node cannot be started or fails
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: DomainCluster <columns> <rows> <ticks> [NAME=value ...]");
+            System.exit(1);
+        }
+        int columns = Integer.parseInt(args[0]);
+        int rows = Integer.parseInt(args[1]);
+        int ticks = Integer.parseInt(args[2]);
+        List<String> parameters = Arrays.asList(args).subList(3, args.length);
+        Path directory = Files.createTempDirectory("domains");
+
+        long start = System.nanoTime();
+        List<Process> nodes = new ArrayList<>();
+        for (int i = 0; i < columns * rows; i++) {
+            List<String> command = nodeCommand();
+            command.addAll(List.of(directory.toString(), Integer.toString(i), args[0], args[1], args[2]));
+            command.addAll(parameters);
+            nodes.add(new ProcessBuilder(command)
+                    .redirectOutput(output(directory, i))
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start());
+        }
+
+        Map<Long, String> expected = runReference(ticks, columns, rows, DomainNode.parseParameters(args, 3));
+        double referenceSeconds = (System.nanoTime() - start) / 1e9;
+
+        Map<Long, String> actual = new HashMap<>();
+        int duplicates = 0;
+        for (int i = 0; i < nodes.size(); i++) {
+            int status = nodes.get(i).waitFor();
+            if (status != 0) {
+                throw new IOException("Node " + i + " failed with status " + status);
+            }
+            for (String line : Files.readAllLines(output(directory, i).toPath())) {
+                String[] fields = line.split(" ", 2);
+                if (actual.put(Long.parseLong(fields[0]), fields[1]) != null) {
+                    duplicates++;
+                }
+            }
+            Files.delete(output(directory, i).toPath());
+        }
+        double clusterSeconds = (System.nanoTime() - start) / 1e9;
+        Files.deleteIfExists(directory);
+
+        int identical = 0;
+        double maxDistance = 0;
+        for (Map.Entry<Long, String> entry : expected.entrySet()) {
+            String state = actual.get(entry.getKey());
+            if (entry.getValue().equals(state)) {
+                identical++;
+            } else if (state != null) {
+                double[] a = position(entry.getValue());
+                double[] b = position(state);
+                maxDistance = Math.max(maxDistance, Math.hypot(a[0] - b[0], a[1] - b[1]));
+            }
+        }
+        int missing = 0;
+        for (Long handle : expected.keySet()) {
+            if (!actual.containsKey(handle)) {
+                missing++;
+            }
+        }
+
+        System.out.printf("%d items after %d ticks on %d x %d nodes (%.1f s, reference included)%n",
+                expected.size(), ticks, columns, rows, clusterSeconds);
+        System.out.printf("Reference run: %.1f s%n", referenceSeconds);
+        System.out.printf("Identical: %d, different: %d (largest distance %.3g), missing: %d, "
+                        + "duplicated: %d, unexpected: %d%n",
+                identical, expected.size() - identical - missing, maxDistance, missing, duplicates,
+                actual.size() - (expected.size() - missing));
+        if (identical != expected.size() || actual.size() != expected.size() || duplicates > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Builds the command starting a node on the same Java runtime and module or class path as
+     * this process.
+     *
+     * @return the command, to which the node's arguments are appended
+     */
+    private static List<String> nodeCommand() {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        String modulePath = System.getProperty("jdk.module.path");
+        if (modulePath != null) {
+            command.addAll(List.of("--module-path", modulePath, "-m",
+                    DomainNode.class.getModule().getName() + "/" + DomainNode.class.getName()));
+        } else {
+            command.addAll(List.of("-cp", System.getProperty("java.class.path"), DomainNode.class.getName()));
+        }
+        return command;
+    }
+
+    /**
+     * Gets the file a node's output is redirected to.
+     *
+     * @param directory the cluster's temporary directory
+     * @param index the index of the node
+     * @return the output file
+     */
+    private static File output(Path directory, int index) {
+        return directory.resolve("node-" + index + ".out").toFile();
+    }
+
+    /**
+     * Runs the scenario in this process and records the final state of every moving item,
+     * in the format printed by the nodes.
+     *
+     * @param ticks the number of ticks to run
+     * @param columns the number of regions across
+     * @param rows the number of regions down
+     * @param parameters the scenario parameters
+     * @return the state of each moving item, keyed by handle
+     */
+    private static Map<Long, String> runReference(int ticks, int columns, int rows, Map<String, Double> parameters) {
+        Arena arena = new StandardScenario().create(parameters);
+        int spawnTick = (int) (double) parameters.getOrDefault("SPAWN_TICK", ticks / 2.0);
+        for (int t = 0; t < ticks; t++) {
+            if (t == spawnTick) {
+                // Use the slot the owning node takes from its share, see DomainNode.spawn
+                int base = arena.getSlotCount();
+                int[] spawned = new int[columns * rows];
+                for (Robot robot : DomainNode.spawnWave(parameters, arena, ScenarioTemplate.Region.EVERYWHERE)) {
+                    int owner = DomainNode.ownerOf(arena.getWidth(), arena.getHeight(), columns, rows, robot.x, robot.y);
+                    arena.addObject(robot, EntityHandle.of(base + owner + columns * rows * spawned[owner]++, 0));
+                }
+            }
+            arena.update();
+        }
+        Map<Long, String> states = new HashMap<>();
+        for (Item obj : arena.getObjects()) {
+            if (!obj.isStatic()) {
+                states.put(obj.getHandle(), DomainNode.formatState(obj));
+            }
+        }
+        return states;
+    }
+
+    /**
+     * Reads the position back from a recorded state, whose first two values are x and y.
+     *
+     * @param state the recorded state
+     * @return the x and y coordinates
+     */
+    private static double[] position(String state) {
+        String[] values = state.split(" ");
+        return new double[] {
+                Double.longBitsToDouble(Long.parseUnsignedLong(values[0], 16)),
+                Double.longBitsToDouble(Long.parseUnsignedLong(values[1], 16))
+        };
+    }
+}
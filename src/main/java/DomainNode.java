@@ -0,0 +1,703 @@
+package ok;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.Constructor;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * One process of a distributed simulation. The Arena is cut into a grid of equal rectangular
+ * regions, and each node owns the moving items whose centre lies in its region. Static items are
+ * kept by every node.
+ *
+ * <p>
+ * Each node builds only its share of the world from the scenario (see
+ * {@link ScenarioTemplate#create(Map, ScenarioTemplate.Region)}): the static items and the moving
+ * items placed in its region, under the handles they would have in the full world. An item keeps
+ * its handle wherever it goes, so handles identify items across processes. Only an item's class
+ * name and checkpoint state (see {@link Item#saveState(double[], int)}) travel between nodes, and
+ * the receiving node builds its own copy of the item from them, so the checkpoint must hold
+ * everything that affects how an item behaves.
+ * </p>
+ *
+ * <p>
+ * Items may be added while the cluster runs with {@link #spawn(Item)}. Each node hands out the
+ * slots of its own share of the slot numbers beyond the initial world, so handles stay unique.
+ * </p>
+ *
+ * <p>
+ * Nodes whose regions lie within the halo width of each other are linked by a Unix domain socket,
+ * and exchange three messages per tick:
+ * </p>
+ * <ol>
+ *   <li>Before the items are updated, every item within the halo of a neighbour's region is sent to
+ *       it as a ghost: a copy that the neighbour senses and collides with but never updates.</li>
+ *   <li>Once the items have moved, the new state of those ghosts is sent again, so both sides resolve
+ *       the collisions across the border from the same positions.</li>
+ *   <li>Once collisions are resolved, items that left the region migrate to their new owner.</li>
+ * </ol>
+ *
+ * <p>
+ * The halo must be wider than the longest range at which a robot senses or keeps a target, so every
+ * item that can affect an owned item is present as a ghost. Each item then goes through exactly the
+ * steps it would in a single process, and a run ends in the same state as a single-process run of
+ * the same seed (see {@link DomainCluster}).
+ * </p>
+ */
+public class DomainNode implements AutoCloseable {
+    public static final double DEFAULT_HALO = 200; // Default halo width, beyond the default sensing ranges
+    private static final long CONNECT_TIMEOUT = 30_000; // Milliseconds to wait for a neighbour to start listening
+
+    private final Arena arena;       // The node's part of the world, with ghosts
+    private final int index;         // Index of the node's region, row by row
+    private final int columns, rows; // Number of regions across and down
+    private final double halo;       // Width of the border shared with each neighbour
+    private final double regionWidth, regionHeight; // Size of one region
+    private final List<Link> links = new ArrayList<>(); // Connections to the neighbours
+    private final Map<String, Constructor<? extends Item>> constructors = new HashMap<>(); // Builds arriving items, by class name
+    private final Set<Item> refreshed = new HashSet<>(); // Ghosts sent again in the current halo exchange
+    private ExecutorService senders;  // Writes the messages to the neighbours while this node reads
+    private double[] state = new double[16]; // Buffer for one item's checkpoint state
+
+    /**
+     * A connection to a neighbouring node.
+     */
+    private static class Link {
+        final int peer;                 // Index of the neighbour
+        final SocketChannel channel;    // Socket to the neighbour
+        final DataInputStream in;       // Messages from the neighbour
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(); // Next message to the neighbour
+        final DataOutputStream message = new DataOutputStream(bytes);    // Writes into the next message
+        final List<Item> sent = new ArrayList<>(); // Items sent in the current round
+        double minX, minY, maxX, maxY;  // The neighbour's region, widened by the halo
+
+        Link(int peer, SocketChannel channel) {
+            this.peer = peer;
+            this.channel = channel;
+            in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+        }
+
+        /**
+         * Checks whether an item lies in the neighbour's region or its halo.
+         */
+        boolean covers(Item obj) {
+            return obj.x >= minX && obj.x < maxX && obj.y >= minY && obj.y < maxY;
+        }
+    }
+
+    /**
+     * Builds the node's share of the world: the static items and the moving items in its region.
+     *
+     * @param template the scenario, built with the same parameters on every node
+     * @param parameters the parameter values of the scenario
+     * @param index the index of the node's region, counting row by row from the top left
+     * @param columns the number of regions across
+     * @param rows the number of regions down
+     * @param halo the width of the border whose items are copied to the neighbours
+     */
+    public DomainNode(ScenarioTemplate template, Map<String, Double> parameters,
+                      int index, int columns, int rows, double halo) {
+        if (index < 0 || index >= columns * rows) {
+            throw new IllegalArgumentException("Region " + index + " is outside the grid");
+        }
+        this.index = index;
+        this.columns = columns;
+        this.rows = rows;
+        this.halo = halo;
+        arena = template.create(parameters, region(index, columns, rows));
+        arena.applyPendingChanges();
+        arena.shareSlots(index, columns * rows);
+        regionWidth = arena.getWidth() / columns;
+        regionHeight = arena.getHeight() / rows;
+    }
+
+    /**
+     * Connects to every neighbour through Unix domain sockets in a shared directory. Each node
+     * listens on its own socket and connects to the neighbours with a lower index, so every node
+     * can be started at the same time.
+     *
+     * @param directory the directory holding the sockets of all nodes
+     * @throws IOException if a neighbour cannot be reached
+     */
+    public void connect(Path directory) throws IOException {
+        List<Integer> peers = neighbours();
+        Path own = directory.resolve("node-" + index + ".sock");
+        Files.deleteIfExists(own);
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(own));
+            for (int peer : peers) {
+                if (peer < index) {
+                    SocketChannel channel = dial(directory.resolve("node-" + peer + ".sock"));
+                    DataOutputStream hello = new DataOutputStream(Channels.newOutputStream(channel));
+                    hello.writeInt(index);
+                    hello.flush();
+                    addLink(peer, channel);
+                }
+            }
+            for (int peer : peers) {
+                if (peer > index) {
+                    SocketChannel channel = server.accept();
+                    addLink(new DataInputStream(Channels.newInputStream(channel)).readInt(), channel);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(own);
+        }
+        senders = Executors.newFixedThreadPool(Math.max(1, links.size()), task -> {
+            Thread thread = new Thread(task, "domain-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Connects to a neighbour's socket, retrying until the neighbour has started listening.
+     *
+     * @param address the path of the neighbour's socket
+     * @return the connected channel
+     * @throws IOException if the neighbour is still not listening after the timeout
+     */
+    private static SocketChannel dial(Path address) throws IOException {
+        long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT;
+        while (true) {
+            SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+            try {
+                channel.connect(UnixDomainSocketAddress.of(address));
+                return channel;
+            } catch (IOException ex) {
+                channel.close();
+                if (System.currentTimeMillis() > deadline) {
+                    throw ex;
+                }
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while connecting to " + address, interrupted);
+                }
+            }
+        }
+    }
+
+    /**
+     * Registers the connection to a neighbour and works out which items it needs as ghosts.
+     *
+     * @param peer the index of the neighbour
+     * @param channel the connected channel
+     */
+    private void addLink(int peer, SocketChannel channel) {
+        Link link = new Link(peer, channel);
+        link.minX = (peer % columns) * regionWidth - halo;
+        link.minY = (peer / columns) * regionHeight - halo;
+        link.maxX = (peer % columns + 1) * regionWidth + halo;
+        link.maxY = (peer / columns + 1) * regionHeight + halo;
+        links.add(link);
+    }
+
+    /**
+     * Lists the regions within the halo width of this node's region.
+     *
+     * @return the indices of the neighbouring regions
+     */
+    private List<Integer> neighbours() {
+        int column = index % columns;
+        int row = index / columns;
+        int reachX = (int) Math.ceil(halo / regionWidth);
+        int reachY = (int) Math.ceil(halo / regionHeight);
+        List<Integer> peers = new ArrayList<>();
+        for (int r = Math.max(0, row - reachY); r <= Math.min(rows - 1, row + reachY); r++) {
+            for (int c = Math.max(0, column - reachX); c <= Math.min(columns - 1, column + reachX); c++) {
+                if (r != row || c != column) {
+                    peers.add(r * columns + c);
+                }
+            }
+        }
+        return peers;
+    }
+
+    /**
+     * Finds the region an item's centre lies in. Items outside the Arena belong to the nearest region.
+     *
+     * @param obj the item
+     * @return the index of the region
+     */
+    private int ownerOf(Item obj) {
+        return ownerOf(arena.getWidth(), arena.getHeight(), columns, rows, obj.x, obj.y);
+    }
+
+    /**
+     * Finds the region a position lies in, in an Arena cut into a grid of regions. Positions outside
+     * the Arena belong to the nearest region.
+     *
+     * @param width the width of the Arena
+     * @param height the height of the Arena
+     * @param columns the number of regions across
+     * @param rows the number of regions down
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @return the index of the region, counting row by row from the top left
+     */
+    static int ownerOf(double width, double height, int columns, int rows, double x, double y) {
+        int column = Math.max(0, Math.min(columns - 1, (int) Math.floor(x / (width / columns))));
+        int row = Math.max(0, Math.min(rows - 1, (int) Math.floor(y / (height / rows))));
+        return row * columns + column;
+    }
+
+    /**
+     * Gets a region of an Arena cut into a grid of regions.
+     *
+     * @param index the index of the region, counting row by row from the top left
+     * @param columns the number of regions across
+     * @param rows the number of regions down
+     * @return the region
+     */
+    static ScenarioTemplate.Region region(int index, int columns, int rows) {
+        return (world, x, y) -> ownerOf(world.getWidth(), world.getHeight(), columns, rows, x, y) == index;
+    }
+
+    /**
+     * Adds an item to the node's region between two steps, while the cluster runs. The item gets a
+     * slot from the node's share of the slot numbers, so its handle is unique across the cluster.
+     * The node whose region holds the k-th item spawned by node i gives it slot
+     * {@code base + i + k * nodes}, where {@code base} is the slot count of the initial world.
+     *
+     * @param obj the item to add
+     * @return the handle of the item
+     * @throws IllegalArgumentException if the item lies outside the node's region
+     */
+    public long spawn(Item obj) {
+        if (ownerOf(obj) != index) {
+            throw new IllegalArgumentException(obj + " lies outside region " + index);
+        }
+        return arena.addObject(obj);
+    }
+
+    /**
+     * Advances the node's part of the world by one tick, in step with its neighbours.
+     *
+     * @throws IOException if a neighbour cannot be reached
+     */
+    public void step() throws IOException {
+        exchangeGhosts();
+        arena.moveItems();
+        exchangeMoves();
+        arena.finishTick();
+        migrate();
+    }
+
+    /**
+     * Sends every owned item within a neighbour's halo to it, and replaces the ghosts of this node
+     * with the items the neighbours sent. Ghosts that were not sent again have left the halo.
+     *
+     * @throws IOException if a neighbour cannot be reached
+     */
+    private void exchangeGhosts() throws IOException {
+        for (Link link : links) {
+            link.sent.clear();
+        }
+        for (Item obj : arena.getObjects()) {
+            if (!obj.isStatic() && !obj.ghost) {
+                for (Link link : links) {
+                    if (link.covers(obj)) {
+                        link.sent.add(obj);
+                    }
+                }
+            }
+        }
+        for (Link link : links) {
+            link.bytes.reset();
+            link.message.writeInt(link.sent.size());
+            for (Item obj : link.sent) {
+                writeItem(link.message, obj, true);
+            }
+        }
+
+        refreshed.clear();
+        exchange(in -> {
+            Item obj = readItem(in, true);
+            if (!obj.ghost) {
+                throw new IllegalStateException("Ghost of " + obj + " is owned here");
+            }
+            obj.prevX = obj.x;
+            obj.prevY = obj.y;
+            arena.reindex(obj);
+            refreshed.add(obj);
+        });
+
+        List<Item> stale = new ArrayList<>();
+        for (Item obj : arena.getObjects()) {
+            if (obj.ghost && !refreshed.contains(obj)) {
+                stale.add(obj);
+            }
+        }
+        for (Item obj : stale) {
+            arena.removeObject(obj); // Dropped; the item is built again if it comes back
+        }
+        refreshed.clear();
+    }
+
+    /**
+     * Sends the moved state of the items sent as ghosts at the start of the tick, and updates this
+     * node's ghosts with their owners' moves, before collisions are resolved.
+     *
+     * @throws IOException if a neighbour cannot be reached
+     */
+    private void exchangeMoves() throws IOException {
+        for (Link link : links) {
+            link.bytes.reset();
+            link.message.writeInt(link.sent.size());
+            for (Item obj : link.sent) {
+                writeItem(link.message, obj, false);
+                link.message.writeDouble(obj.prevX);
+                link.message.writeDouble(obj.prevY);
+            }
+        }
+        exchange(in -> {
+            Item obj = readItem(in, false);
+            if (!obj.ghost) {
+                throw new IllegalStateException("Moved item " + obj + " is not a ghost here");
+            }
+            obj.prevX = in.readDouble();
+            obj.prevY = in.readDouble();
+            arena.reindex(obj);
+        });
+    }
+
+    /**
+     * Hands the items that left the region to the neighbours now owning them, and takes over the
+     * items that entered it.
+     *
+     * @throws IOException if a neighbour cannot be reached
+     */
+    private void migrate() throws IOException {
+        for (Link link : links) {
+            link.sent.clear();
+        }
+        List<Item> leaving = new ArrayList<>();
+        for (Item obj : arena.getObjects()) {
+            if (!obj.isStatic() && !obj.ghost) {
+                int owner = ownerOf(obj);
+                if (owner != index) {
+                    linkTo(owner).sent.add(obj);
+                    leaving.add(obj);
+                }
+            }
+        }
+        for (Link link : links) {
+            link.bytes.reset();
+            link.message.writeInt(link.sent.size());
+            for (Item obj : link.sent) {
+                writeItem(link.message, obj, true);
+            }
+        }
+        for (Item obj : leaving) {
+            arena.removeObject(obj);
+        }
+
+        exchange(in -> {
+            Item obj = readItem(in, true);
+            if (!obj.ghost) {
+                throw new IllegalStateException("Migrant " + obj + " is already owned here");
+            }
+            obj.ghost = false;
+            obj.prevX = obj.x;
+            obj.prevY = obj.y;
+            arena.reindex(obj);
+        });
+    }
+
+    /**
+     * Finds the link to a neighbour.
+     *
+     * @param peer the index of the neighbour
+     * @return the link
+     * @throws IllegalStateException if the region is not a neighbour, meaning an item moved further
+     *                               than the halo in one tick
+     */
+    private Link linkTo(int peer) {
+        for (Link link : links) {
+            if (link.peer == peer) {
+                return link;
+            }
+        }
+        throw new IllegalStateException("Region " + peer + " is not a neighbour of region " + index);
+    }
+
+    /**
+     * Something that reads one record of a message.
+     */
+    private interface RecordReader {
+        void read(DataInputStream in) throws IOException;
+    }
+
+    /**
+     * Sends the prepared message to every neighbour and reads theirs. Messages are written on the
+     * sender threads while this thread reads, so large messages cannot deadlock two nodes that
+     * write to each other at the same time.
+     *
+     * @param reader reads one record of an incoming message
+     * @throws IOException if a neighbour cannot be reached
+     */
+    private void exchange(RecordReader reader) throws IOException {
+        List<Future<?>> writes = new ArrayList<>();
+        for (Link link : links) {
+            writes.add(senders.submit(() -> {
+                ByteBuffer buffer = ByteBuffer.wrap(link.bytes.toByteArray());
+                while (buffer.hasRemaining()) {
+                    link.channel.write(buffer);
+                }
+                return null;
+            }));
+        }
+        for (Link link : links) {
+            for (int n = link.in.readInt(); n > 0; n--) {
+                reader.read(link.in);
+            }
+        }
+        for (Future<?> write : writes) {
+            try {
+                write.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while sending", ex);
+            } catch (ExecutionException ex) {
+                throw new IOException("Cannot send to a neighbour", ex.getCause());
+            }
+        }
+    }
+
+    /**
+     * Writes an item's handle, class name and checkpoint state.
+     *
+     * @param out the message to write into
+     * @param obj the item
+     * @param typed true to write the class name, for items the neighbour may not have yet
+     * @throws IOException never, for an in-memory message
+     */
+    private void writeItem(DataOutputStream out, Item obj, boolean typed) throws IOException {
+        int size = obj.getStateSize();
+        if (state.length < size) {
+            state = new double[size];
+        }
+        obj.saveState(state, 0);
+        out.writeLong(obj.getHandle());
+        if (typed) {
+            out.writeUTF(obj.getClass().getName());
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeDouble(state[i]);
+        }
+    }
+
+    /**
+     * Reads an item's handle and checkpoint state into this node's copy of the item.
+     * An item that is not in the Arena yet is built from its class name and added under its handle
+     * as a ghost.
+     *
+     * @param in the message to read from
+     * @param add true if the item may be new to this node, and the message names its class
+     * @return the item
+     * @throws IOException if the message cannot be read or names an item this node does not expect
+     */
+    private Item readItem(DataInputStream in, boolean add) throws IOException {
+        long handle = in.readLong();
+        String type = add ? in.readUTF() : null;
+        Item obj = arena.getObject(handle);
+        if (obj == null) {
+            if (!add) {
+                throw new IOException("Unexpected item " + handle);
+            }
+            obj = create(type);
+        }
+        int size = obj.getStateSize();
+        if (state.length < size) {
+            state = new double[size];
+        }
+        for (int i = 0; i < size; i++) {
+            state[i] = in.readDouble();
+        }
+        obj.restoreState(state, 0);
+        if (obj.getArena() == null) {
+            obj.ghost = true;
+            arena.addObject(obj, handle);
+        }
+        return obj;
+    }
+
+    /**
+     * Builds an item of a class with its {@code (x, y)} constructor, the one every item loaded from
+     * a saved file is built with. Its state is then restored from the checkpoint that came with it.
+     *
+     * @param type the fully qualified class name
+     * @return the new item
+     * @throws IOException if the class is not an item or cannot be built
+     */
+    private Item create(String type) throws IOException {
+        try {
+            Constructor<? extends Item> constructor = constructors.get(type);
+            if (constructor == null) {
+                constructor = Class.forName(type, false, Item.class.getClassLoader())
+                        .asSubclass(Item.class).getConstructor(double.class, double.class);
+                constructors.put(type, constructor);
+            }
+            return constructor.newInstance(0.0, 0.0);
+        } catch (ReflectiveOperationException | ClassCastException ex) {
+            throw new IOException("Cannot build an item of type " + type, ex);
+        }
+    }
+
+    /**
+     * Gets the node's part of the world, including the ghosts of its neighbours' border items.
+     *
+     * @return the Arena
+     */
+    public Arena getArena() {
+        return arena;
+    }
+
+    /**
+     * Writes the handle and checkpoint state of every item this node owns, one item per line, with
+     * each value as the hexadecimal bits of the double so that runs can be compared exactly.
+     *
+     * @param out the stream to write to
+     */
+    public void printOwned(PrintStream out) {
+        for (Item obj : arena.getObjects()) {
+            if (!obj.isStatic() && !obj.ghost) {
+                out.println(obj.getHandle() + " " + formatState(obj));
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Formats an item's checkpoint state as the hexadecimal bits of each value, separated by spaces.
+     *
+     * @param obj the item
+     * @return the formatted state
+     */
+    static String formatState(Item obj) {
+        double[] values = new double[obj.getStateSize()];
+        obj.saveState(values, 0);
+        StringBuilder line = new StringBuilder();
+        for (double value : values) {
+            line.append(line.isEmpty() ? "" : " ").append(Long.toHexString(Double.doubleToRawLongBits(value)));
+        }
+        return line.toString();
+    }
+
+    /**
+     * Closes the connections to the neighbours.
+     *
+     * @throws IOException if a connection cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (senders != null) {
+            senders.shutdownNow();
+        }
+        for (Link link : links) {
+            link.channel.close();
+        }
+    }
+
+    /**
+     * Parses {@code NAME=value} arguments into scenario parameters.
+     *
+     * @param args the command-line arguments
+     * @param from the index of the first parameter argument
+     * @return the parameter values, keyed by name
+     */
+    static Map<String, Double> parseParameters(String[] args, int from) {
+        Map<String, Double> parameters = new HashMap<>();
+        for (int i = from; i < args.length; i++) {
+            String[] pair = args[i].split("=", 2);
+            parameters.put(pair[0], Double.parseDouble(pair[1]));
+        }
+        return parameters;
+    }
+
+    /**
+     * Builds the robots spawned in the middle of a run of the standard scenario: {@code SPAWN} simple
+     * robots at positions and with seeds drawn from the scenario's {@code SEED}. Only those placed in
+     * a region are built, in the order they are drawn.
+     *
+     * @param parameters the scenario parameters
+     * @param arena the Arena the robots are spawned into
+     * @param region the region whose robots are built
+     * @return the robots placed in the region
+     */
+    static List<Robot> spawnWave(Map<String, Double> parameters, Arena arena, ScenarioTemplate.Region region) {
+        Random random = new Random(~(long) (double) parameters.getOrDefault("SEED", 0.0));
+        List<Robot> robots = new ArrayList<>();
+        for (int i = (int) (double) parameters.getOrDefault("SPAWN", 0.0); i > 0; i--) {
+            long seed = random.nextLong();
+            double x = random.nextDouble(arena.getWidth());
+            double y = random.nextDouble(arena.getHeight());
+            if (region.contains(arena, x, y)) {
+                Robot robot = new SimpleRobot(x, y);
+                robot.setSeed(seed);
+                robots.add(robot);
+            }
+        }
+        return robots;
+    }
+
+    /**
+     * Runs one node of the standard scenario, then prints the state of the items it owns.
+     * Usage: {@code DomainNode <directory> <index> <columns> <rows> <ticks> [NAME=value ...]}, where
+     * the directory holds the sockets of all nodes, {@code HALO} sets the halo width, {@code SPAWN}
+     * robots are spawned before tick {@code SPAWN_TICK} (by default halfway) and the other
+     * parameters are those of {@link StandardScenario}. Every node must get the same parameters.
+     *
+     * @param args the command-line arguments
+     * @throws Exception if a neighbour cannot be reached
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 5) {
+            System.err.println("Usage: DomainNode <directory> <index> <columns> <rows> <ticks> [NAME=value ...]");
+            System.exit(1);
+        }
+        Map<String, Double> parameters = parseParameters(args, 5);
+        double halo = parameters.getOrDefault("HALO", DEFAULT_HALO);
+        int index = Integer.parseInt(args[1]);
+        int columns = Integer.parseInt(args[2]);
+        int rows = Integer.parseInt(args[3]);
+        int ticks = Integer.parseInt(args[4]);
+        int spawnTick = (int) (double) parameters.getOrDefault("SPAWN_TICK", ticks / 2.0);
+        try (DomainNode node = new DomainNode(new StandardScenario(), parameters, index, columns, rows, halo)) {
+            node.connect(Path.of(args[0]));
+            for (int t = 0; t < ticks; t++) {
+                if (t == spawnTick) {
+                    for (Robot robot : spawnWave(parameters, node.getArena(), region(index, columns, rows))) {
+                        node.spawn(robot);
+                    }
+                }
+                node.step();
+            }
+            node.printOwned(System.out);
+        }
+    }
+}
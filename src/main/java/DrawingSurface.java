@@ -0,0 +1,131 @@
+package ok;
+
+import javafx.scene.paint.Paint;
+import javafx.scene.shape.ArcType;
+
+/**
+ * Something items can be drawn on: the JavaFX canvas of the application, or an offscreen
+ * {@link Framebuffer} for headless frame export. The methods mirror those of JavaFX's
+ * GraphicsContext, so rendering code reads the same whichever surface it draws on.
+ */
+public interface DrawingSurface {
+    /**
+     * Sets the paint used by the fill operations.
+     *
+     * @param paint the fill paint
+     */
+    void setFill(Paint paint);
+
+    /**
+     * Sets the paint used by the stroke operations.
+     *
+     * @param paint the stroke paint
+     */
+    void setStroke(Paint paint);
+
+    /**
+     * Sets the width of stroked lines.
+     *
+     * @param width the line width
+     */
+    void setLineWidth(double width);
+
+    /**
+     * Fills an oval inscribed in a rectangle.
+     *
+     * @param x the x-coordinate of the rectangle's left edge
+     * @param y the y-coordinate of the rectangle's top edge
+     * @param w the width of the rectangle
+     * @param h the height of the rectangle
+     */
+    void fillOval(double x, double y, double w, double h);
+
+    /**
+     * Strokes the outline of an oval inscribed in a rectangle.
+     *
+     * @param x the x-coordinate of the rectangle's left edge
+     * @param y the y-coordinate of the rectangle's top edge
+     * @param w the width of the rectangle
+     * @param h the height of the rectangle
+     */
+    void strokeOval(double x, double y, double w, double h);
+
+    /**
+     * Fills a rectangle.
+     *
+     * @param x the x-coordinate of the left edge
+     * @param y the y-coordinate of the top edge
+     * @param w the width
+     * @param h the height
+     */
+    void fillRect(double x, double y, double w, double h);
+
+    /**
+     * Strokes the outline of a rectangle.
+     *
+     * @param x the x-coordinate of the left edge
+     * @param y the y-coordinate of the top edge
+     * @param w the width
+     * @param h the height
+     */
+    void strokeRect(double x, double y, double w, double h);
+
+    /**
+     * Strokes a line between two points.
+     *
+     * @param x1 the x-coordinate of the start point
+     * @param y1 the y-coordinate of the start point
+     * @param x2 the x-coordinate of the end point
+     * @param y2 the y-coordinate of the end point
+     */
+    void strokeLine(double x1, double y1, double x2, double y2);
+
+    /**
+     * Fills an arc of an oval inscribed in a rectangle. Angles are in degrees and run
+     * counter-clockwise as seen on screen, starting from the 3 o'clock position.
+     *
+     * @param x the x-coordinate of the rectangle's left edge
+     * @param y the y-coordinate of the rectangle's top edge
+     * @param w the width of the rectangle
+     * @param h the height of the rectangle
+     * @param startAngle the start angle of the arc
+     * @param arcExtent the angular extent of the arc
+     * @param closure how the arc is closed
+     */
+    void fillArc(double x, double y, double w, double h, double startAngle, double arcExtent, ArcType closure);
+
+    /**
+     * Clears a rectangle to transparent.
+     *
+     * @param x the x-coordinate of the left edge
+     * @param y the y-coordinate of the top edge
+     * @param w the width
+     * @param h the height
+     */
+    void clearRect(double x, double y, double w, double h);
+
+    /**
+     * Saves the current paints, line width and transform.
+     */
+    void save();
+
+    /**
+     * Restores the paints, line width and transform saved by the matching {@link #save()}.
+     */
+    void restore();
+
+    /**
+     * Moves the origin of the following drawing operations.
+     *
+     * @param x the horizontal offset
+     * @param y the vertical offset
+     */
+    void translate(double x, double y);
+
+    /**
+     * Rotates the following drawing operations around the origin.
+     *
+     * @param degrees the clockwise rotation on screen, in degrees
+     */
+    void rotate(double degrees);
+}
@@ -1,18 +1,24 @@
 package ok;
 
-import javafx.scene.canvas.GraphicsContext;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import javafx.scene.paint.Color;
-import java.util.Random;
+
+import static ok.BehaviourTree.*;
 
 /**
  * Represents an EchoRobot, a type of SimpleRobot equipped with an EchoSensor
  * and capable of detecting objects within a specified beam range.
  */
 public class EchoRobot extends SimpleRobot {
-    private static final double BEAM_RANGE = 100; // Range of the echo beam
-    private static int nextIndex = 1; // Used to assign unique IDs to robots
-    private int index; // Unique identifier for this robot instance
-    private Random random = new Random(); // Random generator for movement and direction changes
+    public static final double BEAM_RANGE = 100; // Default range of the echo beam
+    private static final SensorConfig BEAM = SensorConfig.of(BEAM_RANGE, SENSOR_PERIOD); // Beam of every EchoRobot
+    private final EchoSensor echoSensor; // The sensor that measures along the beam, and holds its range
+    // Wander now and then, and turn back from whatever the sensors detect
+    private static final BehaviourTree BEHAVIOUR = compile(sequence(
+            varySpeed(),
+            optional(sequence(chance(0.015), wander())),
+            optional(sequence(sensing(), avoid(Math.PI)))));
 
     /**
      * Constructs an EchoRobot at the specified coordinates.
@@ -20,36 +26,94 @@ public class EchoRobot extends SimpleRobot {
      * @param x the initial x-coordinate of the robot
      * @param y the initial y-coordinate of the robot
      */
-    public EchoRobot(double x, double y) {
+    @JsonCreator
+    public EchoRobot(@JsonProperty("x") double x, @JsonProperty("y") double y) {
         super(x, y);
-        addSensor(new EchoSensor(this, BEAM_RANGE)); // Add an echo sensor to the robot
-        index = nextIndex++; // Assign a unique index to this robot
+        echoSensor = new EchoSensor(this, BEAM);
+        addSensor(echoSensor); // Add an echo sensor to the robot
+    }
+
+    /**
+     * Gets the range of the echo beam.
+     *
+     * @return the beam range
+     */
+    public double getBeamRange() {
+        return echoSensor.getRange();
+    }
+
+    /**
+     * Sets the range of the echo beam, which is the range of the sensor that follows it.
+     *
+     * @param beamRange the new beam range
+     */
+    public void setBeamRange(double beamRange) {
+        echoSensor.setRange(beamRange);
+    }
+
+    /**
+     * Gets the number of checkpoint values, including the range of the echo beam.
+     *
+     * @return The number of state values.
+     */
+    @Override
+    public int getStateSize() {
+        return super.getStateSize() + 1;
     }
 
     /**
-     * Returns a string representation of the EchoRobot.
+     * Copies the robot's state, including the range of the echo beam, into a checkpoint buffer.
      *
-     * @return the string representation
+     * @param buffer The buffer to write into.
+     * @param offset The index of the first value to write.
+     * @return The index just past the last value written.
      */
     @Override
-    public String toString() {
-        return "EchoRobot " + index;
+    public int saveState(double[] buffer, int offset) {
+        offset = super.saveState(buffer, offset);
+        buffer[offset++] = echoSensor.getRange();
+        return offset;
+    }
+
+    /**
+     * Restores the robot's state, including the range of the echo beam, from a checkpoint buffer.
+     *
+     * @param buffer The buffer to read from.
+     * @param offset The index of the first value to read.
+     * @return The index just past the last value read.
+     */
+    @Override
+    public int restoreState(double[] buffer, int offset) {
+        offset = super.restoreState(buffer, offset);
+        echoSensor.setRange(buffer[offset++]);
+        return offset;
+    }
+
+    /**
+     * Gets the colour of the robot's body.
+     *
+     * @return The colour.
+     */
+    @Override
+    protected Color bodyColor() {
+        return Color.RED;
     }
 
     /**
      * Draws the EchoRobot on the canvas, including its body, wheels, beam, and direction.
      *
-     * @param gc the GraphicsContext used for drawing
+     * @param gc the DrawingSurface used for drawing
      */
     @Override
-    protected void drawRobot(GraphicsContext gc) {
-        gc.setFill(Color.RED); // Set color for the robot body
+    protected void drawRobot(DrawingSurface gc) {
+        gc.setFill(bodyColor()); // Set color for the robot body
         gc.fillOval(x - radius, y - radius, radius * 2, radius * 2); // Draw the robot body
 
         drawWheels(gc); // Draw the robot's wheels
 
+        double beamRange = echoSensor.getRange();
         gc.setFill(Color.BLUE.deriveColor(1, 1, 1, 0.2)); // Set color for the echo beam
-        gc.fillArc(x - BEAM_RANGE, y - BEAM_RANGE, BEAM_RANGE * 2, BEAM_RANGE * 2,
+        gc.fillArc(x - beamRange, y - beamRange, beamRange * 2, beamRange * 2,
                 Math.toDegrees(direction) - 30, 60, javafx.scene.shape.ArcType.ROUND); // Draw the echo beam
 
         // Draw the direction indicator
@@ -60,32 +124,11 @@ public class EchoRobot extends SimpleRobot {
     }
 
     /**
-     * Moves the EchoRobot, updating its direction and handling wall collisions.
+     * Steers the EchoRobot.
      * Includes random direction changes and sensor-based reactions to detected objects.
      */
     @Override
     public void move() {
-        updateSpeed(); // Update the robot's speed
-
-        // Randomly change direction with a small probability
-        if (random.nextDouble() < 0.015) {
-            direction = random.nextDouble() * 2 * Math.PI;
-        }
-
-        // Check sensors for object detection and adjust direction if necessary
-        for (Sensor sensor : sensors) {
-            if (sensor.detect(Arena.getInstance().getObjects())) {
-                direction += Math.PI + (random.nextDouble() - 0.5); // Adjust direction upon detection
-                break;
-            }
-        }
-
-        // Calculate the next position and handle potential wall collisions
-        handleWallCollision(x + currentSpeed * Math.cos(direction),
-                y + currentSpeed * Math.sin(direction));
-
-        // Update the robot's position
-        x += currentSpeed * Math.cos(direction);
-        y += currentSpeed * Math.sin(direction);
+        BEHAVIOUR.run(this);
     }
 }
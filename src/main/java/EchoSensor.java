@@ -6,10 +6,9 @@ import java.util.List;
  * The EchoSensor is responsible for detecting nearby objects within a specified range and beam angle.
  * It is attached to a Robot and uses its position and direction to perform object detection.
  */
-public class EchoSensor implements Sensor {
-    private Robot robot; // The robot to which this sensor is attached
-    private double range; // The maximum detection range of the sensor
+public class EchoSensor extends SampledSensor {
     private static final double BEAM_ANGLE = Math.PI / 3; // The detection beam angle (60 degrees)
+    private final ConeHit hit = new ConeHit(); // Nearest item found by the last detection
 
     /**
      * Constructs an EchoSensor for a given robot and detection range.
@@ -18,8 +17,40 @@ public class EchoSensor implements Sensor {
      * @param range the maximum range of the sensor
      */
     public EchoSensor(Robot robot, double range) {
-        this.robot = robot;
-        this.range = range;
+        this(robot, SensorConfig.of(range, Robot.SENSOR_PERIOD));
+    }
+
+    /**
+     * Constructs an EchoSensor sharing its range and sampling period with other robots.
+     *
+     * @param robot the robot to attach the sensor to
+     * @param config the maximum range and the sampling period of the sensor
+     */
+    public EchoSensor(Robot robot, SensorConfig config) {
+        super(robot, config);
+    }
+
+    /**
+     * Gets the result of the last detection: the nearest item in the beam, its distance and bearing.
+     *
+     * @return the last hit, reused by the next detection
+     */
+    public ConeHit getLastHit() {
+        return hit;
+    }
+
+    /**
+     * Detects the nearest object in the beam with a cone query on the Arena's spatial index,
+     * so only the chunks under the beam are visited. Runs on the sensor's sampling ticks.
+     *
+     * @param arena the Arena to sense
+     * @param x the x-coordinate of the robot
+     * @param y the y-coordinate of the robot
+     * @return true if an object is detected within range and beam angle, false otherwise
+     */
+    @Override
+    protected boolean measure(Arena arena, double x, double y) {
+        return arena.queryCone(x, y, robot.direction, BEAM_ANGLE / 2, getRange(), robot, null, hit);
     }
 
     /**
@@ -30,26 +61,31 @@ public class EchoSensor implements Sensor {
      */
     @Override
     public boolean detect(List<Item> objects) {
+        double hx = Math.cos(robot.direction);
+        double hy = Math.sin(robot.direction);
+        double cosHalf = Math.cos(BEAM_ANGLE / 2);
+        hit.reset();
+        Item nearest = null;
+        double range = getRange();
+        double nearestSq = range * range;
         for (Item obj : objects) {
             if (obj != robot) { // Ignore the robot itself
-                // Calculate the distance between the robot and the object
-                double distance = Math.sqrt(
-                        Math.pow(robot.x - obj.x, 2) +
-                                Math.pow(robot.y - obj.y, 2)
-                );
-
-                if (distance < range) { // Check if the object is within the sensor's range
-                    // Calculate the angle to the object relative to the robot's direction
-                    double angle = Math.atan2(obj.y - robot.y, obj.x - robot.x);
-                    double angleDiff = Math.abs(angle - robot.direction);
-
-                    // Check if the object is within the beam angle
-                    if (angleDiff < BEAM_ANGLE / 2 || angleDiff > 2 * Math.PI - BEAM_ANGLE / 2) {
-                        return true; // Object detected
-                    }
+                double dx = obj.x - robot.x;
+                double dy = obj.y - robot.y;
+                double distSq = dx * dx + dy * dy;
+                // Keep the closest object within range and inside the beam
+                if (distSq < nearestSq && ChunkedWorld.insideCone(dx, dy, distSq, hx, hy, cosHalf)) {
+                    nearest = obj;
+                    nearestSq = distSq;
                 }
             }
         }
-        return false; // No objects detected
+        if (nearest == null) {
+            return false; // No objects detected
+        }
+        double dx = nearest.x - robot.x;
+        double dy = nearest.y - robot.y;
+        hit.set(nearest, Math.sqrt(nearestSq), Math.atan2(hx * dy - hy * dx, hx * dx + hy * dy));
+        return true;
     }
 }
@@ -0,0 +1,51 @@
+package ok;
+
+/**
+ * Helpers for generational entity handles.
+ * A handle is a {@code long} packing a slot index in the low 32 bits and the generation of that
+ * slot in the high 32 bits. When an item is removed its slot's generation is bumped, so handles
+ * kept by outside code go stale instead of silently pointing at whatever reuses the slot.
+ */
+public final class EntityHandle {
+    /**
+     * A handle that never refers to any item.
+     */
+    public static final long NONE = -1L;
+
+    /**
+     * Utility class, not meant to be instantiated.
+     */
+    private EntityHandle() {
+    }
+
+    /**
+     * Packs a slot index and a generation into a handle.
+     *
+     * @param slot the slot index
+     * @param generation the generation of the slot
+     * @return the handle
+     */
+    public static long of(int slot, int generation) {
+        return ((long) generation << 32) | (slot & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Extracts the slot index from a handle.
+     *
+     * @param handle the handle
+     * @return the slot index
+     */
+    public static int slot(long handle) {
+        return (int) handle;
+    }
+
+    /**
+     * Extracts the generation from a handle.
+     *
+     * @param handle the handle
+     * @return the generation
+     */
+    public static int generation(long handle) {
+        return (int) (handle >>> 32);
+    }
+}
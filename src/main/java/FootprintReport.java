@@ -0,0 +1,96 @@
+package ok;
+
+import java.lang.ref.Reference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * Reports how much heap each robot type takes, to check how many robots fit in memory.
+ *
+ * <p>
+ * For each type, a batch of robots is built and the growth of the heap is measured once the garbage
+ * collector has run, first for the robots on their own (the robot, its sensors and whatever they
+ * hold) and then for adding them to an Arena (handles, tag lists, chunks and collision entries).
+ * The heap is measured from the outside, so the figures include object headers and padding and
+ * carry the noise of a garbage collection; batches of many robots keep that noise well below a byte
+ * per robot.
+ * </p>
+ */
+public class FootprintReport {
+    private static final double SPACING = 50; // Distance between neighbouring robots, on a square grid
+
+    // Robot types measured, by name
+    private static final Map<String, BiFunction<Double, Double, Robot>> TYPES = new LinkedHashMap<>();
+
+    static {
+        TYPES.put("SimpleRobot", SimpleRobot::new);
+        TYPES.put("WhiskerRobot", WhiskerRobot::new);
+        TYPES.put("EchoRobot", EchoRobot::new);
+        TYPES.put("LightDetectorRobot", LightDetectorRobot::new);
+        TYPES.put("MagnetRobot", MagnetRobot::new);
+        TYPES.put("SwarmRobot", SwarmRobot::new);
+        TYPES.put("ExplorerRobot", ExplorerRobot::new);
+        TYPES.put("PathfinderRobot", PathfinderRobot::new);
+        TYPES.put("LidarRobot", LidarRobot::new);
+    }
+
+    /**
+     * Utility class, not meant to be instantiated.
+     */
+    private FootprintReport() {
+    }
+
+    /**
+     * Prints the bytes per robot of every type. Usage: {@code FootprintReport [robots]}, the number
+     * of robots measured per type, 100000 by default; the heap must hold that many of the largest type.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int side = (int) Math.ceil(Math.sqrt(count));
+
+        for (BiFunction<Double, Double, Robot> type : TYPES.values()) {
+            new Arena().addObject(type.apply(SPACING, SPACING)); // Load every class, so no type is charged for it
+        }
+
+        System.out.printf("%-20s %8s %8s %8s %12s%n", "Type", "Robot", "Arena", "Total", "Per million");
+        for (Map.Entry<String, BiFunction<Double, Double, Robot>> type : TYPES.entrySet()) {
+            long before = usedHeap();
+            Robot[] robots = new Robot[count];
+            for (int i = 0; i < count; i++) {
+                robots[i] = type.getValue().apply(SPACING * (i % side + 1), SPACING * (i / side + 1));
+            }
+            long built = usedHeap();
+            Arena arena = new Arena(SPACING * (side + 1), SPACING * (side + 1));
+            for (Robot robot : robots) {
+                arena.addObject(robot);
+            }
+            long added = usedHeap();
+            Reference.reachabilityFence(robots);
+            Reference.reachabilityFence(arena);
+
+            // The array holding the robots is not part of their footprint
+            double robot = (built - before - (16 + 4.0 * count)) / count;
+            double bookkeeping = (double) (added - built) / count;
+            System.out.printf("%-20s %8.0f %8.0f %8.0f %9.0f MB%n", type.getKey(), robot, bookkeeping,
+                    robot + bookkeeping, (robot + bookkeeping) * 1e6 / (1 << 20));
+        }
+    }
+
+    /**
+     * Measures the heap in use once unreachable objects have been collected.
+     *
+     * @return the bytes in use
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            System.gc(); // Several collections, since one may leave garbage behind
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
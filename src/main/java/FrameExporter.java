@@ -0,0 +1,197 @@
+package ok;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Exports frames of a simulation as numbered PNG files, without the JavaFX toolkit.
+ * Each captured frame is drawn into an offscreen {@link Framebuffer} on the calling thread, then
+ * encoded and written by a pool of worker threads while the simulation carries on.
+ *
+ * <p>
+ * The exporter owns a fixed number of framebuffers, two per worker. When all of them are waiting
+ * to be encoded, capturing blocks until one is free, so a slow disk slows the simulation down
+ * instead of filling the memory with frames. Files are named {@code frame-000000.png},
+ * {@code frame-000001.png} and so on, in capture order, whatever order they are written in.
+ * </p>
+ */
+public class FrameExporter implements AutoCloseable {
+    public static final int BACKGROUND = 0xFFFFFFFF; // Opaque white, like the application's window
+
+    private final Path directory;           // Directory the frames are written to
+    private final ExecutorService workers;  // Encodes and writes the frames
+    private final BlockingQueue<Slot> free; // Framebuffers not waiting to be encoded
+    private final List<Slot> slots = new ArrayList<>(); // Every framebuffer of the exporter
+    private final AtomicReference<IOException> failure = new AtomicReference<>(); // First write failure
+    private int frameCount;                 // Number of frames captured so far
+
+    /**
+     * A framebuffer with its own encoder, handed from the simulation thread to a worker and back.
+     */
+    private static class Slot {
+        final Framebuffer frame;   // Frame drawn by the simulation thread
+        final PngEncoder encoder = new PngEncoder(); // Encoder used by whichever worker writes the frame
+
+        Slot(int width, int height) {
+            frame = new Framebuffer(width, height);
+        }
+    }
+
+    /**
+     * Creates an exporter, creating its directory if needed.
+     *
+     * @param directory the directory the frames are written to
+     * @param width the width of the frames in pixels
+     * @param height the height of the frames in pixels
+     * @param threads the number of worker threads encoding frames
+     * @throws IOException if the directory cannot be created
+     */
+    public FrameExporter(Path directory, int width, int height, int threads) throws IOException {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("At least one worker thread is needed");
+        }
+        this.directory = Files.createDirectories(directory);
+        workers = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "frame-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        free = new ArrayBlockingQueue<>(threads * 2);
+        for (int i = 0; i < threads * 2; i++) {
+            Slot slot = new Slot(width, height);
+            slots.add(slot);
+            free.add(slot);
+        }
+    }
+
+    /**
+     * Draws the current state of an Arena and queues it for writing.
+     * Blocks while every framebuffer is still waiting to be encoded.
+     *
+     * @param arena the Arena to draw
+     * @return the number of the captured frame
+     * @throws IOException if writing an earlier frame has failed
+     * @throws InterruptedException if the calling thread is interrupted while waiting for a framebuffer
+     */
+    public int capture(Arena arena) throws IOException, InterruptedException {
+        rethrowFailure();
+        Slot slot = free.take();
+        slot.frame.reset(BACKGROUND);
+        arena.render(slot.frame);
+
+        int number = frameCount++;
+        Path file = directory.resolve(String.format("frame-%06d.png", number));
+        workers.execute(() -> write(slot, file));
+        return number;
+    }
+
+    /**
+     * Gets the number of frames captured so far.
+     *
+     * @return the frame count
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Waits for the queued frames to be written, then stops the workers. If the calling thread is
+     * interrupted while waiting, the frames not yet written are dropped and the thread's interrupt
+     * status is set again.
+     *
+     * @throws IOException if writing a frame has failed, or the wait was interrupted
+     */
+    @Override
+    public void close() throws IOException {
+        workers.shutdown();
+        try {
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing frames", ex);
+        } finally {
+            for (Slot slot : slots) {
+                slot.encoder.close();
+            }
+        }
+        rethrowFailure();
+    }
+
+    /**
+     * Encodes a frame into its file on a worker thread, then hands its framebuffer back.
+     * A failure is kept and reported by the next capture or by close.
+     *
+     * @param slot the framebuffer to write
+     * @param file the file to write it to
+     */
+    private void write(Slot slot, Path file) {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+            slot.encoder.encode(slot.frame, out);
+        } catch (IOException ex) {
+            failure.compareAndSet(null, ex);
+        } finally {
+            free.add(slot);
+        }
+    }
+
+    /**
+     * Throws the first write failure, if there has been one.
+     *
+     * @throws IOException the failure
+     */
+    private void rethrowFailure() throws IOException {
+        IOException ex = failure.get();
+        if (ex != null) {
+            throw ex;
+        }
+    }
+
+    /**
+     * Runs the standard scenario headlessly and exports one frame per tick.
+     * Usage: {@code FrameExporter <directory> <ticks> [NAME=value ...]}, where the optional
+     * parameters are those of {@link StandardScenario}.
+     *
+     * @param args the command-line arguments
+     * @throws Exception if the frames cannot be written
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: FrameExporter <directory> <ticks> [NAME=value ...]");
+            System.exit(1);
+        }
+        Map<String, Double> parameters = new HashMap<>();
+        for (int i = 2; i < args.length; i++) {
+            String[] pair = args[i].split("=", 2);
+            parameters.put(pair[0], Double.parseDouble(pair[1]));
+        }
+        Arena arena = new StandardScenario().create(parameters);
+        int ticks = Integer.parseInt(args[1]);
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1); // Leave a core to the simulation
+
+        long start = System.nanoTime();
+        try (FrameExporter exporter = new FrameExporter(Path.of(args[0]),
+                (int) Math.ceil(arena.getWidth()), (int) Math.ceil(arena.getHeight()), threads)) {
+            for (int t = 0; t < ticks; t++) {
+                arena.update();
+                exporter.capture(arena);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Exported %d frames in %.1f s (%.0f frames per minute)%n",
+                ticks, seconds, ticks / seconds * 60);
+    }
+}
@@ -0,0 +1,711 @@
+package ok;
+
+import javafx.scene.paint.Color;
+import javafx.scene.paint.CycleMethod;
+import javafx.scene.paint.LinearGradient;
+import javafx.scene.paint.Paint;
+import javafx.scene.paint.Stop;
+import javafx.scene.shape.ArcType;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An offscreen drawing surface that rasterizes into a plain array of ARGB pixels, without the
+ * JavaFX toolkit. Only the paint classes of JavaFX are used, so the same rendering code that draws
+ * on the application's canvas can draw frames on a headless server.
+ *
+ * <p>
+ * Shapes are filled by scanlines: each row of pixels is filled where the row's centre lies inside
+ * the shape, and translucent paints are blended over what is already there. There is no
+ * anti-aliasing. Ovals drawn without rotation are rasterized exactly; rotated ovals, arcs and stroked
+ * lines become polygons with the nonzero winding rule. Solid colors and linear gradients are supported.
+ * </p>
+ *
+ * <p>
+ * A framebuffer is not thread-safe, but separate framebuffers can be drawn on by separate threads.
+ * </p>
+ */
+public class Framebuffer implements DrawingSurface {
+    private static final double CURVE_STEP = 3; // Length in pixels of the segments approximating a curve
+    private static final int MIN_CURVE_SEGMENTS = 12; // Fewest segments of a full oval
+
+    private final int width, height; // Size in pixels
+    private final int[] pixels;      // Pixels row after row, as non-premultiplied ARGB
+    private Paint fill = Color.BLACK;   // Paint of the fill operations
+    private Paint stroke = Color.BLACK; // Paint of the stroke operations
+    private double lineWidth = 1;       // Width of stroked lines
+    private double m00 = 1, m01, m02, m10, m11 = 1, m12; // Affine transform from drawing to pixel coordinates
+    private final ArrayDeque<double[]> savedTransforms = new ArrayDeque<>(); // Transforms stacked by save()
+    private final ArrayDeque<Paint[]> savedPaints = new ArrayDeque<>();      // Paints stacked by save()
+
+    // Paint resolved for the operation in progress: a solid color, or a gradient in pixel coordinates
+    private int solid;               // Color of a solid paint
+    private LinearGradient gradient; // Gradient paint, or null for a solid paint
+    private double gradientX, gradientY, gradientDX, gradientDY, gradientScale; // Gradient axis in pixels
+
+    // Path of the operation in progress, in pixel coordinates
+    private double[] pathX = new double[64], pathY = new double[64];
+    private int pathSize;             // Number of points in the path
+    private int[] contourEnds = new int[4]; // End of each closed contour in the path
+    private int contourCount;         // Number of closed contours
+    private double[] crossings = new double[16]; // Where the scanline crosses the path's edges
+    private int[] windings = new int[16];        // Direction of each crossing
+
+    /**
+     * Creates a framebuffer with every pixel transparent.
+     *
+     * @param width the width in pixels
+     * @param height the height in pixels
+     */
+    public Framebuffer(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Framebuffer size must be positive");
+        }
+        this.width = width;
+        this.height = height;
+        pixels = new int[width * height];
+    }
+
+    /**
+     * Gets the width of the framebuffer.
+     *
+     * @return the width in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets the height of the framebuffer.
+     *
+     * @return the height in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets the pixels, row after row, as non-premultiplied ARGB values. The array is live:
+     * drawing on the framebuffer changes it.
+     *
+     * @return the pixel array
+     */
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    /**
+     * Fills every pixel with a color and resets the paints, line width and transform,
+     * so the framebuffer can be reused for a new frame.
+     *
+     * @param argb the background color as an ARGB value
+     */
+    public void reset(int argb) {
+        Arrays.fill(pixels, argb);
+        fill = Color.BLACK;
+        stroke = Color.BLACK;
+        lineWidth = 1;
+        m00 = m11 = 1;
+        m01 = m02 = m10 = m12 = 0;
+        savedTransforms.clear();
+        savedPaints.clear();
+    }
+
+    /**
+     * Sets the paint of the following fill operations: a solid color or a linear gradient.
+     *
+     * @param paint the fill paint
+     */
+    @Override
+    public void setFill(Paint paint) {
+        fill = paint;
+    }
+
+    /**
+     * Sets the paint of the following stroke operations: a solid color or a linear gradient.
+     *
+     * @param paint the stroke paint
+     */
+    @Override
+    public void setStroke(Paint paint) {
+        stroke = paint;
+    }
+
+    /**
+     * Sets the width of stroked lines, which is scaled by the transform like any other length.
+     *
+     * @param width the line width
+     */
+    @Override
+    public void setLineWidth(double width) {
+        lineWidth = width;
+    }
+
+    /**
+     * Fills an oval inscribed in a rectangle. Without rotation each row is filled exactly
+     * between the oval's edges; a rotated oval is filled as a polygon.
+     *
+     * @param x the x-coordinate of the rectangle's left edge
+     * @param y the y-coordinate of the rectangle's top edge
+     * @param w the width of the rectangle
+     * @param h the height of the rectangle
+     */
+    @Override
+    public void fillOval(double x, double y, double w, double h) {
+        resolve(fill, x, y, w, h);
+        if (m01 == 0 && m10 == 0) {
+            fillEllipse(transformX(x + w / 2, y + h / 2), transformY(x + w / 2, y + h / 2),
+                    Math.abs(m00) * w / 2, Math.abs(m11) * h / 2, 0, 0);
+        } else {
+            beginPath();
+            addEllipse(x + w / 2, y + h / 2, w / 2, h / 2, 0, 360);
+            fillPath();
+        }
+    }
+
+    /**
+     * Strokes the outline of an oval inscribed in a rectangle, as the ring between two ovals half
+     * a line width outside and inside it.
+     *
+     * @param x the x-coordinate of the rectangle's left edge
+     * @param y the y-coordinate of the rectangle's top edge
+     * @param w the width of the rectangle
+     * @param h the height of the rectangle
+     */
+    @Override
+    public void strokeOval(double x, double y, double w, double h) {
+        resolve(stroke, x, y, w, h);
+        double half = lineWidth / 2;
+        double cx = x + w / 2, cy = y + h / 2;
+        if (m01 == 0 && m10 == 0) {
+            fillEllipse(transformX(cx, cy), transformY(cx, cy),
+                    Math.abs(m00) * (w / 2 + half), Math.abs(m11) * (h / 2 + half),
+                    Math.abs(m00) * Math.max(0, w / 2 - half), Math.abs(m11) * Math.max(0, h / 2 - half));
+        } else {
+            // The outline is the outer oval minus the inner one, traced the other way round
+            beginPath();
+            addEllipse(cx, cy, w / 2 + half, h / 2 + half, 0, 360);
+            closeContour();
+            addEllipse(cx, cy, Math.max(0, w / 2 - half), Math.max(0, h / 2 - half), 360, -360);
+            fillPath();
+        }
+    }
+
+    /**
+     * Fills a rectangle, as a polygon so that it follows any rotation.
+     *
+     * @param x the x-coordinate of the left edge
+     * @param y the y-coordinate of the top edge
+     * @param w the width of the rectangle
+     * @param h the height of the rectangle
+     */
+    @Override
+    public void fillRect(double x, double y, double w, double h) {
+        resolve(fill, x, y, w, h);
+        beginPath();
+        addRect(x, y, x + w, y + h, false);
+        fillPath();
+    }
+
+    /**
+     * Strokes the outline of a rectangle, as the frame between two rectangles half a line width
+     * outside and inside it. A rectangle narrower than the line is filled completely.
+     *
+     * @param x the x-coordinate of the left edge
+     * @param y the y-coordinate of the top edge
+     * @param w the width of the rectangle
+     * @param h the height of the rectangle
+     */
+    @Override
+    public void strokeRect(double x, double y, double w, double h) {
+        resolve(stroke, x, y, w, h);
+        double half = lineWidth / 2;
+        beginPath();
+        addRect(x - half, y - half, x + w + half, y + h + half, false);
+        if (w > lineWidth && h > lineWidth) {
+            addRect(x + half, y + half, x + w - half, y + h - half, true);
+        }
+        fillPath();
+    }
+
+    /**
+     * Strokes a line between two points, as a rectangle of the line width with square caps.
+     * Lines thinner than a pixel are drawn one pixel wide, so they do not vanish.
+     *
+     * @param x1 the x-coordinate of the start point
+     * @param y1 the y-coordinate of the start point
+     * @param x2 the x-coordinate of the end point
+     * @param y2 the y-coordinate of the end point
+     */
+    @Override
+    public void strokeLine(double x1, double y1, double x2, double y2) {
+        resolve(stroke, Math.min(x1, x2), Math.min(y1, y2), Math.abs(x2 - x1), Math.abs(y2 - y1));
+        double length = Math.sqrt((x2 - x1) * (x2 - x1) + (y2 - y1) * (y2 - y1));
+        double half = Math.max(lineWidth, 1) / 2;
+        // Unit vectors along and across the line; square caps extend it by half the width
+        double ux = length > 0 ? (x2 - x1) / length : 1;
+        double uy = length > 0 ? (y2 - y1) / length : 0;
+        double ax = ux * half, ay = uy * half;
+        double nx = -uy * half, ny = ux * half;
+        beginPath();
+        addPoint(x1 - ax + nx, y1 - ay + ny);
+        addPoint(x2 + ax + nx, y2 + ay + ny);
+        addPoint(x2 + ax - nx, y2 + ay - ny);
+        addPoint(x1 - ax - nx, y1 - ay - ny);
+        closeContour();
+        fillPath();
+    }
+
+    /**
+     * Fills an arc of an oval inscribed in a rectangle, as a polygon. A round closure adds the
+     * oval's centre, making a pie slice; other closures join the ends of the arc with a chord.
+     *
+     * @param x the x-coordinate of the rectangle's left edge
+     * @param y the y-coordinate of the rectangle's top edge
+     * @param w the width of the rectangle
+     * @param h the height of the rectangle
+     * @param startAngle the start angle of the arc, in degrees
+     * @param arcExtent the angular extent of the arc, in degrees
+     * @param closure how the arc is closed
+     */
+    @Override
+    public void fillArc(double x, double y, double w, double h, double startAngle, double arcExtent, ArcType closure) {
+        resolve(fill, x, y, w, h);
+        beginPath();
+        if (closure == ArcType.ROUND) {
+            addPoint(x + w / 2, y + h / 2);
+        }
+        addEllipse(x + w / 2, y + h / 2, w / 2, h / 2, startAngle, arcExtent);
+        fillPath();
+    }
+
+    /**
+     * Clears to transparent the pixels within the bounding box of a rectangle.
+     *
+     * @param x the x-coordinate of the left edge
+     * @param y the y-coordinate of the top edge
+     * @param w the width
+     * @param h the height
+     */
+    @Override
+    public void clearRect(double x, double y, double w, double h) {
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int corner = 0; corner < 4; corner++) {
+            double cx = (corner & 1) == 0 ? x : x + w;
+            double cy = (corner & 2) == 0 ? y : y + h;
+            minX = Math.min(minX, transformX(cx, cy));
+            maxX = Math.max(maxX, transformX(cx, cy));
+            minY = Math.min(minY, transformY(cx, cy));
+            maxY = Math.max(maxY, transformY(cx, cy));
+        }
+        int x0 = column(minX), x1 = column(maxX);
+        for (int row = Math.max(0, row(minY)); row < Math.min(height, row(maxY)); row++) {
+            if (x0 < x1) {
+                Arrays.fill(pixels, row * width + x0, row * width + x1, 0);
+            }
+        }
+    }
+
+    /**
+     * Saves the paints, line width and transform on a stack.
+     */
+    @Override
+    public void save() {
+        savedTransforms.push(new double[] {m00, m01, m02, m10, m11, m12, lineWidth});
+        savedPaints.push(new Paint[] {fill, stroke});
+    }
+
+    /**
+     * Restores the paints, line width and transform saved by the matching {@link #save()}.
+     * An unmatched restore is ignored, as a GraphicsContext does.
+     */
+    @Override
+    public void restore() {
+        if (savedTransforms.isEmpty()) {
+            return; // Like a GraphicsContext, an unmatched restore is ignored
+        }
+        double[] t = savedTransforms.pop();
+        m00 = t[0];
+        m01 = t[1];
+        m02 = t[2];
+        m10 = t[3];
+        m11 = t[4];
+        m12 = t[5];
+        lineWidth = t[6];
+        Paint[] paints = savedPaints.pop();
+        fill = paints[0];
+        stroke = paints[1];
+    }
+
+    /**
+     * Moves the origin of the following drawing operations.
+     *
+     * @param x the horizontal offset
+     * @param y the vertical offset
+     */
+    @Override
+    public void translate(double x, double y) {
+        m02 += m00 * x + m01 * y;
+        m12 += m10 * x + m11 * y;
+    }
+
+    /**
+     * Rotates the following drawing operations around the origin.
+     *
+     * @param degrees the clockwise rotation on screen, in degrees
+     */
+    @Override
+    public void rotate(double degrees) {
+        double cos = Math.cos(Math.toRadians(degrees));
+        double sin = Math.sin(Math.toRadians(degrees));
+        double a = m00, b = m01, c = m10, d = m11;
+        m00 = a * cos + b * sin;
+        m01 = b * cos - a * sin;
+        m10 = c * cos + d * sin;
+        m11 = d * cos - c * sin;
+    }
+
+    /**
+     * Prepares a paint for the operation in progress. Proportional gradients are stretched over
+     * the bounds of the shape being drawn.
+     *
+     * @param paint the paint
+     * @param x the x-coordinate of the shape's left edge
+     * @param y the y-coordinate of the shape's top edge
+     * @param w the width of the shape
+     * @param h the height of the shape
+     */
+    private void resolve(Paint paint, double x, double y, double w, double h) {
+        if (paint instanceof Color color) {
+            gradient = null;
+            solid = argb(color);
+        } else if (paint instanceof LinearGradient linear) {
+            gradient = linear;
+            double sx = linear.getStartX(), sy = linear.getStartY();
+            double ex = linear.getEndX(), ey = linear.getEndY();
+            if (linear.isProportional()) {
+                sx = x + sx * w;
+                sy = y + sy * h;
+                ex = x + ex * w;
+                ey = y + ey * h;
+            }
+            gradientX = transformX(sx, sy);
+            gradientY = transformY(sx, sy);
+            gradientDX = transformX(ex, ey) - gradientX;
+            gradientDY = transformY(ex, ey) - gradientY;
+            double lengthSq = gradientDX * gradientDX + gradientDY * gradientDY;
+            gradientScale = lengthSq > 0 ? 1 / lengthSq : 0;
+        } else {
+            throw new IllegalArgumentException("Unsupported paint: " + paint);
+        }
+    }
+
+    /**
+     * Evaluates the current gradient at the centre of a pixel.
+     *
+     * @param column the pixel's column
+     * @param row the pixel's row
+     * @return the color as an ARGB value
+     */
+    private int shade(int column, int row) {
+        double t = ((column + 0.5 - gradientX) * gradientDX + (row + 0.5 - gradientY) * gradientDY) * gradientScale;
+        if (gradient.getCycleMethod() == CycleMethod.REPEAT) {
+            t -= Math.floor(t);
+        } else if (gradient.getCycleMethod() == CycleMethod.REFLECT) {
+            t = Math.abs(t - 2 * Math.floor(t / 2 + 0.5));
+        }
+        List<Stop> stops = gradient.getStops();
+        if (t <= stops.get(0).getOffset()) {
+            return argb(stops.get(0).getColor());
+        }
+        for (int i = 1; i < stops.size(); i++) {
+            Stop next = stops.get(i);
+            if (t <= next.getOffset()) {
+                Stop previous = stops.get(i - 1);
+                double span = next.getOffset() - previous.getOffset();
+                return argb(previous.getColor().interpolate(next.getColor(),
+                        span > 0 ? (t - previous.getOffset()) / span : 1));
+            }
+        }
+        return argb(stops.get(stops.size() - 1).getColor());
+    }
+
+    /**
+     * Fills an axis-aligned ellipse, or the ring between two ellipses sharing a centre,
+     * row by row in pixel coordinates.
+     *
+     * @param cx the x-coordinate of the centre
+     * @param cy the y-coordinate of the centre
+     * @param rx the horizontal radius
+     * @param ry the vertical radius
+     * @param innerX the horizontal radius of the hole, 0 for none
+     * @param innerY the vertical radius of the hole, 0 for none
+     */
+    private void fillEllipse(double cx, double cy, double rx, double ry, double innerX, double innerY) {
+        if (rx <= 0 || ry <= 0) {
+            return;
+        }
+        int last = Math.min(height, row(cy + ry));
+        for (int row = Math.max(0, row(cy - ry)); row < last; row++) {
+            double dy = (row + 0.5 - cy) / ry;
+            if (dy * dy >= 1) {
+                continue;
+            }
+            double outer = rx * Math.sqrt(1 - dy * dy);
+            double inner = 0;
+            if (innerX > 0 && innerY > 0) {
+                double di = (row + 0.5 - cy) / innerY;
+                inner = di * di < 1 ? innerX * Math.sqrt(1 - di * di) : 0;
+            }
+            if (inner > 0) {
+                fillSpan(row, cx - outer, cx - inner);
+                fillSpan(row, cx + inner, cx + outer);
+            } else {
+                fillSpan(row, cx - outer, cx + outer);
+            }
+        }
+    }
+
+    /**
+     * Fills the path built since {@link #beginPath()} with the nonzero winding rule.
+     */
+    private void fillPath() {
+        closeContour();
+        double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < pathSize; i++) {
+            minY = Math.min(minY, pathY[i]);
+            maxY = Math.max(maxY, pathY[i]);
+        }
+        int last = Math.min(height, row(maxY));
+        for (int row = Math.max(0, row(minY)); row < last; row++) {
+            double sy = row + 0.5;
+            int count = 0;
+            int start = 0;
+            for (int c = 0; c < contourCount; c++) {
+                int end = contourEnds[c];
+                for (int i = start; i < end; i++) {
+                    int j = i + 1 < end ? i + 1 : start; // Edge from point i to the next, closing the contour
+                    double y0 = pathY[i], y1 = pathY[j];
+                    if ((y0 <= sy && sy < y1) || (y1 <= sy && sy < y0)) {
+                        if (count == crossings.length) {
+                            crossings = Arrays.copyOf(crossings, count * 2);
+                            windings = Arrays.copyOf(windings, count * 2);
+                        }
+                        double x = pathX[i] + (sy - y0) * (pathX[j] - pathX[i]) / (y1 - y0);
+                        // Insertion sort, a scanline only crosses a few edges
+                        int k = count++;
+                        while (k > 0 && crossings[k - 1] > x) {
+                            crossings[k] = crossings[k - 1];
+                            windings[k] = windings[k - 1];
+                            k--;
+                        }
+                        crossings[k] = x;
+                        windings[k] = y1 > y0 ? 1 : -1;
+                    }
+                }
+                start = end;
+            }
+            // Inside wherever the crossings to the left do not cancel out
+            int winding = 0;
+            double spanStart = 0;
+            for (int k = 0; k < count; k++) {
+                if (winding == 0) {
+                    spanStart = crossings[k];
+                }
+                winding += windings[k];
+                if (winding == 0) {
+                    fillSpan(row, spanStart, crossings[k]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills the pixels of a row whose centres lie between two x-coordinates.
+     *
+     * @param row the row
+     * @param from the x-coordinate where the span starts
+     * @param to the x-coordinate where the span ends
+     */
+    private void fillSpan(int row, double from, double to) {
+        int x0 = Math.max(0, column(from));
+        int x1 = Math.min(width, column(to));
+        if (x0 >= x1) {
+            return;
+        }
+        int base = row * width;
+        if (gradient == null && solid >>> 24 == 255) {
+            Arrays.fill(pixels, base + x0, base + x1, solid);
+            return;
+        }
+        for (int x = x0; x < x1; x++) {
+            blend(base + x, gradient == null ? solid : shade(x, row));
+        }
+    }
+
+    /**
+     * Blends a color over a pixel.
+     *
+     * @param index the index of the pixel
+     * @param argb the color as a non-premultiplied ARGB value
+     */
+    private void blend(int index, int argb) {
+        int sa = argb >>> 24;
+        if (sa == 255) {
+            pixels[index] = argb;
+            return;
+        }
+        if (sa == 0) {
+            return;
+        }
+        int dst = pixels[index];
+        int dw = (dst >>> 24) * (255 - sa) / 255; // Weight left to the pixel underneath
+        int oa = sa + dw;
+        int r = (((argb >> 16) & 0xFF) * sa + ((dst >> 16) & 0xFF) * dw) / oa;
+        int g = (((argb >> 8) & 0xFF) * sa + ((dst >> 8) & 0xFF) * dw) / oa;
+        int b = ((argb & 0xFF) * sa + (dst & 0xFF) * dw) / oa;
+        pixels[index] = oa << 24 | r << 16 | g << 8 | b;
+    }
+
+    /**
+     * Starts a new path.
+     */
+    private void beginPath() {
+        pathSize = 0;
+        contourCount = 0;
+    }
+
+    /**
+     * Adds a point, in drawing coordinates, to the contour in progress.
+     *
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     */
+    private void addPoint(double x, double y) {
+        if (pathSize == pathX.length) {
+            pathX = Arrays.copyOf(pathX, pathSize * 2);
+            pathY = Arrays.copyOf(pathY, pathSize * 2);
+        }
+        pathX[pathSize] = transformX(x, y);
+        pathY[pathSize] = transformY(x, y);
+        pathSize++;
+    }
+
+    /**
+     * Closes the contour in progress, if it has any points.
+     */
+    private void closeContour() {
+        int start = contourCount > 0 ? contourEnds[contourCount - 1] : 0;
+        if (pathSize > start) {
+            if (contourCount == contourEnds.length) {
+                contourEnds = Arrays.copyOf(contourEnds, contourCount * 2);
+            }
+            contourEnds[contourCount++] = pathSize;
+        }
+    }
+
+    /**
+     * Adds a rectangle to the path as a closed contour.
+     *
+     * @param x0 the left edge
+     * @param y0 the top edge
+     * @param x1 the right edge
+     * @param y1 the bottom edge
+     * @param reversed whether to trace it the other way round, to cut a hole
+     */
+    private void addRect(double x0, double y0, double x1, double y1, boolean reversed) {
+        closeContour();
+        addPoint(x0, y0);
+        if (reversed) {
+            addPoint(x0, y1);
+            addPoint(x1, y1);
+            addPoint(x1, y0);
+        } else {
+            addPoint(x1, y0);
+            addPoint(x1, y1);
+            addPoint(x0, y1);
+        }
+        closeContour();
+    }
+
+    /**
+     * Adds an arc of an ellipse to the contour in progress, as a chain of short segments.
+     * Angles follow the JavaFX convention: degrees, counter-clockwise as seen on screen.
+     *
+     * @param cx the x-coordinate of the centre
+     * @param cy the y-coordinate of the centre
+     * @param rx the horizontal radius
+     * @param ry the vertical radius
+     * @param startAngle the start angle
+     * @param extent the angular extent
+     */
+    private void addEllipse(double cx, double cy, double rx, double ry, double startAngle, double extent) {
+        double scale = Math.sqrt(Math.abs(m00 * m11 - m01 * m10)); // Pixels per drawing unit
+        double length = Math.abs(Math.toRadians(extent)) * Math.max(rx, ry) * scale;
+        int segments = Math.max((int) Math.ceil(MIN_CURVE_SEGMENTS * Math.abs(extent) / 360),
+                (int) Math.ceil(length / CURVE_STEP));
+        double start = Math.toRadians(startAngle);
+        double step = Math.toRadians(extent) / Math.max(1, segments);
+        for (int i = 0; i <= segments; i++) {
+            double angle = start + i * step;
+            addPoint(cx + rx * Math.cos(angle), cy - ry * Math.sin(angle));
+        }
+    }
+
+    /**
+     * Transforms a point to pixel coordinates and returns its x-coordinate.
+     *
+     * @param x the x-coordinate in drawing coordinates
+     * @param y the y-coordinate in drawing coordinates
+     * @return the x-coordinate in pixels
+     */
+    private double transformX(double x, double y) {
+        return m00 * x + m01 * y + m02;
+    }
+
+    /**
+     * Transforms a point to pixel coordinates and returns its y-coordinate.
+     *
+     * @param x the x-coordinate in drawing coordinates
+     * @param y the y-coordinate in drawing coordinates
+     * @return the y-coordinate in pixels
+     */
+    private double transformY(double x, double y) {
+        return m10 * x + m11 * y + m12;
+    }
+
+    /**
+     * Gets the first column whose pixel centre lies at or right of an x-coordinate.
+     *
+     * @param x the x-coordinate in pixels
+     * @return the column, which may lie outside the framebuffer
+     */
+    private static int column(double x) {
+        return (int) Math.max(Integer.MIN_VALUE / 2, Math.min(Integer.MAX_VALUE / 2, Math.ceil(x - 0.5)));
+    }
+
+    /**
+     * Gets the first row whose pixel centre lies at or below a y-coordinate.
+     *
+     * @param y the y-coordinate in pixels
+     * @return the row, which may lie outside the framebuffer
+     */
+    private static int row(double y) {
+        return column(y);
+    }
+
+    /**
+     * Converts a color to an ARGB value.
+     *
+     * @param color the color
+     * @return the ARGB value
+     */
+    private static int argb(Color color) {
+        return (int) Math.round(color.getOpacity() * 255) << 24
+                | (int) Math.round(color.getRed() * 255) << 16
+                | (int) Math.round(color.getGreen() * 255) << 8
+                | (int) Math.round(color.getBlue() * 255);
+    }
+}
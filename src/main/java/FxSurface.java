@@ -0,0 +1,183 @@
+package ok;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Paint;
+import javafx.scene.shape.ArcType;
+
+/**
+ * A drawing surface backed by the GraphicsContext of a JavaFX canvas.
+ * Every operation is passed straight to the GraphicsContext.
+ */
+public class FxSurface implements DrawingSurface {
+    private final GraphicsContext gc; // The canvas' graphics context
+
+    /**
+     * Wraps the graphics context of a canvas.
+     *
+     * @param gc the graphics context to draw on
+     */
+    public FxSurface(GraphicsContext gc) {
+        this.gc = gc;
+    }
+
+    /**
+     * Sets the paint of the following fill operations on the canvas.
+     *
+     * @param paint the fill paint
+     */
+    @Override
+    public void setFill(Paint paint) {
+        gc.setFill(paint);
+    }
+
+    /**
+     * Sets the paint of the following stroke operations on the canvas.
+     *
+     * @param paint the stroke paint
+     */
+    @Override
+    public void setStroke(Paint paint) {
+        gc.setStroke(paint);
+    }
+
+    /**
+     * Sets the width of the lines stroked on the canvas.
+     *
+     * @param width the line width
+     */
+    @Override
+    public void setLineWidth(double width) {
+        gc.setLineWidth(width);
+    }
+
+    /**
+     * Fills an oval inscribed in a rectangle on the canvas.
+     *
+     * @param x the x-coordinate of the rectangle's left edge
+     * @param y the y-coordinate of the rectangle's top edge
+     * @param w the width of the rectangle
+     * @param h the height of the rectangle
+     */
+    @Override
+    public void fillOval(double x, double y, double w, double h) {
+        gc.fillOval(x, y, w, h);
+    }
+
+    /**
+     * Strokes the outline of an oval inscribed in a rectangle on the canvas.
+     *
+     * @param x the x-coordinate of the rectangle's left edge
+     * @param y the y-coordinate of the rectangle's top edge
+     * @param w the width of the rectangle
+     * @param h the height of the rectangle
+     */
+    @Override
+    public void strokeOval(double x, double y, double w, double h) {
+        gc.strokeOval(x, y, w, h);
+    }
+
+    /**
+     * Fills a rectangle on the canvas.
+     *
+     * @param x the x-coordinate of the left edge
+     * @param y the y-coordinate of the top edge
+     * @param w the width of the rectangle
+     * @param h the height of the rectangle
+     */
+    @Override
+    public void fillRect(double x, double y, double w, double h) {
+        gc.fillRect(x, y, w, h);
+    }
+
+    /**
+     * Strokes the outline of a rectangle on the canvas.
+     *
+     * @param x the x-coordinate of the left edge
+     * @param y the y-coordinate of the top edge
+     * @param w the width of the rectangle
+     * @param h the height of the rectangle
+     */
+    @Override
+    public void strokeRect(double x, double y, double w, double h) {
+        gc.strokeRect(x, y, w, h);
+    }
+
+    /**
+     * Strokes a line between two points on the canvas.
+     *
+     * @param x1 the x-coordinate of the start point
+     * @param y1 the y-coordinate of the start point
+     * @param x2 the x-coordinate of the end point
+     * @param y2 the y-coordinate of the end point
+     */
+    @Override
+    public void strokeLine(double x1, double y1, double x2, double y2) {
+        gc.strokeLine(x1, y1, x2, y2);
+    }
+
+    /**
+     * Fills an arc of an oval inscribed in a rectangle on the canvas.
+     *
+     * @param x the x-coordinate of the rectangle's left edge
+     * @param y the y-coordinate of the rectangle's top edge
+     * @param w the width of the rectangle
+     * @param h the height of the rectangle
+     * @param startAngle the start angle of the arc, in degrees
+     * @param arcExtent the angular extent of the arc, in degrees
+     * @param closure how the arc is closed
+     */
+    @Override
+    public void fillArc(double x, double y, double w, double h, double startAngle, double arcExtent, ArcType closure) {
+        gc.fillArc(x, y, w, h, startAngle, arcExtent, closure);
+    }
+
+    /**
+     * Clears a rectangle of the canvas to transparent.
+     *
+     * @param x the x-coordinate of the left edge
+     * @param y the y-coordinate of the top edge
+     * @param w the width of the rectangle
+     * @param h the height of the rectangle
+     */
+    @Override
+    public void clearRect(double x, double y, double w, double h) {
+        gc.clearRect(x, y, w, h);
+    }
+
+    /**
+     * Saves the graphics context's attributes and transform on its stack.
+     */
+    @Override
+    public void save() {
+        gc.save();
+    }
+
+    /**
+     * Restores the attributes and transform saved by the matching {@link #save()}.
+     */
+    @Override
+    public void restore() {
+        gc.restore();
+    }
+
+    /**
+     * Moves the origin of the following drawing operations on the canvas.
+     *
+     * @param x the horizontal offset
+     * @param y the vertical offset
+     */
+    @Override
+    public void translate(double x, double y) {
+        gc.translate(x, y);
+    }
+
+    /**
+     * Rotates the following drawing operations on the canvas around the origin.
+     *
+     * @param degrees the clockwise rotation on screen, in degrees
+     */
+    @Override
+    public void rotate(double degrees) {
+        gc.rotate(degrees);
+    }
+}
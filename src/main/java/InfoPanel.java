@@ -43,8 +43,8 @@ public class InfoPanel extends VBox {
     public void update(Arena arena) {
         StringBuilder info = new StringBuilder(); // Builder for assembling info text
 
-        // Iterate through all items in the arena
-        for (Item item : arena.getObjects()) {
+        // Iterate through the robots in the arena
+        for (Item item : arena.getObjectsByTag(ItemTag.ROBOT)) {
             // Check if the item is a robot
             if (item instanceof Robot robot) {
                 // Append robot details to the info string
@@ -2,7 +2,8 @@ package ok;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
-import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
 
 /**
  * Represents a generic item in the arena.
@@ -18,9 +19,23 @@ import javafx.scene.canvas.GraphicsContext;
         property = "@type"                  // JSON property name for type information
 )
 public abstract class Item {
+    private static final double DOT_RADIUS = 2; // Half the side of the square a moving item is drawn as at the lowest detail
     protected double x;       // X-coordinate of the item's position
     protected double y;       // Y-coordinate of the item's position
     protected double radius;  // Radius of the item, used for rendering and collision detection
+    @JsonIgnore
+    protected Arena arena;    // Arena the item has been added to, or null if it is not in one
+    ChunkedWorld.Chunk chunk; // Chunk of the Arena's world that currently holds the item
+    int chunkIndex;           // Position of the item in its chunk's item list
+    long handle = EntityHandle.NONE; // Generational handle assigned by the Arena
+    int index;                // Position of the item in the Arena's item list
+    final int tags = getTagMask(); // Capability tags, fixed for the lifetime of the item
+    int[] tagIndex;           // Position of the item in the Arena's list of each tag it carries, in tag order
+    boolean collidable;       // Registered with the Arena's collision system
+    boolean inSweep;          // Has an entry in the collision system's sorted array
+    double prevX, prevY;      // Position at the start of the current tick, for continuous collisions
+    int activeIndex = -1;     // Position of the item in the Arena's active list, or -1 if it is not updated
+    boolean ghost;            // Copy of an item owned by another process: sensed and collided with, never updated
 
     /**
      * Default constructor for Item. Necessary for JSON deserialization.
@@ -47,14 +62,75 @@ public abstract class Item {
     @JsonIgnore
     public abstract void update();
 
+    /**
+     * Moves the item, once every active item of the Arena has been updated this tick.
+     * Splitting the tick this way means that whatever an item senses while it updates is where the
+     * other items were at the start of the tick, whatever order the items are updated in.
+     * Items that do not move leave this empty.
+     */
+    public void advance() {
+        // Nothing to move by default
+    }
+
     /**
      * Renders the item on the given graphics context.
      * This method is abstract and must be implemented by subclasses.
      *
-     * @param gc The GraphicsContext used for rendering.
+     * @param gc The DrawingSurface used for rendering.
      */
     @JsonIgnore
-    public abstract void render(GraphicsContext gc);
+    public abstract void render(DrawingSurface gc);
+
+    /**
+     * Renders the item at a level of detail: as {@link #render(DrawingSurface)} does at
+     * {@link RenderQuality#FULL}, with {@link #renderBody(DrawingSurface)} or with
+     * {@link #renderDot(DrawingSurface)} at the cheaper levels.
+     *
+     * @param gc The DrawingSurface used for rendering.
+     * @param quality The level of detail.
+     */
+    public void render(DrawingSurface gc, RenderQuality quality) {
+        switch (quality) {
+            case FULL -> render(gc);
+            case BODIES -> renderBody(gc);
+            case DOTS -> renderDot(gc);
+        }
+    }
+
+    /**
+     * Renders the item without decoration such as ranges or auras.
+     * Items without decoration are drawn as {@link #render(DrawingSurface)} draws them.
+     *
+     * @param gc The DrawingSurface used for rendering.
+     */
+    protected void renderBody(DrawingSurface gc) {
+        render(gc);
+    }
+
+    /**
+     * Renders the item as a small square in its colour, with a single fill.
+     * Static items keep their body, since they are few and show the layout of the arena.
+     *
+     * @param gc The DrawingSurface used for rendering.
+     */
+    protected void renderDot(DrawingSurface gc) {
+        if (isStatic()) {
+            renderBody(gc);
+            return;
+        }
+        double size = Math.min(radius, DOT_RADIUS);
+        gc.setFill(dotColor());
+        gc.fillRect(x - size, y - size, size * 2, size * 2);
+    }
+
+    /**
+     * Gets the colour the item is drawn in as a dot.
+     *
+     * @return The colour.
+     */
+    protected Paint dotColor() {
+        return Color.GRAY;
+    }
 
     /**
      * Gets the x-coordinate of the item.
@@ -109,4 +185,146 @@ public abstract class Item {
     public void setRadius(double radius) {
         this.radius = radius;
     }
+
+    /**
+     * Checks whether the item never moves.
+     * Static items are never scheduled: the Arena does not call their update method.
+     *
+     * @return true if the item is static, false otherwise.
+     */
+    @JsonIgnore
+    public boolean isStatic() {
+        return false;
+    }
+
+    /**
+     * Puts the item to sleep. The Arena stops updating it until it is woken by a collision,
+     * by an item being removed next to it, or by a call to {@link #wake()}.
+     */
+    protected void sleep() {
+        if (arena != null) {
+            arena.sleep(this);
+        }
+    }
+
+    /**
+     * Wakes the item if it is asleep, so the Arena updates it again from the next tick.
+     */
+    public void wake() {
+        if (arena != null) {
+            arena.wake(this);
+        }
+    }
+
+    /**
+     * Checks whether other items collide with this one.
+     *
+     * @return true if the item is solid, false otherwise.
+     */
+    @JsonIgnore
+    public boolean isSolid() {
+        return true;
+    }
+
+    /**
+     * Checks whether the item's collision shape is an axis-aligned square rather than a circle.
+     * The square is centred on the item's position with a half-size equal to its radius.
+     *
+     * @return true if the item collides as a square, false if it collides as a circle.
+     */
+    @JsonIgnore
+    public boolean isBox() {
+        return false;
+    }
+
+    /**
+     * Gets the capability tags of the item as a mask of {@link ItemTag#mask()} bits.
+     * The value must be constant for the item's class; it is read once when the item is created.
+     *
+     * @return The tag mask.
+     */
+    @JsonIgnore
+    public int getTagMask() {
+        return 0;
+    }
+
+    /**
+     * Checks whether the item carries a capability tag.
+     *
+     * @param tag The tag to check.
+     * @return true if the item carries the tag, false otherwise.
+     */
+    public boolean hasTag(ItemTag tag) {
+        return (tags & tag.mask()) != 0;
+    }
+
+    /**
+     * Gets the generational handle the Arena assigned to the item.
+     *
+     * @return The handle, or {@link EntityHandle#NONE} if the item is not in an Arena.
+     */
+    @JsonIgnore
+    public long getHandle() {
+        return handle;
+    }
+
+    /**
+     * Gets the Arena the item has been added to.
+     *
+     * @return The Arena, or null if the item is not in one.
+     */
+    @JsonIgnore
+    public Arena getArena() {
+        return arena;
+    }
+
+    /**
+     * Sets the Arena the item belongs to. Called by {@link Arena#addObject(Item)}.
+     *
+     * @param arena The Arena the item has been added to.
+     */
+    @JsonIgnore
+    public void setArena(Arena arena) {
+        this.arena = arena;
+    }
+
+    /**
+     * Gets the number of doubles this item writes into a checkpoint buffer.
+     * Subclasses that add state of their own must extend this count.
+     *
+     * @return The number of state values.
+     */
+    @JsonIgnore
+    public int getStateSize() {
+        return 3;
+    }
+
+    /**
+     * Copies the item's state into a primitive checkpoint buffer.
+     *
+     * @param buffer The buffer to write into.
+     * @param offset The index of the first value to write.
+     * @return The index just past the last value written.
+     */
+    public int saveState(double[] buffer, int offset) {
+        buffer[offset++] = x;
+        buffer[offset++] = y;
+        buffer[offset++] = radius;
+        return offset;
+    }
+
+    /**
+     * Restores the item's state from a primitive checkpoint buffer.
+     * Values are read in the same order they were written by {@link #saveState(double[], int)}.
+     *
+     * @param buffer The buffer to read from.
+     * @param offset The index of the first value to read.
+     * @return The index just past the last value read.
+     */
+    public int restoreState(double[] buffer, int offset) {
+        x = buffer[offset++];
+        y = buffer[offset++];
+        radius = buffer[offset++];
+        return offset;
+    }
 }
@@ -0,0 +1,45 @@
+package ok;
+
+/**
+ * Capability tags that items declare and that the Arena indexes.
+ * Sensors and behaviours ask the Arena for the items carrying one tag instead of
+ * scanning every item and filtering by type.
+ */
+public enum ItemTag {
+    ROBOT(false),    // Any robot
+    SWARM(false),    // Robots taking part in swarming
+    LIGHT(true),     // Light sources
+    OBSTACLE(true),  // Static items that block movement
+    MAGNETIC(false), // Items a magnet reacts to: robots and metal walls
+    SCANNER(false);  // Robots carrying a range scanner, scanned in a batch before each update
+
+    private final boolean fixed; // Whether every item carrying the tag is static
+
+    /**
+     * Constructs a tag.
+     *
+     * @param fixed whether every item carrying the tag is static
+     */
+    ItemTag(boolean fixed) {
+        this.fixed = fixed;
+    }
+
+    /**
+     * Checks whether every item carrying this tag is static, so a sensor targeting it only has
+     * to account for its own robot's motion.
+     *
+     * @return true if the tagged items never move
+     */
+    public boolean isStatic() {
+        return fixed;
+    }
+
+    /**
+     * Gets the bit of this tag within a tag mask.
+     *
+     * @return the tag's bit
+     */
+    public int mask() {
+        return 1 << ordinal();
+    }
+}
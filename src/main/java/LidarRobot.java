@@ -0,0 +1,194 @@
+package ok;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import javafx.scene.paint.Color;
+
+/**
+ * A LidarRobot scans its surroundings with a full circle of range-finding rays.
+ * When the rays ahead of it report an obstacle too close, it turns toward the most open direction.
+ */
+public class LidarRobot extends SimpleRobot {
+    public static final int RAY_COUNT = 64;          // Default number of rays per scan
+    private static final double SCAN_RANGE = 150;    // Maximum distance of every ray
+    private static final SensorConfig SCAN = SensorConfig.of(SCAN_RANGE, SENSOR_PERIOD); // Range and scan period of every LidarRobot
+    private static final double FRONT_ANGLE = Math.PI / 6; // Rays within this angle of the heading look ahead
+    private static final double CLEARANCE = 45;      // Distance ahead below which the robot turns
+    private final RangeScanner scanner;  // The scanner producing the range readings, which holds the scan period
+
+    /**
+     * Constructs a LidarRobot with the default number of rays.
+     *
+     * @param x The x-coordinate of the robot's initial position.
+     * @param y The y-coordinate of the robot's initial position.
+     */
+    @JsonCreator
+    public LidarRobot(@JsonProperty("x") double x, @JsonProperty("y") double y) {
+        this(x, y, RAY_COUNT);
+    }
+
+    /**
+     * Constructs a LidarRobot with a given number of rays.
+     *
+     * @param x The x-coordinate of the robot's initial position.
+     * @param y The y-coordinate of the robot's initial position.
+     * @param rayCount The number of rays per scan.
+     */
+    public LidarRobot(double x, double y, int rayCount) {
+        super(x, y);
+        removeSensors();  // The scanner replaces the obstacle sensor of a simple robot
+        scanner = new RangeScanner(this, rayCount, 2 * Math.PI, SCAN);
+        addSensor(scanner);  // Sampled on the same ticks as the Arena's batch scans
+    }
+
+    /**
+     * Tags the robot as a scanner, so the Arena scans it with the others before each update.
+     *
+     * @return The tag mask.
+     */
+    @Override
+    public int getTagMask() {
+        return super.getTagMask() | ItemTag.SCANNER.mask();
+    }
+
+    /**
+     * Gets the range scanner of this robot.
+     *
+     * @return The range scanner.
+     */
+    @JsonIgnore  // Not saved; only the scan period is, and a loaded robot builds its own scanner
+    public RangeScanner getScanner() {
+        return scanner;
+    }
+
+    /**
+     * Gets the number of ticks between two scans.
+     *
+     * @return The scan period.
+     */
+    public int getScanPeriod() {
+        return scanner.getPeriod();
+    }
+
+    /**
+     * Sets the number of ticks between two scans.
+     *
+     * @param scanPeriod The scan period, 1 to scan every tick.
+     */
+    public void setScanPeriod(int scanPeriod) {
+        scanner.setPeriod(scanPeriod);
+    }
+
+    /**
+     * Gets the number of checkpoint values, including the scan period.
+     *
+     * @return The number of state values.
+     */
+    @Override
+    public int getStateSize() {
+        return super.getStateSize() + 1;
+    }
+
+    /**
+     * Copies the robot's state, including the scan period, into a checkpoint buffer.
+     *
+     * @param buffer The buffer to write into.
+     * @param offset The index of the first value to write.
+     * @return The index just past the last value written.
+     */
+    @Override
+    public int saveState(double[] buffer, int offset) {
+        offset = super.saveState(buffer, offset);
+        buffer[offset++] = scanner.getPeriod();
+        return offset;
+    }
+
+    /**
+     * Restores the robot's state, including the scan period, from a checkpoint buffer.
+     *
+     * @param buffer The buffer to read from.
+     * @param offset The index of the first value to read.
+     * @return The index just past the last value read.
+     */
+    @Override
+    public int restoreState(double[] buffer, int offset) {
+        offset = super.restoreState(buffer, offset);
+        scanner.setPeriod((int) buffer[offset++]);
+        return offset;
+    }
+
+    /**
+     * Checks whether the robot scans on this tick.
+     *
+     * @return true if a scan is due.
+     */
+    boolean isScanDue() {
+        return scanner.isDue();
+    }
+
+    /**
+     * Moves the robot, steering toward open space when a scan shows an obstacle ahead.
+     * Scans only happen every few ticks, and the robot only steers on the ticks it scans,
+     * since the rays of an older scan point where the robot was facing back then.
+     */
+    @Override
+    public void move() {
+        updateSpeed();
+        if (nextRandom() < 0.01) {
+            direction += (nextRandom() - 0.5);  // Wander slightly
+        }
+
+        if (isScanDue() && scanner.sense(arena, x, y)) {
+            float[] distances = scanner.getDistances();
+            double ahead = SCAN_RANGE;
+            int open = 0;
+            for (int i = 0; i < distances.length; i++) {
+                if (Math.abs(scanner.getOffset(i)) <= FRONT_ANGLE) {
+                    ahead = Math.min(ahead, distances[i]);
+                }
+                if (distances[i] > distances[open]) {
+                    open = i;
+                }
+            }
+            if (ahead < CLEARANCE) {
+                direction += scanner.getOffset(open);  // Turn toward the longest free ray
+            }
+        }
+    }
+
+    /**
+     * Gets the colour of the robot's body.
+     *
+     * @return The colour.
+     */
+    @Override
+    protected Color bodyColor() {
+        return Color.DARKORANGE;
+    }
+
+    /**
+     * Draws the robot with the rays of its last scan.
+     *
+     * @param gc The DrawingSurface used for rendering.
+     */
+    @Override
+    protected void drawRobot(DrawingSurface gc) {
+        float[] distances = scanner.getDistances();
+        gc.setStroke(Color.ORANGE.deriveColor(1, 1, 1, 0.3));
+        gc.setLineWidth(1);
+        for (int i = 0; i < distances.length; i++) {
+            double angle = direction + scanner.getOffset(i);
+            gc.strokeLine(x, y, x + distances[i] * Math.cos(angle), y + distances[i] * Math.sin(angle));
+        }
+
+        gc.setFill(bodyColor());
+        gc.fillOval(x - radius, y - radius, radius * 2, radius * 2);
+        drawWheels(gc);
+
+        double dirX = x + radius * Math.cos(direction);
+        double dirY = y + radius * Math.sin(direction);
+        gc.setStroke(Color.BLACK);
+        gc.strokeLine(x, y, dirX, dirY);
+    }
+}
@@ -1,6 +1,7 @@
 package ok;
 
-import javafx.scene.canvas.GraphicsContext;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import javafx.scene.paint.Color;
 
 /**
@@ -16,7 +17,8 @@ public class Light extends Item {
      * @param x The x-coordinate of the light's position.
      * @param y The y-coordinate of the light's position.
      */
-    public Light(double x, double y) {
+    @JsonCreator
+    public Light(@JsonProperty("x") double x, @JsonProperty("y") double y) {
         super(x, y, 15); // Initialize the light with a fixed radius of 15
         this.intensity = 1.0; // Default intensity
     }
@@ -31,16 +33,55 @@ public class Light extends Item {
     }
 
     /**
-     * Renders the light on the given graphics context.
-     * The light is represented by a solid yellow core and a semi-transparent yellow aura.
+     * Marks the light as static, since it never moves.
+     *
+     * @return true
+     */
+    @Override
+    public boolean isStatic() {
+        return true;
+    }
+
+    /**
+     * Tags the light as a light source.
+     *
+     * @return The tag mask.
+     */
+    @Override
+    public int getTagMask() {
+        return ItemTag.LIGHT.mask();
+    }
+
+    /**
+     * Lets robots pass through the light, which they are meant to reach.
      *
-     * @param gc The GraphicsContext used for rendering.
+     * @return false
      */
     @Override
-    public void render(GraphicsContext gc) {
-        // Draw the core of the light
+    public boolean isSolid() {
+        return false;
+    }
+
+    /**
+     * Renders the core of the light, without its aura.
+     *
+     * @param gc The DrawingSurface used for rendering.
+     */
+    @Override
+    protected void renderBody(DrawingSurface gc) {
         gc.setFill(Color.YELLOW);
         gc.fillOval(x - radius, y - radius, radius * 2, radius * 2);
+    }
+
+    /**
+     * Renders the light on the given graphics context.
+     * The light is represented by a solid yellow core and a semi-transparent yellow aura.
+     *
+     * @param gc The DrawingSurface used for rendering.
+     */
+    @Override
+    public void render(DrawingSurface gc) {
+        renderBody(gc);
 
         // Draw the glowing aura around the light
         gc.setFill(Color.YELLOW.deriveColor(1, 1, 1, 0.3));
@@ -1,8 +1,10 @@
 package ok;
 
-import javafx.scene.canvas.GraphicsContext;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import javafx.scene.paint.Color;
-import java.util.Random;
+
+import static ok.BehaviourTree.*;
 
 /**
  * Represents a robot capable of detecting and moving towards light sources.
@@ -10,9 +12,15 @@ import java.util.Random;
  */
 public class LightDetectorRobot extends SimpleRobot {
     private static final double DETECTION_RADIUS = 80; // Radius within which the robot detects light
-    private static int nextIndex = 1; // Static counter to assign unique indices to each robot
-    private int index; // Unique identifier for the robot
-    private Random random = new Random(); // Random number generator for movement variation
+    private static final SensorConfig LIGHT = SensorConfig.of(DETECTION_RADIUS, SENSOR_PERIOD); // Light sensor of every LightDetectorRobot
+    private static final int TARGET_PERIOD = 2 * SENSOR_PERIOD; // Ticks between searches for the nearest light
+    private static final int LIGHT_SENSOR = 1; // Index of the light sensor, added after the obstacle sensor of SimpleRobot
+    private long target = EntityHandle.NONE; // Handle of the nearest light found by the last search
+    // Wander now and then; when a sensor fires, face the nearest light, then turn aside
+    private static final BehaviourTree BEHAVIOUR = compile(sequence(
+            varySpeed(),
+            optional(sequence(chance(0.03), wander())),
+            optional(sequence(sensing(), optional(steerToward(0)), avoid(Math.PI / 2)))));
 
     /**
      * Constructs a LightDetectorRobot at the given position.
@@ -20,31 +28,31 @@ public class LightDetectorRobot extends SimpleRobot {
      * @param x The x-coordinate of the robot's initial position.
      * @param y The y-coordinate of the robot's initial position.
      */
-    public LightDetectorRobot(double x, double y) {
+    @JsonCreator
+    public LightDetectorRobot(@JsonProperty("x") double x, @JsonProperty("y") double y) {
         super(x, y);
-        addSensor(new LightSensor(this, DETECTION_RADIUS)); // Add a light sensor to the robot
-        index = nextIndex++; // Assign a unique index to the robot
+        addSensor(new LightSensor(this, LIGHT)); // Add a light sensor to the robot
     }
 
     /**
-     * Returns a string representation of the robot.
+     * Gets the colour of the robot's body.
      *
-     * @return A string with the robot's type and unique index.
+     * @return The colour.
      */
     @Override
-    public String toString() {
-        return "LightDetectorRobot " + index;
+    protected Color bodyColor() {
+        return Color.ORANGE;
     }
 
     /**
      * Draws the robot, including its body, wheels, direction indicator, and detection radius.
      *
-     * @param gc The GraphicsContext used for rendering.
+     * @param gc The DrawingSurface used for rendering.
      */
     @Override
-    protected void drawRobot(GraphicsContext gc) {
+    protected void drawRobot(DrawingSurface gc) {
         // Draw the robot's body
-        gc.setFill(Color.ORANGE);
+        gc.setFill(bodyColor());
         gc.fillOval(x - radius, y - radius, radius * 2, radius * 2);
 
         // Draw the wheels
@@ -63,48 +71,79 @@ public class LightDetectorRobot extends SimpleRobot {
     }
 
     /**
-     * Updates the robot's position and direction.
+     * Updates the robot's direction.
      * The robot moves towards detected light sources and avoids obstacles.
      */
     @Override
     public void move() {
-        updateSpeed();
+        BEHAVIOUR.run(this);
+    }
 
-        // Randomly change direction with a small probability
-        if (random.nextDouble() < 0.03) {
-            direction = random.nextDouble() * 2 * Math.PI;
-        }
+    /**
+     * Gets the nearest light, which the robot faces when a sensor fires.
+     *
+     * @return The nearest light, or null if there is none.
+     */
+    @Override
+    protected Item steeringTarget() {
+        return nearestLight(); // The closest light source, re-targeted every few ticks
+    }
 
-        // Check sensors for light or obstacles
-        for (Sensor sensor : sensors) {
-            if (sensor.detect(Arena.getInstance().getObjects())) {
-                Light nearestLight = findNearestLight(); // Find the closest light source
-                if (nearestLight != null) {
-                    // Move towards the nearest light source
-                    direction = Math.atan2(nearestLight.y - y, nearestLight.x - x);
-                }
-                handleObstacleAvoidance(sensor); // Adjust direction to avoid obstacles
-                break;
-            }
+    /**
+     * Gets the nearest light source, searching again every few ticks or when the last one found has
+     * been removed. Searches fall on ticks the light sensor samples, so a light it has just sensed
+     * is looked for at once. In between, the robot heads for the light found last, which may no
+     * longer be the nearest one since the robot has moved.
+     *
+     * @return The nearest Light object, or null if no lights are found.
+     */
+    private Light nearestLight() {
+        Item light = arena.getObject(target); // Null if the light has been removed since the search
+        if (isDue(TARGET_PERIOD, LIGHT_SENSOR) || light == null) {
+            light = findNearestLight();
+            target = light != null ? light.getHandle() : EntityHandle.NONE;
         }
+        return (Light) light;
+    }
 
-        // Handle wall collisions and adjust direction accordingly
-        handleWallCollision(x + currentSpeed * Math.cos(direction),
-                y + currentSpeed * Math.sin(direction));
+    /**
+     * Gets the number of checkpoint values, including the target light.
+     *
+     * @return The number of state values.
+     */
+    @Override
+    public int getStateSize() {
+        return super.getStateSize() + 2;
+    }
 
-        // Update the robot's position
-        x += currentSpeed * Math.cos(direction);
-        y += currentSpeed * Math.sin(direction);
+    /**
+     * Copies the robot's state, including the handle of the target light, into a checkpoint buffer.
+     *
+     * @param buffer The buffer to write into.
+     * @param offset The index of the first value to write.
+     * @return The index just past the last value written.
+     */
+    @Override
+    public int saveState(double[] buffer, int offset) {
+        offset = super.saveState(buffer, offset);
+        buffer[offset++] = EntityHandle.slot(target);
+        buffer[offset++] = EntityHandle.generation(target);
+        return offset;
     }
 
     /**
-     * Adjusts the robot's direction to avoid obstacles detected by sensors.
+     * Restores the robot's state, including the target light, from a checkpoint buffer.
      *
-     * @param sensor The sensor that detected an obstacle.
+     * @param buffer The buffer to read from.
+     * @param offset The index of the first value to read.
+     * @return The index just past the last value read.
      */
-    private void handleObstacleAvoidance(Sensor sensor) {
-        // Turn the robot to avoid the obstacle
-        direction += Math.PI / 2 + (random.nextDouble() - 0.5);
+    @Override
+    public int restoreState(double[] buffer, int offset) {
+        offset = super.restoreState(buffer, offset);
+        int slot = (int) buffer[offset++];
+        target = EntityHandle.of(slot, (int) buffer[offset++]);
+        return offset;
     }
 
     /**
@@ -116,8 +155,8 @@ public class LightDetectorRobot extends SimpleRobot {
         Light nearest = null;
         double minDistance = Double.MAX_VALUE;
 
-        // Iterate through all objects in the arena
-        for (Item item : Arena.getInstance().getObjects()) {
+        // Iterate through the light sources in the arena
+        for (Item item : arena.getObjectsByTag(ItemTag.LIGHT)) {
             if (item instanceof Light) {
                 // Calculate the distance to the light
                 double distance = Math.sqrt(
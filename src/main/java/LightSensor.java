@@ -5,10 +5,7 @@ import java.util.List;
 /**
  * Represents a sensor attached to a robot that can detect light sources within a specified range.
  */
-public class LightSensor implements Sensor {
-    private Robot robot; // The robot to which this sensor is attached
-    private double range; // The detection range of the sensor
-
+public class LightSensor extends CachedSensor {
     /**
      * Constructs a LightSensor with a specified robot and detection range.
      *
@@ -16,8 +13,27 @@ public class LightSensor implements Sensor {
      * @param range The detection range of the sensor in units.
      */
     public LightSensor(Robot robot, double range) {
-        this.robot = robot;
-        this.range = range;
+        this(robot, SensorConfig.of(range, Robot.SENSOR_PERIOD));
+    }
+
+    /**
+     * Constructs a LightSensor sharing its range and sampling period with other robots.
+     *
+     * @param robot The robot to which the sensor is attached.
+     * @param config The range and sampling period of the sensor.
+     */
+    public LightSensor(Robot robot, SensorConfig config) {
+        super(robot, config);
+    }
+
+    /**
+     * Declares that the sensor only reacts to light sources.
+     *
+     * @return The light tag.
+     */
+    @Override
+    public ItemTag getTarget() {
+        return ItemTag.LIGHT;
     }
 
     /**
@@ -28,22 +44,22 @@ public class LightSensor implements Sensor {
      */
     @Override
     public boolean detect(List<Item> objects) {
+        double range = getRange();
+        double nearestGap = Double.POSITIVE_INFINITY; // Signed distance of the nearest light beyond the range
         // Iterate through all objects in the arena
         for (Item obj : objects) {
             // Check if the object is a light source
-            if (obj instanceof Light) {
+            if (obj.hasTag(ItemTag.LIGHT)) {
                 // Calculate the distance between the robot and the light source
                 double distance = Math.sqrt(
                         Math.pow(robot.x - obj.x, 2) + // Difference in x-coordinates
                                 Math.pow(robot.y - obj.y, 2)   // Difference in y-coordinates
                 );
-                // Return true if the light source is within the sensor's range
-                if (distance < range) {
-                    return true;
-                }
+                nearestGap = Math.min(nearestGap, distance - range);
             }
         }
-        // No light source detected within range
-        return false;
+        // A light source is detected if the nearest one lies within the sensor's range
+        setSafeMargin(Math.abs(nearestGap));
+        return nearestGap < 0;
     }
 }
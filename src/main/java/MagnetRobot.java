@@ -1,19 +1,35 @@
 package ok;
 
-import javafx.scene.canvas.GraphicsContext;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import javafx.scene.paint.Color;
-import java.util.Random;
+
+import static ok.BehaviourTree.*;
 
 /**
  * The MagnetRobot class represents a robot with a magnetic ability to attract or repel nearby magnetic objects,
  * such as other robots or metal walls. It uses a magnetic sensor to detect these objects within a defined range.
  */
 public class MagnetRobot extends SimpleRobot {
-    private static final double MAGNETIC_RANGE = 150; // Magnetic range in units
-    private static int nextIndex = 1; // Static counter to assign unique indexes to robots
-    private int index; // Unique identifier for this robot
+    public static final double MAGNETIC_RANGE = 150; // Default magnetic range in units
+    private static final SensorConfig MAGNETIC = SensorConfig.of(MAGNETIC_RANGE, SENSOR_PERIOD); // Sensor of every MagnetRobot
+    private final MagneticSensor magneticSensor; // The sensor that detects nearby robots, and holds the magnetic range
     private boolean isAttract = true; // Determines whether the robot is attracting or repelling
-    private Random random = new Random(); // Random instance for toggling attract/repel mode
+    private static final int BEHAVIOUR_PERIOD = 3; // Ticks between polarity checks and target searches
+    private static final double FLIP_CHANCE = 1 - Math.pow(0.99, BEHAVIOUR_PERIOD); // 1% per tick, checked once per period
+    private long target = EntityHandle.NONE; // Handle of the nearest magnetic item found by the last search
+    private static final int FLIP = 0;       // Behaviour call toggling between attract and repel
+    private static final int RETARGET = 1;   // Behaviour call searching for the nearest magnetic item
+    private static final int ATTRACTING = 2; // Behaviour call checking whether the robot attracts
+    // Every few ticks maybe flip the polarity and search again; every tick face the target, or away from it
+    private static final BehaviourTree BEHAVIOUR = compile(sequence(
+            varySpeed(),
+            optional(sequence(due(BEHAVIOUR_PERIOD),
+                    optional(sequence(chance(FLIP_CHANCE), call(FLIP))),
+                    call(RETARGET))),
+            optional(selector(
+                    sequence(call(ATTRACTING), steerToward(0)),
+                    steerToward(Math.PI)))));
 
     /**
      * Constructs a MagnetRobot at the specified coordinates and initializes its magnetic sensor.
@@ -21,41 +37,120 @@ public class MagnetRobot extends SimpleRobot {
      * @param x The x-coordinate of the robot's initial position.
      * @param y The y-coordinate of the robot's initial position.
      */
-    public MagnetRobot(double x, double y) {
+    @JsonCreator
+    public MagnetRobot(@JsonProperty("x") double x, @JsonProperty("y") double y) {
         super(x, y);
-        addSensor(new MagneticSensor(this, MAGNETIC_RANGE));
-        index = nextIndex++;
+        magneticSensor = new MagneticSensor(this, MAGNETIC);
+        addSensor(magneticSensor);
+    }
+
+    /**
+     * Gets the magnetic range of the robot.
+     *
+     * @return The magnetic range.
+     */
+    public double getMagneticRange() {
+        return magneticSensor.getRange();
+    }
+
+    /**
+     * Sets the magnetic range of the robot, which is the range of its magnetic sensor.
+     *
+     * @param magneticRange The new magnetic range.
+     */
+    public void setMagneticRange(double magneticRange) {
+        magneticSensor.setRange(magneticRange);
     }
 
     /**
      * Moves the robot based on its magnetic behavior. The robot attracts or repels
      * the nearest magnetic object, adjusting its direction accordingly.
+     * The polarity and the nearest object are only revisited every few ticks; in between the robot
+     * keeps steering relative to the object it found last.
      */
     @Override
     public void move() {
-        updateSpeed();
+        BEHAVIOUR.run(this);
+    }
 
-        // Randomly toggle between attract and repel with a small probability
-        if (random.nextDouble() < 0.01) {
-            isAttract = !isAttract;
-        }
+    /**
+     * Gets the magnetic item found by the last search.
+     *
+     * @return The target, or null if none was found or it has been removed since the search.
+     */
+    @Override
+    protected Item steeringTarget() {
+        return arena.getObject(target);
+    }
 
-        // Find the nearest magnetic object (Robot or MetalWall)
-        Item nearestMagnetic = findNearestMagnetic();
-        if (nearestMagnetic != null) {
-            // Calculate the angle to the target object
-            double angleToTarget = Math.atan2(nearestMagnetic.y - y, nearestMagnetic.x - x);
-            // Adjust direction based on attract/repel mode
-            direction = isAttract ? angleToTarget : angleToTarget + Math.PI;
+    /**
+     * Runs the magnet's own behaviour: flipping the polarity, searching for the nearest magnetic
+     * item (Robot or MetalWall), or checking whether the robot attracts.
+     *
+     * @param id The number identifying the behaviour.
+     * @return true if the behaviour succeeded.
+     */
+    @Override
+    protected boolean behaviourCall(int id) {
+        switch (id) {
+            case FLIP:
+                isAttract = !isAttract;
+                return true;
+            case RETARGET:
+                Item nearest = findNearestMagnetic();
+                target = nearest != null ? nearest.getHandle() : EntityHandle.NONE;
+                return true;
+            case ATTRACTING:
+                return isAttract;
+            default:
+                return super.behaviourCall(id);
         }
+    }
 
-        // Handle collisions with walls
-        handleWallCollision(x + currentSpeed * Math.cos(direction),
-                y + currentSpeed * Math.sin(direction));
+    /**
+     * Gets the number of checkpoint values, including the attract/repel mode, the target and the magnetic range.
+     *
+     * @return The number of state values.
+     */
+    @Override
+    public int getStateSize() {
+        return super.getStateSize() + 4;
+    }
+
+    /**
+     * Copies the robot's state, including the attract/repel mode, the handle of the target and the
+     * magnetic range, into a checkpoint buffer.
+     *
+     * @param buffer The buffer to write into.
+     * @param offset The index of the first value to write.
+     * @return The index just past the last value written.
+     */
+    @Override
+    public int saveState(double[] buffer, int offset) {
+        offset = super.saveState(buffer, offset);
+        buffer[offset++] = isAttract ? 1 : 0;
+        buffer[offset++] = EntityHandle.slot(target);
+        buffer[offset++] = EntityHandle.generation(target);
+        buffer[offset++] = magneticSensor.getRange();
+        return offset;
+    }
 
-        // Update position based on current speed and direction
-        x += currentSpeed * Math.cos(direction);
-        y += currentSpeed * Math.sin(direction);
+    /**
+     * Restores the robot's state, including the attract/repel mode, the target and the magnetic range,
+     * from a checkpoint buffer.
+     *
+     * @param buffer The buffer to read from.
+     * @param offset The index of the first value to read.
+     * @return The index just past the last value read.
+     */
+    @Override
+    public int restoreState(double[] buffer, int offset) {
+        offset = super.restoreState(buffer, offset);
+        isAttract = buffer[offset++] != 0;
+        int slot = (int) buffer[offset++];
+        target = EntityHandle.of(slot, (int) buffer[offset++]);
+        magneticSensor.setRange(buffer[offset++]);
+        return offset;
     }
 
     /**
@@ -65,12 +160,13 @@ public class MagnetRobot extends SimpleRobot {
      */
     private Item findNearestMagnetic() {
         Item nearest = null;
-        double minDistance = MAGNETIC_RANGE;
+        double magneticRange = magneticSensor.getRange();
+        double minDistance = magneticRange;
 
         // Iterate through all objects in the arena
-        for (Item item : Arena.getInstance().getObjects()) {
+        for (Item item : arena.getObjectsNear(x, y, magneticRange, ItemTag.MAGNETIC)) {
             // Check if the item is a magnetic object (Robot or MetalWall) and is not this robot
-            if ((item instanceof Robot || item instanceof MetalWall) && item != this) {
+            if (item.hasTag(ItemTag.MAGNETIC) && item != this) {
                 // Calculate the distance to the object
                 double distance = Math.sqrt(
                         Math.pow(x - item.x, 2) + Math.pow(y - item.y, 2)
@@ -85,16 +181,26 @@ public class MagnetRobot extends SimpleRobot {
         return nearest;
     }
 
+    /**
+     * Gets the colour of the robot's body.
+     *
+     * @return The colour.
+     */
+    @Override
+    protected Color bodyColor() {
+        return Color.PURPLE;
+    }
+
     /**
      * Draws the robot on the canvas with a visual representation of its magnetic range
      * and its current mode (attract/repel).
      *
-     * @param gc The GraphicsContext object used for drawing.
+     * @param gc The DrawingSurface object used for drawing.
      */
     @Override
-    protected void drawRobot(GraphicsContext gc) {
+    protected void drawRobot(DrawingSurface gc) {
         // Draw the robot's body
-        gc.setFill(Color.PURPLE);
+        gc.setFill(bodyColor());
         gc.fillOval(x - radius, y - radius, radius * 2, radius * 2);
 
         // Draw the robot's wheels
@@ -103,7 +209,8 @@ public class MagnetRobot extends SimpleRobot {
         // Draw the magnetic range with a color indicating the mode
         gc.setStroke(isAttract ? Color.RED : Color.BLUE);
         gc.setLineWidth(1);
-        gc.strokeOval(x - MAGNETIC_RANGE, y - MAGNETIC_RANGE,
-                MAGNETIC_RANGE * 2, MAGNETIC_RANGE * 2);
+        double magneticRange = magneticSensor.getRange();
+        gc.strokeOval(x - magneticRange, y - magneticRange,
+                magneticRange * 2, magneticRange * 2);
     }
 }
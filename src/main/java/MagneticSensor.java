@@ -5,10 +5,7 @@ import java.util.List;
 /**
  * Represents a magnetic sensor attached to a robot that detects nearby robots within a specified range.
  */
-public class MagneticSensor implements Sensor {
-    private Robot robot; // The robot to which this sensor is attached
-    private double range; // The detection range of the sensor
-
+public class MagneticSensor extends CachedSensor {
     /**
      * Constructs a MagneticSensor with a specified robot and detection range.
      *
@@ -16,8 +13,27 @@ public class MagneticSensor implements Sensor {
      * @param range The detection range of the sensor in units.
      */
     public MagneticSensor(Robot robot, double range) {
-        this.robot = robot;
-        this.range = range;
+        this(robot, SensorConfig.of(range, Robot.SENSOR_PERIOD));
+    }
+
+    /**
+     * Constructs a MagneticSensor sharing its range and sampling period with other robots.
+     *
+     * @param robot The robot to which the sensor is attached.
+     * @param config The range and sampling period of the sensor.
+     */
+    public MagneticSensor(Robot robot, SensorConfig config) {
+        super(robot, config);
+    }
+
+    /**
+     * Declares that the sensor only reacts to robots.
+     *
+     * @return The robot tag.
+     */
+    @Override
+    public ItemTag getTarget() {
+        return ItemTag.ROBOT;
     }
 
     /**
@@ -28,22 +44,22 @@ public class MagneticSensor implements Sensor {
      */
     @Override
     public boolean detect(List<Item> objects) {
+        double range = getRange();
+        double nearestGap = Double.POSITIVE_INFINITY; // Signed distance of the nearest robot beyond the range
         // Iterate through all items in the arena
         for (Item obj : objects) {
             // Check if the item is a robot and is not the robot to which this sensor is attached
-            if (obj instanceof Robot && obj != robot) {
+            if (obj.hasTag(ItemTag.ROBOT) && obj != robot) {
                 // Calculate the distance between the sensor's robot and the other robot
                 double distance = Math.sqrt(
                         Math.pow(robot.x - obj.x, 2) + // Difference in x-coordinates
                                 Math.pow(robot.y - obj.y, 2)   // Difference in y-coordinates
                 );
-                // Return true if the other robot is within the sensor's range
-                if (distance < range) {
-                    return true;
-                }
+                nearestGap = Math.min(nearestGap, distance - range);
             }
         }
-        // No robot detected within range
-        return false;
+        // Another robot is detected if the nearest one lies within the sensor's range
+        setSafeMargin(Math.abs(nearestGap));
+        return nearestGap < 0;
     }
 }
@@ -79,8 +79,9 @@ public class MenuSetup {
             try {
                 // Use Jackson to serialize the objects into JSON and save them
                 ObjectMapper mapper = new ObjectMapper();
-                List<Item> items = Arena.getInstance().getObjects();
-                mapper.writeValue(file, items);
+                List<Item> items = app.getArena().getObjects();
+                // Write through the element type, or the items lose the type information needed to load them
+                mapper.writerFor(new TypeReference<List<Item>>() {}).writeValue(file, items);
             } catch (IOException ex) {
                 // Show error dialog if saving fails
                 showError("Error saving configuration: " + ex.getMessage());
@@ -89,7 +90,7 @@ public class MenuSetup {
     }
 
     /**
-     * Loads a configuration of robots from a JSON file.
+     * Loads a configuration of robots from a JSON file, in the background.
      */
     private void loadConfiguration() {
         FileChooser fileChooser = new FileChooser();
@@ -102,12 +103,8 @@ public class MenuSetup {
         File file = fileChooser.showOpenDialog(stage);
         if (file != null) {
             try {
-                // Use Jackson to deserialize the JSON into a list of items
-                ObjectMapper mapper = new ObjectMapper();
-                List<Item> items = mapper.readValue(file,
-                        new TypeReference<List<Item>>() {});
-                Arena.getInstance().getObjects().clear(); // Clear the existing items
-                Arena.getInstance().getObjects().addAll(items); // Load the new items
+                // Read the items in the background; they appear in the arena as they are parsed
+                app.loadScenario(file.toPath(), this::showError);
             } catch (IOException ex) {
                 // Show error dialog if loading fails
                 showError("Error loading configuration: " + ex.getMessage());
@@ -142,7 +139,8 @@ public class MenuSetup {
                         "- Light Detector: Follows light sources\n" +
                         "- Magnet Robot: Attracted to or repelled by other robots\n" +
                         "- Pathfinder Robot: Follows preset patrol waypoints\n" +
-                        "- Swarm Robot: Forms groups with nearby robots\n\n" +
+                        "- Swarm Robot: Forms groups with nearby robots\n" +
+                        "- Lidar Robot: Scans for obstacles with a circle of rays\n\n" +
                         "Controls:\n" +
                         "- Use buttons to add/remove robots\n" +
                         "- Pause/Resume to control simulation\n" +
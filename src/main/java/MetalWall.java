@@ -1,6 +1,7 @@
 package ok;
 
-import javafx.scene.canvas.GraphicsContext;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.LinearGradient;
 import javafx.scene.paint.CycleMethod;
@@ -18,7 +19,8 @@ public class MetalWall extends Item {
      * @param x The x-coordinate of the wall's position.
      * @param y The y-coordinate of the wall's position.
      */
-    public MetalWall(double x, double y) {
+    @JsonCreator
+    public MetalWall(@JsonProperty("x") double x, @JsonProperty("y") double y) {
         super(x, y, 40); // Default size for the wall
     }
 
@@ -42,13 +44,43 @@ public class MetalWall extends Item {
     }
 
     /**
-     * Renders the MetalWall on the provided GraphicsContext.
+     * Marks the wall as static, since it never moves.
+     *
+     * @return true
+     */
+    @Override
+    public boolean isStatic() {
+        return true;
+    }
+
+    /**
+     * Tags the wall as blocking movement and as magnetic.
+     *
+     * @return The tag mask.
+     */
+    @Override
+    public int getTagMask() {
+        return ItemTag.OBSTACLE.mask() | ItemTag.MAGNETIC.mask();
+    }
+
+    /**
+     * Makes the wall collide as the square it is drawn as.
+     *
+     * @return true
+     */
+    @Override
+    public boolean isBox() {
+        return true;
+    }
+
+    /**
+     * Renders the MetalWall on the provided DrawingSurface.
      * It uses a gradient to create a metallic appearance and adds a border for definition.
      *
-     * @param gc The GraphicsContext used to draw on the canvas.
+     * @param gc The DrawingSurface used to draw on the canvas.
      */
     @Override
-    public void render(GraphicsContext gc) {
+    public void render(DrawingSurface gc) {
         // Create a linear gradient to give the wall a metallic look
         LinearGradient gradient = new LinearGradient(
                 x - radius, y - radius, // Start point of the gradient
@@ -1,6 +1,7 @@
 package ok;
 
-import javafx.scene.canvas.GraphicsContext;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import javafx.scene.paint.Color;
 
 /**
@@ -15,7 +16,8 @@ public class Obstacle extends Item {
      * @param x The x-coordinate of the obstacle's position.
      * @param y The y-coordinate of the obstacle's position.
      */
-    public Obstacle(double x, double y) {
+    @JsonCreator
+    public Obstacle(@JsonProperty("x") double x, @JsonProperty("y") double y) {
         super(x, y, 25); // Default size for the obstacle
     }
 
@@ -28,13 +30,43 @@ public class Obstacle extends Item {
     }
 
     /**
-     * Renders the Obstacle on the provided GraphicsContext.
+     * Marks the obstacle as static, since it never moves.
+     *
+     * @return true
+     */
+    @Override
+    public boolean isStatic() {
+        return true;
+    }
+
+    /**
+     * Tags the obstacle as something that blocks movement.
+     *
+     * @return The tag mask.
+     */
+    @Override
+    public int getTagMask() {
+        return ItemTag.OBSTACLE.mask();
+    }
+
+    /**
+     * Makes the obstacle collide as the square it is drawn as.
+     *
+     * @return true
+     */
+    @Override
+    public boolean isBox() {
+        return true;
+    }
+
+    /**
+     * Renders the Obstacle on the provided DrawingSurface.
      * It fills a square with a gray color to represent the obstacle.
      *
-     * @param gc The GraphicsContext used to draw on the canvas.
+     * @param gc The DrawingSurface used to draw on the canvas.
      */
     @Override
-    public void render(GraphicsContext gc) {
+    public void render(DrawingSurface gc) {
         // Set the fill color to gray for the obstacle
         gc.setFill(Color.GRAY);
 
@@ -4,12 +4,9 @@ import java.util.List;
 
 /**
  * ObstacleSensor is a sensor used by a robot to detect nearby obstacles within a given range.
- * It implements the Sensor interface and provides the logic to detect objects in the robot's environment.
+ * It is a cached sensor and provides the logic to detect objects in the robot's environment.
  */
-public class ObstacleSensor implements Sensor {
-    private Robot robot;          // The robot that owns this sensor
-    private double detectionRange; // The range within which the sensor can detect obstacles
-
+public class ObstacleSensor extends CachedSensor {
     /**
      * Constructor for ObstacleSensor.
      *
@@ -17,18 +14,31 @@ public class ObstacleSensor implements Sensor {
      * @param detectionRange The detection range of the sensor.
      */
     public ObstacleSensor(Robot robot, double detectionRange) {
-        this.robot = robot;
-        this.detectionRange = detectionRange;
+        this(robot, SensorConfig.of(detectionRange, Robot.SENSOR_PERIOD));
+    }
+
+    /**
+     * Constructs an ObstacleSensor sharing its range and sampling period with other robots.
+     *
+     * @param robot The robot to which the sensor is attached.
+     * @param config The range and sampling period of the sensor.
+     */
+    public ObstacleSensor(Robot robot, SensorConfig config) {
+        super(robot, config);
     }
 
     /**
      * Detects if any object in the given list of items is within the detection range of the sensor.
+     * Every object is checked, so that the safe margin is the gap between the range and the object
+     * closest to it.
      *
      * @param objects The list of items to check for obstacles.
      * @return true if an obstacle is detected within the range, false otherwise.
      */
     @Override
     public boolean detect(List<Item> objects) {
+        double range = getRange();
+        double nearestGap = Double.POSITIVE_INFINITY; // Signed distance of the nearest object beyond the range
         // Loop through all the objects to check for proximity to the robot
         for (Item obj : objects) {
             // Skip the robot itself
@@ -38,15 +48,12 @@ public class ObstacleSensor implements Sensor {
                         Math.pow(robot.x - obj.x, 2) + // Difference in x coordinates
                                 Math.pow(robot.y - obj.y, 2) // Difference in y coordinates
                 );
-
-                // If the distance is less than the detection range, return true (obstacle detected)
-                if (distance < detectionRange) {
-                    return true;
-                }
+                nearestGap = Math.min(nearestGap, distance - range);
             }
         }
 
-        // If no obstacle was detected within the range, return false
-        return false;
+        // An obstacle is detected if the nearest object lies inside the range
+        setSafeMargin(Math.abs(nearestGap));
+        return nearestGap < 0;
     }
 }
@@ -0,0 +1,346 @@
+package ok;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A uniform grid over the static obstacles of an Arena, used to cast rays quickly.
+ * Each cell lists the obstacles overlapping it. A ray walks the cells it crosses in order
+ * (a DDA traversal) and only tests the obstacles of occupied cells exactly, so the cost of a ray
+ * depends on the distance it travels rather than on the number of obstacles.
+ *
+ * <p>
+ * Cells are grouped into square blocks of {@value #BLOCK_CELLS} by {@value #BLOCK_CELLS} cells, and
+ * only blocks holding an obstacle are allocated, so memory follows the number of obstacles however
+ * far apart they are. The cells of all blocks are stored together, block after block, and a hash
+ * table gives where each block starts. A ray only consults the table when it crosses into another
+ * block, not at every cell. The grid is immutable once built and can be read by many threads at
+ * the same time.
+ * </p>
+ */
+public class OccupancyGrid {
+    public static final double CELL_SIZE = 16; // Side length of a cell in pixels
+    private static final int BLOCK_SHIFT = 3;  // Log2 of the number of cells along a block's side
+    private static final int BLOCK_CELLS = 1 << BLOCK_SHIFT; // Cells along a block's side
+    private static final int BLOCK_MASK = BLOCK_CELLS - 1;   // Cell coordinate within its block
+
+    private final double originX, originY; // World position of the top-left corner of the obstacles' bounding box
+    private final int columns, rows;       // Number of cells along each axis of the bounding box
+    private final long[] blockKeys;        // Packed coordinates of the blocks holding an obstacle, open addressing, -1 if free
+    private final int[] blockFirstCell;    // Index in cellStart of the first cell of the block stored at each position of blockKeys
+    private final int blockMask;           // Table size minus one, the size being a power of two
+    private final int[] cellStart;         // Offset of each allocated cell's obstacles in cellItems, block after block, plus an end marker
+    private final Item[] cellItems;        // Obstacles of all allocated cells, stored cell after cell
+
+    /**
+     * An action run for one cell of the grid.
+     */
+    @FunctionalInterface
+    private interface CellAction {
+        /**
+         * Runs the action.
+         *
+         * @param cx the column of the cell
+         * @param cy the row of the cell
+         */
+        void accept(int cx, int cy);
+    }
+
+    /**
+     * Builds a grid over a list of obstacles.
+     *
+     * @param obstacles the obstacles to index
+     * @throws IllegalArgumentException if the obstacles span more cells along an axis than an int can count
+     */
+    public OccupancyGrid(List<Item> obstacles) {
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (Item obj : obstacles) {
+            minX = Math.min(minX, obj.x - obj.radius);
+            minY = Math.min(minY, obj.y - obj.radius);
+            maxX = Math.max(maxX, obj.x + obj.radius);
+            maxY = Math.max(maxY, obj.y + obj.radius);
+        }
+        if (obstacles.isEmpty()) {
+            minX = minY = maxX = maxY = 0;
+        }
+        originX = minX;
+        originY = minY;
+        double spanX = Math.ceil((maxX - minX) / CELL_SIZE);
+        double spanY = Math.ceil((maxY - minY) / CELL_SIZE);
+        if (!(spanX < Integer.MAX_VALUE && spanY < Integer.MAX_VALUE)) {
+            throw new IllegalArgumentException("Obstacles span too many cells: " + spanX + " x " + spanY);
+        }
+        columns = Math.max(1, (int) spanX);
+        rows = Math.max(1, (int) spanY);
+
+        // Number the blocks holding an obstacle, in the order they are first met
+        Map<Long, Integer> blocks = new HashMap<>();
+        for (Item obj : obstacles) {
+            forEachCell(obj, (cx, cy) -> blocks.putIfAbsent(blockKey(cx, cy), blocks.size()));
+        }
+        int size = Integer.highestOneBit(Math.max(1, blocks.size()) * 4 - 1); // At most half full, so lookups rarely probe twice
+        blockKeys = new long[size];
+        blockFirstCell = new int[size];
+        blockMask = size - 1;
+        Arrays.fill(blockKeys, -1);
+        for (Map.Entry<Long, Integer> entry : blocks.entrySet()) {
+            long key = entry.getKey();
+            int i = hash(key);
+            while (blockKeys[i] != -1) {
+                i = (i + 1) & blockMask;
+            }
+            blockKeys[i] = key;
+            blockFirstCell[i] = entry.getValue() * (BLOCK_CELLS * BLOCK_CELLS);
+        }
+
+        // Count the obstacles of each cell, turn the counts into offsets, then fill the cells
+        int cells = Math.multiplyExact(blocks.size(), BLOCK_CELLS * BLOCK_CELLS);
+        cellStart = new int[cells + 1];
+        for (Item obj : obstacles) {
+            forEachCell(obj, (cx, cy) -> cellStart[cell(cx, cy) + 1]++);
+        }
+        for (int i = 0; i < cells; i++) {
+            cellStart[i + 1] += cellStart[i];
+        }
+        cellItems = new Item[cellStart[cells]];
+        int[] fill = Arrays.copyOf(cellStart, cells);
+        for (Item obj : obstacles) {
+            forEachCell(obj, (cx, cy) -> cellItems[fill[cell(cx, cy)]++] = obj);
+        }
+    }
+
+    /**
+     * Casts a ray and measures the distance to the first obstacle it hits.
+     *
+     * @param x the x-coordinate of the ray's origin
+     * @param y the y-coordinate of the ray's origin
+     * @param dx the x-component of the ray's unit direction
+     * @param dy the y-component of the ray's unit direction
+     * @param range the maximum distance to look
+     * @return the distance to the first hit, or the range if nothing is hit
+     */
+    public double cast(double x, double y, double dx, double dy, double range) {
+        // Skip straight to where the ray enters the grid, if it does
+        double enter = entry(x, y, dx, dy, originX, originY,
+                originX + columns * CELL_SIZE, originY + rows * CELL_SIZE, range);
+        if (enter < 0) {
+            return range;
+        }
+
+        // Cell of the entry point, clamped since rounding may put it one cell outside
+        int cx = clamp((int) Math.floor((x + dx * enter - originX) / CELL_SIZE), columns);
+        int cy = clamp((int) Math.floor((y + dy * enter - originY) / CELL_SIZE), rows);
+        int stepX = dx > 0 ? 1 : -1;
+        int stepY = dy > 0 ? 1 : -1;
+
+        // Distance along the ray to the next vertical and horizontal cell border, and between borders
+        double deltaX = dx != 0 ? CELL_SIZE / Math.abs(dx) : Double.POSITIVE_INFINITY;
+        double deltaY = dy != 0 ? CELL_SIZE / Math.abs(dy) : Double.POSITIVE_INFINITY;
+        double nextX = dx != 0
+                ? (originX + (cx + (dx > 0 ? 1 : 0)) * CELL_SIZE - x) / dx : Double.POSITIVE_INFINITY;
+        double nextY = dy != 0
+                ? (originY + (cy + (dy > 0 ? 1 : 0)) * CELL_SIZE - y) / dy : Double.POSITIVE_INFINITY;
+
+        double nearest = range;
+        int firstCell = firstCell(cx, cy); // First cell of the current block, or -1 if it holds no obstacle
+        int enterX = dx > 0 ? 0 : BLOCK_MASK; // Column within a block where a step along x enters a new block
+        int enterY = dy > 0 ? 0 : BLOCK_MASK; // Row within a block where a step along y enters a new block
+        while (true) {
+            if (firstCell >= 0) {
+                int cell = firstCell + cellInBlock(cx, cy);
+                for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                    nearest = Math.min(nearest, intersect(cellItems[i], x, y, dx, dy, nearest));
+                }
+            }
+            double cellExit = Math.min(nextX, nextY);
+            if (nearest <= cellExit || cellExit >= range) {
+                return nearest; // Later cells only hold hits further away
+            }
+            boolean newBlock;
+            if (nextX < nextY) {
+                cx += stepX;
+                nextX += deltaX;
+                if (cx < 0 || cx >= columns) {
+                    return nearest;
+                }
+                newBlock = (cx & BLOCK_MASK) == enterX;
+            } else {
+                cy += stepY;
+                nextY += deltaY;
+                if (cy < 0 || cy >= rows) {
+                    return nearest;
+                }
+                newBlock = (cy & BLOCK_MASK) == enterY;
+            }
+            if (newBlock) {
+                firstCell = firstCell(cx, cy);
+            }
+        }
+    }
+
+    /**
+     * Intersects a ray exactly with an item's shape: a square for boxes, a circle otherwise.
+     *
+     * @param item the item
+     * @param x the x-coordinate of the ray's origin
+     * @param y the y-coordinate of the ray's origin
+     * @param dx the x-component of the ray's unit direction
+     * @param dy the y-component of the ray's unit direction
+     * @param range the maximum distance to look
+     * @return the distance to the hit, or the range if the ray misses within it
+     */
+    static double intersect(Item item, double x, double y, double dx, double dy, double range) {
+        if (item.isBox()) {
+            double hit = entry(x, y, dx, dy, item.x - item.radius, item.y - item.radius,
+                    item.x + item.radius, item.y + item.radius, range);
+            return hit < 0 ? range : hit;
+        }
+        double ox = x - item.x;
+        double oy = y - item.y;
+        double c = ox * ox + oy * oy - item.radius * item.radius;
+        if (c <= 0) {
+            return 0; // The origin is inside the circle
+        }
+        double b = ox * dx + oy * dy;
+        double disc = b * b - c;
+        if (b >= 0 || disc < 0) {
+            return range; // Pointing away, or passing beside the circle
+        }
+        return Math.min(range, -b - Math.sqrt(disc));
+    }
+
+    /**
+     * Finds where a ray enters an axis-aligned rectangle, using a slab test on each axis.
+     *
+     * @param x the x-coordinate of the ray's origin
+     * @param y the y-coordinate of the ray's origin
+     * @param dx the x-component of the ray's direction
+     * @param dy the y-component of the ray's direction
+     * @param minX the left edge of the rectangle
+     * @param minY the top edge of the rectangle
+     * @param maxX the right edge of the rectangle
+     * @param maxY the bottom edge of the rectangle
+     * @param range the maximum distance to look
+     * @return the entry distance, 0 if the origin is inside, or -1 if the ray misses within range
+     */
+    private static double entry(double x, double y, double dx, double dy,
+                                double minX, double minY, double maxX, double maxY, double range) {
+        double near = 0, far = range;
+        if (dx == 0) {
+            if (x < minX || x > maxX) {
+                return -1;
+            }
+        } else {
+            double t1 = (minX - x) / dx;
+            double t2 = (maxX - x) / dx;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+        }
+        if (dy == 0) {
+            if (y < minY || y > maxY) {
+                return -1;
+            }
+        } else {
+            double t1 = (minY - y) / dy;
+            double t2 = (maxY - y) / dy;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+        }
+        return near <= far ? near : -1;
+    }
+
+    /**
+     * Calls an action for every cell an item's bounding square overlaps.
+     *
+     * @param item the item
+     * @param action the action, given the column and row of the cell
+     */
+    private void forEachCell(Item item, CellAction action) {
+        int minCx = clamp((int) Math.floor((item.x - item.radius - originX) / CELL_SIZE), columns);
+        int maxCx = clamp((int) Math.floor((item.x + item.radius - originX) / CELL_SIZE), columns);
+        int minCy = clamp((int) Math.floor((item.y - item.radius - originY) / CELL_SIZE), rows);
+        int maxCy = clamp((int) Math.floor((item.y + item.radius - originY) / CELL_SIZE), rows);
+        for (int cy = minCy; cy <= maxCy; cy++) {
+            for (int cx = minCx; cx <= maxCx; cx++) {
+                action.accept(cx, cy);
+            }
+        }
+    }
+
+    /**
+     * Packs the coordinates of the block holding a cell into a map key.
+     *
+     * @param cx the column of the cell
+     * @param cy the row of the cell
+     * @return the key of the block
+     */
+    private static long blockKey(int cx, int cy) {
+        return (long) (cx >> BLOCK_SHIFT) << 32 | (cy >> BLOCK_SHIFT);
+    }
+
+    /**
+     * Finds the first cell of the block holding a cell.
+     *
+     * @param cx the column of the cell
+     * @param cy the row of the cell
+     * @return the index in cellStart of the block's first cell, or -1 if the block holds no obstacle
+     */
+    private int firstCell(int cx, int cy) {
+        long key = blockKey(cx, cy);
+        for (int i = hash(key); ; i = (i + 1) & blockMask) {
+            long stored = blockKeys[i];
+            if (stored == key) {
+                return blockFirstCell[i];
+            }
+            if (stored == -1) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Finds the index in cellStart of a cell whose block holds an obstacle.
+     *
+     * @param cx the column of the cell
+     * @param cy the row of the cell
+     * @return the index of the cell
+     */
+    private int cell(int cx, int cy) {
+        return firstCell(cx, cy) + cellInBlock(cx, cy);
+    }
+
+    /**
+     * Gets the position in the table where the search for a block starts.
+     *
+     * @param key the packed coordinates of the block
+     * @return the position
+     */
+    private int hash(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & blockMask;
+    }
+
+    /**
+     * Gets the index of a cell within its block.
+     *
+     * @param cx the column of the cell
+     * @param cy the row of the cell
+     * @return the index, row after row
+     */
+    private static int cellInBlock(int cx, int cy) {
+        return (cy & BLOCK_MASK) << BLOCK_SHIFT | (cx & BLOCK_MASK);
+    }
+
+    /**
+     * Clamps a cell coordinate into the grid.
+     *
+     * @param value the cell coordinate
+     * @param size the number of cells along the axis
+     * @return the clamped coordinate
+     */
+    private static int clamp(int value, int size) {
+        return Math.max(0, Math.min(size - 1, value));
+    }
+}
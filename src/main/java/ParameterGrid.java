@@ -0,0 +1,103 @@
+package ok;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A grid of named parameters, each with a list of values to try.
+ * Every combination of values is one point of the grid; combinations are addressed by index,
+ * so a sweep never needs to materialize the whole grid.
+ */
+public class ParameterGrid {
+    private final List<String> names = new ArrayList<>();     // Parameter names, in insertion order
+    private final List<double[]> values = new ArrayList<>();  // Values to try for each parameter
+
+    /**
+     * Adds a parameter with the values it should take.
+     *
+     * @param name the parameter name
+     * @param parameterValues the values to try
+     * @return this grid, for chaining
+     */
+    public ParameterGrid add(String name, double... parameterValues) {
+        if (parameterValues.length == 0) {
+            throw new IllegalArgumentException("Parameter " + name + " needs at least one value");
+        }
+        if (names.contains(name)) {
+            throw new IllegalArgumentException("Parameter " + name + " is already in the grid");
+        }
+        names.add(name);
+        values.add(parameterValues.clone());
+        return this;
+    }
+
+    /**
+     * Adds a parameter taking evenly spaced values from start to end, inclusive.
+     *
+     * @param name the parameter name
+     * @param start the first value
+     * @param end the last value
+     * @param steps the number of values, at least 2
+     * @return this grid, for chaining
+     */
+    public ParameterGrid addRange(String name, double start, double end, int steps) {
+        if (steps < 2) {
+            throw new IllegalArgumentException("A range needs at least two steps");
+        }
+        double[] range = new double[steps];
+        for (int i = 0; i < steps; i++) {
+            range[i] = start + (end - start) * i / (steps - 1);
+        }
+        return add(name, range);
+    }
+
+    /**
+     * Gets the parameter names, in the order they were added.
+     *
+     * @return the parameter names
+     */
+    public List<String> getNames() {
+        return List.copyOf(names);
+    }
+
+    /**
+     * Gets the number of combinations in the grid.
+     *
+     * @return the combination count
+     */
+    public int size() {
+        long size = 1;
+        for (double[] v : values) {
+            size *= v.length;
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Parameter grid has too many combinations");
+            }
+        }
+        return (int) size;
+    }
+
+    /**
+     * Gets the combination with the given index. The last parameter added varies fastest.
+     *
+     * @param index the combination index, from 0 to size() - 1
+     * @return the parameter values of that combination, keyed by name
+     */
+    public Map<String, Double> combination(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Combination " + index + " is outside the grid");
+        }
+        double[] picked = new double[names.size()];
+        for (int i = names.size() - 1; i >= 0; i--) {
+            double[] v = values.get(i);
+            picked[i] = v[index % v.length];
+            index /= v.length;
+        }
+        Map<String, Double> combination = new LinkedHashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            combination.put(names.get(i), picked[i]);
+        }
+        return combination;
+    }
+}
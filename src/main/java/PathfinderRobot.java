@@ -1,8 +1,8 @@
 package ok;
 
-import javafx.scene.canvas.GraphicsContext;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import javafx.scene.paint.Color;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -10,25 +10,29 @@ import java.util.List;
  * The robot moves between a series of waypoints and loops through them in a rectangular patrol path.
  */
 public class PathfinderRobot extends SimpleRobot {
-    private List<Point2D> waypoints; // List of waypoints to follow
+    // Rectangular patrol path with four waypoints, shared by every robot so it is kept and drawn once
+    private static final List<Point2D> PATROL = List.of(
+            new Point2D(100, 100),  // Top-left corner
+            new Point2D(700, 100),  // Top-right corner
+            new Point2D(700, 500),  // Bottom-right corner
+            new Point2D(100, 500)); // Bottom-left corner
+    private static final SharedDecoration PATROL_PATH = new SharedDecoration(); // Drawing of PATROL, once per frame
+
+    private final List<Point2D> waypoints = PATROL; // List of waypoints to follow
     private int currentWaypoint = 0;  // Index of the current waypoint the robot is heading to
+    private double remaining;  // Distance left to the current waypoint, which caps the next step
     private static final double WAYPOINT_RADIUS = 5;  // Radius for visualizing waypoints
     private static final double ARRIVAL_THRESHOLD = 10; // Distance threshold to consider arrival at a waypoint
 
     /**
-     * Constructor for PathfinderRobot, initializing the waypoints to form a rectangular patrol path.
+     * Constructor for PathfinderRobot, following the shared rectangular patrol path.
      *
      * @param x The initial x-coordinate of the robot.
      * @param y The initial y-coordinate of the robot.
      */
-    public PathfinderRobot(double x, double y) {
+    @JsonCreator
+    public PathfinderRobot(@JsonProperty("x") double x, @JsonProperty("y") double y) {
         super(x, y);
-        waypoints = new ArrayList<>();
-        // Create a rectangular patrol path with four waypoints
-        waypoints.add(new Point2D(100, 100));  // Top-left corner
-        waypoints.add(new Point2D(700, 100));  // Top-right corner
-        waypoints.add(new Point2D(700, 500));  // Bottom-right corner
-        waypoints.add(new Point2D(100, 500));  // Bottom-left corner
     }
 
     /**
@@ -37,6 +41,7 @@ public class PathfinderRobot extends SimpleRobot {
      */
     @Override
     public void move() {
+        remaining = 0; // Stay in place unless heading to a waypoint
         if (waypoints.isEmpty()) return; // No waypoints to follow
 
         Point2D target = waypoints.get(currentWaypoint);
@@ -49,28 +54,115 @@ public class PathfinderRobot extends SimpleRobot {
         if (distanceToTarget < ARRIVAL_THRESHOLD) {
             currentWaypoint = (currentWaypoint + 1) % waypoints.size(); // Loop back to the first waypoint after the last one
         } else {
-            // Calculate direction and move the robot towards the target
+            // Calculate direction towards the target, the robot then moves along it
             direction = Math.atan2(dy, dx); // Calculate the angle towards the target
-            x += currentSpeed * Math.cos(direction); // Update x position based on speed and direction
-            y += currentSpeed * Math.sin(direction); // Update y position based on speed and direction
+            remaining = distanceToTarget;
         }
     }
 
     /**
-     * Draws the robot and its patrol path on the provided GraphicsContext.
-     * It visualizes the waypoints and the lines connecting them.
+     * Gets the distance the robot travels in one tick, which never overshoots the current waypoint
+     * on large time steps.
+     *
+     * @return The length of one step.
+     */
+    @Override
+    protected double stepLength() {
+        return Math.min(super.stepLength(), remaining);
+    }
+
+    /**
+     * Skips the current waypoint when it is blocked by the static item the robot ran into,
+     * since the robot could otherwise never get close enough to arrive.
+     *
+     * @param other The item the robot collided with.
+     */
+    @Override
+    protected void onCollision(Item other) {
+        if (!other.isStatic() || waypoints.isEmpty()) {
+            return;
+        }
+        Point2D target = waypoints.get(currentWaypoint);
+        double dx = target.x - other.x;
+        double dy = target.y - other.y;
+        if (Math.sqrt(dx * dx + dy * dy) < other.radius * Math.sqrt(2) + ARRIVAL_THRESHOLD) {
+            currentWaypoint = (currentWaypoint + 1) % waypoints.size(); // Waypoint sits on the item
+        }
+    }
+
+    /**
+     * Gets the number of checkpoint values, including the current waypoint index.
+     *
+     * @return The number of state values.
+     */
+    @Override
+    public int getStateSize() {
+        return super.getStateSize() + 1;
+    }
+
+    /**
+     * Copies the robot's state, including the current waypoint index, into a checkpoint buffer.
+     *
+     * @param buffer The buffer to write into.
+     * @param offset The index of the first value to write.
+     * @return The index just past the last value written.
+     */
+    @Override
+    public int saveState(double[] buffer, int offset) {
+        offset = super.saveState(buffer, offset);
+        buffer[offset++] = currentWaypoint;
+        return offset;
+    }
+
+    /**
+     * Restores the robot's state, including the current waypoint index, from a checkpoint buffer.
+     *
+     * @param buffer The buffer to read from.
+     * @param offset The index of the first value to read.
+     * @return The index just past the last value read.
+     */
+    @Override
+    public int restoreState(double[] buffer, int offset) {
+        offset = super.restoreState(buffer, offset);
+        currentWaypoint = (int) buffer[offset++];
+        return offset;
+    }
+
+    /**
+     * Gets the colour of the robot's body.
      *
-     * @param gc The GraphicsContext used to draw on the canvas.
+     * @return The colour.
      */
     @Override
-    protected void drawRobot(GraphicsContext gc) {
+    protected Color bodyColor() {
+        return Color.ORANGE;
+    }
+
+    /**
+     * Draws the robot and its patrol path on the provided DrawingSurface.
+     * Robots following the same path draw it once per frame between them.
+     *
+     * @param gc The DrawingSurface used to draw on the canvas.
+     */
+    @Override
+    protected void drawRobot(DrawingSurface gc) {
         // Draw the base of the robot as an orange circle
-        gc.setFill(Color.ORANGE);
+        gc.setFill(bodyColor());
         gc.fillOval(x - radius, y - radius, radius * 2, radius * 2);
 
         drawWheels(gc); // Draw the robot's wheels (defined in SimpleRobot)
 
-        // Draw waypoints and the path between them
+        if (arena == null || arena.claimSharedDecoration(PATROL_PATH)) {
+            drawPath(gc);
+        }
+    }
+
+    /**
+     * Draws the waypoints and the lines connecting them.
+     *
+     * @param gc The DrawingSurface used to draw on the canvas.
+     */
+    private void drawPath(DrawingSurface gc) {
         gc.setFill(Color.GREEN);
         gc.setStroke(Color.GREEN);
         gc.setLineWidth(1);
@@ -0,0 +1,147 @@
+package ok;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Encodes framebuffers as 8-bit RGBA PNG images, using only the deflate and checksum classes of
+ * the JDK. Every row is stored with the PNG "Sub" filter, which turns the long runs of one color
+ * in simulation frames into runs of zeros that compress well even at the fastest deflate level.
+ *
+ * <p>
+ * An encoder reuses its buffers and its deflater from one image to the next. It is not
+ * thread-safe; give each thread its own encoder and {@link #close()} it when done.
+ * </p>
+ */
+public class PngEncoder implements AutoCloseable {
+    private static final byte[] SIGNATURE = {(byte) 137, 'P', 'N', 'G', '\r', '\n', 26, '\n'}; // PNG file signature
+    private static final int FILTER_SUB = 1; // Filter type storing each byte minus the byte one pixel left
+
+    private final Deflater deflater;  // Compresses the filtered rows
+    private final ByteArrayOutputStream compressed = new ByteArrayOutputStream(); // Image data of the IDAT chunk
+    private final byte[] buffer = new byte[1 << 16]; // Output of the deflater before it is copied
+    private final CRC32 crc = new CRC32();           // Checksum of each chunk
+    private byte[] row = new byte[0];                // One filtered row: the filter type, then RGBA bytes
+
+    /**
+     * Creates an encoder favouring speed over file size.
+     */
+    public PngEncoder() {
+        this(Deflater.BEST_SPEED);
+    }
+
+    /**
+     * Creates an encoder with a given compression level.
+     *
+     * @param level the deflate level, from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}
+     */
+    public PngEncoder(int level) {
+        deflater = new Deflater(level);
+    }
+
+    /**
+     * Writes a framebuffer as a PNG image.
+     *
+     * @param frame the framebuffer to encode
+     * @param out the stream to write the image to; it is not closed
+     * @throws IOException if the stream cannot be written
+     */
+    public void encode(Framebuffer frame, OutputStream out) throws IOException {
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        int[] pixels = frame.getPixels();
+        if (row.length != 1 + width * 4) {
+            row = new byte[1 + width * 4];
+        }
+
+        deflater.reset();
+        compressed.reset();
+        row[0] = FILTER_SUB;
+        for (int y = 0; y < height; y++) {
+            int left = 0; // The pixel left of the first one counts as zero
+            for (int x = 0, i = 1; x < width; x++, i += 4) {
+                int argb = pixels[y * width + x];
+                row[i] = (byte) ((argb >> 16) - (left >> 16));
+                row[i + 1] = (byte) ((argb >> 8) - (left >> 8));
+                row[i + 2] = (byte) (argb - left);
+                row[i + 3] = (byte) ((argb >>> 24) - (left >>> 24));
+                left = argb;
+            }
+            deflater.setInput(row);
+            while (!deflater.needsInput()) {
+                drain();
+            }
+        }
+        deflater.finish();
+        while (!deflater.finished()) {
+            drain();
+        }
+
+        byte[] header = new byte[13];
+        putInt(header, 0, width);
+        putInt(header, 4, height);
+        header[8] = 8; // Bits per channel
+        header[9] = 6; // Color type: RGB with alpha
+        out.write(SIGNATURE);
+        writeChunk(out, "IHDR", header, header.length);
+        writeChunk(out, "IDAT", compressed.toByteArray(), compressed.size());
+        writeChunk(out, "IEND", header, 0);
+    }
+
+    /**
+     * Releases the deflater's native memory. The encoder cannot be used afterwards.
+     */
+    @Override
+    public void close() {
+        deflater.end();
+    }
+
+    /**
+     * Moves the deflater's pending output into the image data.
+     */
+    private void drain() {
+        int length = deflater.deflate(buffer);
+        compressed.write(buffer, 0, length);
+    }
+
+    /**
+     * Writes a chunk: its length, type, data and checksum.
+     *
+     * @param out the stream to write to
+     * @param type the four-letter chunk type
+     * @param data the chunk data
+     * @param length the number of data bytes to write
+     * @throws IOException if the stream cannot be written
+     */
+    private void writeChunk(OutputStream out, String type, byte[] data, int length) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        byte[] number = new byte[4];
+        putInt(number, 0, length);
+        out.write(number);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+        crc.reset();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        putInt(number, 0, (int) crc.getValue());
+        out.write(number);
+    }
+
+    /**
+     * Stores an integer in big-endian order, as PNG requires.
+     *
+     * @param bytes the array to store into
+     * @param offset the index of the first byte
+     * @param value the value
+     */
+    private static void putInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+}
@@ -0,0 +1,233 @@
+package ok;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A lidar-like sensor that casts a fan of rays and measures how far each one travels before
+ * hitting an obstacle. The distances are written into a float array owned by the sensor, which
+ * is reused from one scan to the next.
+ *
+ * <p>
+ * Rays are cast against the Arena's {@link OccupancyGrid}, so a scan costs about the same however
+ * many obstacles there are. The Arena scans all scanning robots in one batch before each update;
+ * {@link #sense(Arena, double, double)} then just reads the result of that batch.
+ * </p>
+ *
+ * <p>
+ * Only the distances belong to one scanner. The directions of the rays are the same for every
+ * scanner with the same number of rays and field of view, so those scanners share one {@link Fan}.
+ * </p>
+ */
+public class RangeScanner extends SampledSensor {
+    private static final Map<Fan, Fan> FANS = new ConcurrentHashMap<>(); // Every fan in use, one per ray count and field of view
+
+    private final Fan fan;           // Directions of the rays, shared with similar scanners
+    private final float[] distances; // Distance measured by each ray in the last scan
+    private long scannedTick = -1;   // Tick of the last scan, so a tick is only scanned once
+    private int nearestRay;          // Ray with the shortest distance in the last scan
+
+    /**
+     * Directions of the rays of a scanner relative to its heading, which depend only on the number
+     * of rays and the field of view. Equal fans are interned, so the tables exist once per shape.
+     */
+    private static final class Fan {
+        final int rayCount;               // Number of rays
+        final double fieldOfView;         // Angle covered by the rays, in radians
+        final double[] offsets;           // Angle of each ray relative to the heading
+        final double[] cosOffsets, sinOffsets; // Direction of each ray relative to the heading
+
+        /**
+         * Computes the directions of the rays.
+         *
+         * @param rayCount the number of rays
+         * @param fieldOfView the angle covered by the rays, in radians; 2 pi for a full circle
+         */
+        Fan(int rayCount, double fieldOfView) {
+            this.rayCount = rayCount;
+            this.fieldOfView = fieldOfView;
+            offsets = new double[rayCount];
+            cosOffsets = new double[rayCount];
+            sinOffsets = new double[rayCount];
+
+            // A full circle must not cast the first and last ray in the same direction
+            boolean fullCircle = fieldOfView >= 2 * Math.PI;
+            double spacing = rayCount == 1 ? 0 : fieldOfView / (fullCircle ? rayCount : rayCount - 1);
+            for (int i = 0; i < rayCount; i++) {
+                offsets[i] = rayCount == 1 ? 0 : -fieldOfView / 2 + i * spacing;
+                cosOffsets[i] = Math.cos(offsets[i]);
+                sinOffsets[i] = Math.sin(offsets[i]);
+            }
+        }
+
+        /**
+         * Gets the shared fan with the given shape.
+         *
+         * @param rayCount the number of rays
+         * @param fieldOfView the angle covered by the rays, in radians
+         * @return the fan, the same object for the same shape
+         */
+        static Fan of(int rayCount, double fieldOfView) {
+            Fan fan = new Fan(rayCount, fieldOfView);
+            Fan shared = FANS.putIfAbsent(fan, fan);
+            return shared != null ? shared : fan;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Fan fan && fan.rayCount == rayCount
+                    && Double.compare(fan.fieldOfView, fieldOfView) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * rayCount + Double.hashCode(fieldOfView);
+        }
+    }
+
+    /**
+     * Constructs a range scanner.
+     *
+     * @param robot the robot to attach the sensor to
+     * @param rayCount the number of rays per scan
+     * @param fieldOfView the angle covered by the rays, in radians; 2 pi for a full circle
+     * @param range the maximum distance of every ray
+     */
+    public RangeScanner(Robot robot, int rayCount, double fieldOfView, double range) {
+        this(robot, rayCount, fieldOfView, SensorConfig.of(range, 1));
+    }
+
+    /**
+     * Constructs a range scanner sharing its range and scan period with other robots.
+     *
+     * @param robot the robot to attach the sensor to
+     * @param rayCount the number of rays per scan
+     * @param fieldOfView the angle covered by the rays, in radians; 2 pi for a full circle
+     * @param config the maximum distance of every ray and the number of ticks between scans
+     */
+    public RangeScanner(Robot robot, int rayCount, double fieldOfView, SensorConfig config) {
+        super(robot, config);
+        if (rayCount < 1) {
+            throw new IllegalArgumentException("A scanner needs at least one ray");
+        }
+        fan = Fan.of(rayCount, fieldOfView);
+        distances = new float[rayCount];
+        Arrays.fill(distances, (float) config.range());
+    }
+
+    /**
+     * Casts every ray from a position and stores the measured distances.
+     * Each scanner only writes its own array, so scanners can run on different threads.
+     *
+     * @param grid the occupancy grid to cast against
+     * @param x the x-coordinate the rays start from
+     * @param y the y-coordinate the rays start from
+     * @param heading the direction the robot faces, in radians
+     * @param tick the tick the scan belongs to
+     */
+    public void scan(OccupancyGrid grid, double x, double y, double heading, long tick) {
+        double cos = Math.cos(heading);
+        double sin = Math.sin(heading);
+        double range = getRange();
+        double[] cosOffsets = fan.cosOffsets, sinOffsets = fan.sinOffsets;
+        nearestRay = 0;
+        for (int i = 0; i < distances.length; i++) {
+            // Rotate the ray's offset by the heading instead of computing its angle
+            double dx = cos * cosOffsets[i] - sin * sinOffsets[i];
+            double dy = sin * cosOffsets[i] + cos * sinOffsets[i];
+            distances[i] = (float) grid.cast(x, y, dx, dy, range);
+            if (distances[i] < distances[nearestRay]) {
+                nearestRay = i;
+            }
+        }
+        scannedTick = tick;
+    }
+
+    /**
+     * Reports whether any ray hit an obstacle, scanning first unless the Arena has already
+     * scanned this tick. Runs on the scanner's sampling ticks, which are the ticks the Arena scans.
+     *
+     * @param arena the Arena to sense
+     * @param x the x-coordinate of the robot
+     * @param y the y-coordinate of the robot
+     * @return true if any ray hit an obstacle within range
+     */
+    @Override
+    protected boolean measure(Arena arena, double x, double y) {
+        if (scannedTick != arena.getTick()) {
+            scan(arena.getOccupancyGrid(), x, y, robot.direction, arena.getTick());
+        }
+        return distances[nearestRay] < getRange();
+    }
+
+    /**
+     * Casts every ray against a list of items directly, without the occupancy grid.
+     *
+     * @param objects the items to cast against
+     * @return true if any ray hit an item within range
+     */
+    @Override
+    public boolean detect(List<Item> objects) {
+        double cos = Math.cos(robot.direction);
+        double sin = Math.sin(robot.direction);
+        double range = getRange();
+        double[] cosOffsets = fan.cosOffsets, sinOffsets = fan.sinOffsets;
+        nearestRay = 0;
+        for (int i = 0; i < distances.length; i++) {
+            double dx = cos * cosOffsets[i] - sin * sinOffsets[i];
+            double dy = sin * cosOffsets[i] + cos * sinOffsets[i];
+            double nearest = range;
+            for (Item obj : objects) {
+                if (obj != robot) {
+                    nearest = OccupancyGrid.intersect(obj, robot.x, robot.y, dx, dy, nearest);
+                }
+            }
+            distances[i] = (float) nearest;
+            if (distances[i] < distances[nearestRay]) {
+                nearestRay = i;
+            }
+        }
+        scannedTick = -1; // Not a grid scan of any particular tick
+        return distances[nearestRay] < range;
+    }
+
+    /**
+     * Gets the distances measured by the last scan, one per ray. The array is reused by every scan.
+     *
+     * @return the distances
+     */
+    public float[] getDistances() {
+        return distances;
+    }
+
+    /**
+     * Gets the angle of a ray relative to the robot's heading.
+     *
+     * @param ray the ray index
+     * @return the angle in radians
+     */
+    public double getOffset(int ray) {
+        return fan.offsets[ray];
+    }
+
+    /**
+     * Gets the number of rays per scan.
+     *
+     * @return the ray count
+     */
+    public int getRayCount() {
+        return distances.length;
+    }
+
+    /**
+     * The scanner only sees obstacles.
+     *
+     * @return the obstacle tag
+     */
+    @Override
+    public ItemTag getTarget() {
+        return ItemTag.OBSTACLE;
+    }
+}
@@ -0,0 +1,115 @@
+package ok;
+
+/**
+ * Chooses the {@link RenderQuality} the Arena is drawn at, so that ticking and drawing together fit
+ * in the time of one frame at a target frame rate as the number of items grows.
+ *
+ * <p>
+ * After every frame, the caller reports how long the frame's ticks and its drawing took. The
+ * governor keeps a smoothed cost per item for each level it has drawn at. Drawing gets whatever the
+ * ticks leave of the frame, but never less than a quarter of it. When drawing at the current level
+ * no longer fits, the governor drops one level. When the next more detailed level is expected to
+ * fit with room to spare, it goes back up. After every switch it waits a while before switching
+ * again, so the picture does not flicker between two levels. Costs measured at a more detailed
+ * level slowly fade while it is not in use, so the governor tries it again once the scene has
+ * shrunk, or after a slow frame such as one spent compiling has made that level look more expensive
+ * than it is.
+ * </p>
+ *
+ * <p>
+ * Only time spent on the calling thread is measured. On the application's canvas, drawing records
+ * commands that JavaFX rasterises on its own thread later, and the cost of that follows the number
+ * of commands, which the lower levels cut just as much.
+ * </p>
+ */
+public class RenderGovernor {
+    private static final double SMOOTHING = 0.1;        // Weight of the newest frame in the averages
+    private static final int HOLD_FRAMES = 30;          // Frames to wait after a switch before switching again
+    private static final double MIN_RENDER_SHARE = 0.25; // Share of the frame drawing always gets, however long the ticks take
+    private static final double UPGRADE_HEADROOM = 0.6; // Share of the budget a more detailed level must be expected to use at most
+    private static final double UNMEASURED_FACTOR = 3;  // Assumed cost of a level never drawn, relative to the level below
+    private static final double FADE = 0.998;           // Per-frame decay of the costs of levels not in use
+
+    private final long frameNanos;                      // Time of one frame at the target frame rate
+    private final double[] costPerItem = new double[RenderQuality.values().length]; // Smoothed drawing time per item at each level, in ns, 0 if never measured
+    private RenderQuality quality = RenderQuality.FULL; // Level the next frame is drawn at
+    private double tickNanos;                           // Smoothed time spent ticking per frame
+    private int hold;                                   // Frames left before the level may change again
+
+    /**
+     * Creates a governor starting at full detail.
+     *
+     * @param targetFps the frame rate to keep up
+     */
+    public RenderGovernor(double targetFps) {
+        if (!(targetFps > 0)) {
+            throw new IllegalArgumentException("Target frame rate must be positive");
+        }
+        this.frameNanos = (long) (1e9 / targetFps);
+    }
+
+    /**
+     * Gets the level the next frame should be drawn at.
+     *
+     * @return the level of detail
+     */
+    public RenderQuality getQuality() {
+        return quality;
+    }
+
+    /**
+     * Records how long a frame took and picks the level of the next frame.
+     *
+     * @param frameTickNanos the time spent ticking during the frame, 0 if the simulation is paused
+     * @param renderNanos the time spent drawing the frame at {@link #getQuality()}
+     * @param items the number of items drawn
+     */
+    public void record(long frameTickNanos, long renderNanos, int items) {
+        int n = Math.max(1, items);
+        int level = quality.ordinal();
+        costPerItem[level] = smooth(costPerItem[level], (double) renderNanos / n);
+        for (int i = 0; i < level; i++) {
+            costPerItem[i] *= FADE; // Let more detailed levels be tried again eventually
+        }
+        tickNanos = smooth(tickNanos, frameTickNanos);
+
+        if (hold > 0) {
+            hold--;
+            return;
+        }
+        double budget = Math.max(frameNanos - tickNanos, frameNanos * MIN_RENDER_SHARE);
+        if (costPerItem[level] * n > budget && quality != RenderQuality.DOTS) {
+            switchTo(quality.lower());
+        } else if (quality != RenderQuality.FULL) {
+            RenderQuality higher = quality.higher();
+            double cost = costPerItem[higher.ordinal()];
+            if (cost == 0) {
+                cost = costPerItem[level] * UNMEASURED_FACTOR;
+            }
+            if (cost * n < budget * UPGRADE_HEADROOM) {
+                switchTo(higher);
+            }
+        }
+    }
+
+    /**
+     * Switches to another level and holds it for a while.
+     *
+     * @param next the new level
+     */
+    private void switchTo(RenderQuality next) {
+        quality = next;
+        hold = HOLD_FRAMES;
+    }
+
+    /**
+     * Blends a new measurement into a smoothed value, taking the first measurement as it is.
+     *
+     * @param average the smoothed value, 0 if there is none yet
+     * @param sample the new measurement
+     * @return the new smoothed value
+     */
+    private static double smooth(double average, double sample) {
+        return average == 0 ? sample : average + SMOOTHING * (sample - average);
+    }
+}
@@ -0,0 +1,32 @@
+package ok;
+
+/**
+ * Levels of detail the Arena can be drawn at, from the most detailed to the cheapest.
+ * A {@link RenderGovernor} picks one every frame to keep the frame rate up as the scene grows.
+ */
+public enum RenderQuality {
+    /** Everything: bodies, wheels, sensor ranges, beams, auras, rays and patrol paths. */
+    FULL,
+    /** Each robot as a disc in its colour with a heading line, other items without their decoration. */
+    BODIES,
+    /** Each moving item as a small square in its colour; static items as they are drawn at {@link #BODIES}. */
+    DOTS;
+
+    /**
+     * Gets the next cheaper level.
+     *
+     * @return the cheaper level, or this one if it is the cheapest
+     */
+    public RenderQuality lower() {
+        return this == DOTS ? DOTS : values()[ordinal() + 1];
+    }
+
+    /**
+     * Gets the next more detailed level.
+     *
+     * @return the more detailed level, or this one if it is the most detailed
+     */
+    public RenderQuality higher() {
+        return this == FULL ? FULL : values()[ordinal() - 1];
+    }
+}
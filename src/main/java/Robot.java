@@ -1,21 +1,23 @@
 package ok;
 
-import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Abstract base class representing a robot in the simulation.
  * It provides common properties and behavior for all robots, including movement, speed, sensors, and wheel rendering.
  */
 public abstract class Robot extends Item {
+    public static final int SENSOR_PERIOD = 3; // Default number of ticks between two samples of a sensor
     protected double maxSpeed;   // Maximum speed of the robot
     protected double currentSpeed;  // Current speed of the robot
     protected double direction;    // Direction the robot is facing (in radians)
-    protected List<Sensor> sensors;  // List of sensors attached to the robot
-    protected Random random = new Random(); // Random object for random number generation
+    private static final Sensor[] NO_SENSORS = {}; // Shared by every robot without sensors
+    protected Sensor[] sensors = NO_SENSORS;  // Sensors attached to the robot, in the order they were added
+    private long randomState = ThreadLocalRandom.current().nextLong(); // State of the robot's random numbers, checkpointed with it
+    private double headingX, headingY; // Cached unit vector of the direction
+    private double headingDirection = Double.NaN; // Direction the cached unit vector was computed for
 
     /**
      * Constructor to initialize the robot with a position, radius, and maximum speed.
@@ -30,31 +32,267 @@ public abstract class Robot extends Item {
         super(x, y, radius);
         this.maxSpeed = maxSpeed;
         // Set initial speed randomly between 50% and 100% of max speed
-        this.currentSpeed = maxSpeed * (0.5 + random.nextDouble() * 0.5);
+        this.currentSpeed = maxSpeed * (0.5 + nextRandom() * 0.5);
         // Set random initial direction in radians
-        this.direction = random.nextDouble() * 2 * Math.PI;
-        this.sensors = new ArrayList<>(); // Initialize sensors list
+        this.direction = nextRandom() * 2 * Math.PI;
     }
 
     /**
-     * Abstract method for robot movement. This method should be implemented by subclasses to define how the robot moves.
+     * Reseeds the robot's random generator and draws its initial speed and direction again from it,
+     * so that robots built from the same seeds behave identically in every run and every process.
+     *
+     * @param seed The seed.
+     */
+    public void setSeed(long seed) {
+        randomState = seed;
+        this.currentSpeed = maxSpeed * (0.5 + nextRandom() * 0.5);
+        this.direction = nextRandom() * 2 * Math.PI;
+    }
+
+    /**
+     * Draws the robot's next random number from its {@link SeededRandom} state, and steps the state.
+     *
+     * @return A number in [0, 1).
+     */
+    protected final double nextRandom() {
+        double value = SeededRandom.nextDouble(randomState);
+        randomState += SeededRandom.DOUBLE_STEP;
+        return value;
+    }
+
+    /**
+     * Returns the robot's type and the number of its slot in the Arena, counting from 1.
+     *
+     * @return A string naming the robot.
+     */
+    @Override
+    public String toString() {
+        String type = getClass().getSimpleName();
+        return handle == EntityHandle.NONE ? type : type + " " + (EntityHandle.slot(handle) + 1);
+    }
+
+    /**
+     * Abstract method for robot movement. This method should be implemented by subclasses to decide
+     * the robot's speed and direction; the position is then advanced by {@link #integrate()}.
      */
     public abstract void move();
 
+    /**
+     * Updates the robot: it steers. The Arena moves it along its direction in {@link #advance()},
+     * once every robot has steered.
+     */
+    @Override
+    public void update() {
+        move();
+    }
+
+    /**
+     * Moves the robot along its direction.
+     */
+    @Override
+    public void advance() {
+        integrate();
+    }
+
+    /**
+     * Advances the robot one step along its direction, bouncing off the Arena's walls.
+     * This stage is shared by every robot type and runs after the steering decision, so the
+     * trigonometry for the direction is evaluated at most once per tick, and not at all while
+     * the direction does not change.
+     */
+    protected final void integrate() {
+        double step = stepLength();
+        if (step <= 0) {
+            return;
+        }
+        handleWallCollision(x + step * headingX(), y + step * headingY());
+        x += step * headingX();
+        y += step * headingY();
+    }
+
+    /**
+     * Bounces the robot off the Arena's walls if its next position would leave the Arena,
+     * reflecting the direction and keeping the robot inside.
+     *
+     * @param newX The x-coordinate the robot is about to move to.
+     * @param newY The y-coordinate the robot is about to move to.
+     */
+    protected void handleWallCollision(double newX, double newY) {
+        if (arena == null) {
+            return;
+        }
+        double width = arena.getWidth();
+        double height = arena.getHeight();
+        if (newX - radius < 0 || newX + radius > width) {
+            direction = Math.PI - direction + bounceJitter();  // Reverse the direction horizontally
+            x = Math.max(radius, Math.min(width - radius, x));  // Keep within bounds
+        }
+        if (newY - radius < 0 || newY + radius > height) {
+            direction = -direction + bounceJitter();  // Reverse the direction vertically
+            y = Math.max(radius, Math.min(height - radius, y));  // Keep within bounds
+        }
+    }
+
+    /**
+     * Gets a random change added to the direction when the robot bounces off a wall.
+     * Robots bounce like a mirror by default.
+     *
+     * @return The change in radians.
+     */
+    protected double bounceJitter() {
+        return 0;
+    }
+
+    /**
+     * Gets the item the robot steers toward in a {@link BehaviourTree#steerToward(double)} node.
+     * Robots without a target return null, which makes the node fail.
+     *
+     * @return The target, or null.
+     */
+    protected Item steeringTarget() {
+        return null;
+    }
+
+    /**
+     * Runs behaviour specific to the robot's type for a {@link BehaviourTree#call(int)} node.
+     * Robots whose trees use such nodes override this.
+     *
+     * @param id The number identifying the behaviour.
+     * @return true if the behaviour succeeded.
+     */
+    protected boolean behaviourCall(int id) {
+        throw new IllegalArgumentException("No behaviour " + id + " for " + getClass().getSimpleName());
+    }
+
+    /**
+     * Gets the x-component of the unit vector the robot is facing, recomputed only when the direction changes.
+     *
+     * @return The cosine of the direction.
+     */
+    protected final double headingX() {
+        if (direction != headingDirection) {
+            refreshHeading();
+        }
+        return headingX;
+    }
+
+    /**
+     * Gets the y-component of the unit vector the robot is facing, recomputed only when the direction changes.
+     *
+     * @return The sine of the direction.
+     */
+    protected final double headingY() {
+        if (direction != headingDirection) {
+            refreshHeading();
+        }
+        return headingY;
+    }
+
+    /**
+     * Recomputes the cached unit vector from the current direction.
+     */
+    private void refreshHeading() {
+        headingX = Math.cos(direction);
+        headingY = Math.sin(direction);
+        headingDirection = direction;
+    }
+
     /**
      * Abstract method to draw the robot. This method should be implemented by subclasses to render the robot on the canvas.
      *
-     * @param gc The GraphicsContext used to draw the robot on the canvas.
+     * @param gc The DrawingSurface used to draw the robot on the canvas.
      */
-    protected abstract void drawRobot(GraphicsContext gc);
+    protected abstract void drawRobot(DrawingSurface gc);
 
     /**
-     * Adds a sensor to the robot.
+     * Gets the colour of the robot's body, also used to draw it at lower levels of detail.
+     *
+     * @return The colour.
+     */
+    protected abstract Color bodyColor();
+
+    /**
+     * Renders the robot as a disc in its colour with a line showing its heading, leaving out the
+     * wheels and whatever the robot draws around itself.
+     *
+     * @param gc The DrawingSurface used for rendering.
+     */
+    @Override
+    protected void renderBody(DrawingSurface gc) {
+        gc.setFill(bodyColor());
+        gc.fillOval(x - radius, y - radius, radius * 2, radius * 2);
+        gc.setStroke(Color.BLACK);
+        gc.strokeLine(x, y, x + radius * Math.cos(direction), y + radius * Math.sin(direction));
+    }
+
+    /**
+     * Gets the colour the robot is drawn in as a dot, the colour of its body.
+     *
+     * @return The colour.
+     */
+    @Override
+    protected Color dotColor() {
+        return bodyColor();
+    }
+
+    /**
+     * Adds a sensor to the robot. A {@link SampledSensor} is sampled as often as its configuration
+     * says; other sensors are run whenever the robot asks them.
      *
      * @param sensor The sensor to be added to the robot.
      */
     public void addSensor(Sensor sensor) {
-        sensors.add(sensor);
+        if (sensor instanceof SampledSensor sampled) {
+            sampled.setPhase(sensors.length); // Sensors of one robot are staggered by their position among its sensors
+        }
+        sensors = Arrays.copyOf(sensors, sensors.length + 1); // Robots have a sensor or two, so the array is kept exact
+        sensors[sensors.length - 1] = sensor;
+    }
+
+    /**
+     * Adds a sensor to the robot, sampled every given number of ticks. Only a {@link SampledSensor}
+     * can be sampled less than every tick; other sensors are added as they are.
+     *
+     * @param sensor The sensor to be added to the robot.
+     * @param period The number of ticks between samples, 1 to sample every tick.
+     */
+    public void addSensor(Sensor sensor, int period) {
+        if (sensor instanceof SampledSensor sampled) {
+            sampled.setPeriod(period);
+        }
+        addSensor(sensor);
+    }
+
+    /**
+     * Removes every sensor from the robot, for subclasses replacing the sensors of their superclass.
+     */
+    protected void removeSensors() {
+        sensors = NO_SENSORS;
+    }
+
+    /**
+     * Checks whether work that runs every given number of ticks is due on this tick.
+     * Robots are staggered by their handle, so such work is spread evenly over the ticks.
+     *
+     * @param period The number of ticks between runs.
+     * @return true if the work should run this tick.
+     */
+    protected boolean isDue(int period) {
+        return isDue(period, 0);
+    }
+
+    /**
+     * Checks whether work that runs every given number of ticks, shifted by an offset, is due on this tick.
+     *
+     * @param period The number of ticks between runs.
+     * @param offset A phase offset, so different kinds of work of one robot fall on different ticks.
+     * @return true if the work should run this tick.
+     */
+    boolean isDue(int period, int offset) {
+        if (period <= 1 || arena == null) {
+            return true;
+        }
+        return Math.floorMod(arena.getTick() + EntityHandle.slot(handle) + offset, period) == 0;
     }
 
     /**
@@ -85,14 +323,107 @@ public abstract class Robot extends Item {
      */
     public double getY() { return y; }
 
+    /**
+     * Tags the robot as a robot and as magnetic.
+     *
+     * @return The tag mask.
+     */
+    @Override
+    public int getTagMask() {
+        return ItemTag.ROBOT.mask() | ItemTag.MAGNETIC.mask();
+    }
+
+    /**
+     * Called by the Arena's collision system after the robot has been separated from an item
+     * it collided with. Robots that need to react to contact override this method.
+     *
+     * @param other The item the robot collided with.
+     */
+    protected void onCollision(Item other) {
+        // Most robots rely on the collision system's bounce alone
+    }
+
+    /**
+     * Gets the number of checkpoint values, including the robot's speed, direction, random generator
+     * and the last answers of its sensors.
+     *
+     * @return The number of state values.
+     */
+    @Override
+    public int getStateSize() {
+        return super.getStateSize() + 5;
+    }
+
+    /**
+     * Copies the robot's state, including speed, direction, random generator and the answers its
+     * sensors report until their next samples, into a checkpoint buffer.
+     * The generator's state is split into two ints, which a double holds exactly, and the answers
+     * are packed one bit per sensor.
+     *
+     * @param buffer The buffer to write into.
+     * @param offset The index of the first value to write.
+     * @return The index just past the last value written.
+     */
+    @Override
+    public int saveState(double[] buffer, int offset) {
+        offset = super.saveState(buffer, offset);
+        buffer[offset++] = currentSpeed;
+        buffer[offset++] = direction;
+        long seed = randomState;
+        buffer[offset++] = (int) (seed >>> 32);
+        buffer[offset++] = (int) seed;
+        long answers = 0;
+        for (int i = 0; i < sensors.length; i++) {
+            if (sensors[i] instanceof SampledSensor sampled && sampled.getLastAnswer()) {
+                answers |= 1L << i;
+            }
+        }
+        buffer[offset++] = answers;
+        return offset;
+    }
+
+    /**
+     * Restores the robot's state, including speed, direction, random generator and the last answers
+     * of its sensors, from a checkpoint buffer.
+     *
+     * @param buffer The buffer to read from.
+     * @param offset The index of the first value to read.
+     * @return The index just past the last value read.
+     */
+    @Override
+    public int restoreState(double[] buffer, int offset) {
+        offset = super.restoreState(buffer, offset);
+        currentSpeed = buffer[offset++];
+        direction = buffer[offset++];
+        long high = (long) buffer[offset++];
+        long low = (long) buffer[offset++];
+        randomState = high << 32 | low & 0xFFFFFFFFL;
+        long answers = (long) buffer[offset++];
+        for (int i = 0; i < sensors.length; i++) {
+            if (sensors[i] instanceof SampledSensor sampled) {
+                sampled.setLastAnswer((answers >>> i & 1) != 0);
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Gets the distance the robot travels in one tick: its current speed scaled by the Arena's time step.
+     *
+     * @return The length of one step.
+     */
+    protected double stepLength() {
+        return arena != null ? currentSpeed * arena.getTimeStep() : currentSpeed;
+    }
+
     /**
      * Updates the robot's speed based on a random chance.
      * The speed has a 5% chance to change every time this method is called.
      */
     protected void updateSpeed() {
-        if (random.nextDouble() < 0.05) {
+        if (nextRandom() < 0.05) {
             // Randomly adjust speed between 50% and 100% of max speed
-            currentSpeed = maxSpeed * (0.5 + random.nextDouble() * 0.5);
+            currentSpeed = maxSpeed * (0.5 + nextRandom() * 0.5);
         }
     }
 
@@ -100,9 +431,9 @@ public abstract class Robot extends Item {
      * Draws the wheels of the robot on the canvas.
      * The wheels are positioned based on the robot's direction and rendered as black rectangles.
      *
-     * @param gc The GraphicsContext used to draw the wheels on the canvas.
+     * @param gc The DrawingSurface used to draw the wheels on the canvas.
      */
-    protected void drawWheels(GraphicsContext gc) {
+    protected void drawWheels(DrawingSurface gc) {
         // Calculate the positions of the left and right wheels
         double leftWheelX = x + radius * Math.cos(direction + Math.PI/4);
         double leftWheelY = y + radius * Math.sin(direction + Math.PI/4);
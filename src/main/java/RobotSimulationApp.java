@@ -1,17 +1,24 @@
 package ok;
 
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
 import javafx.animation.AnimationTimer;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.stage.Stage;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.ChoiceBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
-import java.util.Random;
+import javafx.scene.layout.VBox;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Consumer;
 
 /**
  * Main application class for the robot simulation.
@@ -20,13 +27,34 @@ import java.util.Random;
 public class RobotSimulationApp extends Application {
     private static final double ARENA_WIDTH = 800;   // Width of the arena
     private static final double ARENA_HEIGHT = 600;  // Height of the arena
+    private static final int CHECKPOINT_CAPACITY = 60;  // Number of checkpoints kept for rewinding
+    private static final int CHECKPOINT_INTERVAL = 10;  // Ticks between two checkpoints
+    private static final long LOAD_BUDGET_NANOS = 4_000_000;  // Time per frame spent adding loaded items
+    private static final long TICK_BUDGET_NANOS = 12_000_000;  // Time per frame spent ticking, the rest of a 60 Hz frame is for drawing
+    private static final Integer[] SPEEDS = {1, 2, 5, 10, 20, 50, 100};  // Ticks per frame offered by the speed control
+    private static final long RATE_INTERVAL_NANOS = 500_000_000;  // Time between two refreshes of the tick rate
+    private static final double TARGET_FPS = 60;  // Frame rate the level of detail is lowered to keep up
     private Canvas canvas;   // Canvas where the simulation will be drawn
-    private GraphicsContext gc;  // Graphics context for drawing on the canvas
+    private DrawingSurface gc;  // Surface drawing on the canvas
     private AnimationTimer animator;   // Animator to continuously update the scene
     private boolean isPaused = false;   // Flag to pause or resume the simulation
-    private Random random = new Random();  // Random object to generate random values
+    private int speed = 1;   // Ticks run per frame when the budget allows, 1 for real time
+    private Label rateLabel;   // Shows the ticks per second achieved
+    private long rateStart;   // Frame time at which the tick rate was last measured, in nanoseconds
+    private int rateTicks;   // Ticks run since then
+    private long tickNanos;   // Time spent ticking during the current frame
+    private RenderGovernor governor = new RenderGovernor(TARGET_FPS);  // Picks the level of detail of each frame
     private BorderPane root;   // Root layout for the scene
     private InfoPanel infoPanel;  // Info panel to show statistics about the simulation
+    private Arena arena = new Arena(ARENA_WIDTH, ARENA_HEIGHT);  // The world being simulated
+    private RobotSpawner spawner = new RobotSpawner(arena);  // Places new robots clear of everything else
+    private CheckpointBuffer checkpoints = new CheckpointBuffer(CHECKPOINT_CAPACITY, CHECKPOINT_INTERVAL);  // Rewind history
+    private TelemetryServer telemetry;  // Streams the state to external viewers, or null when disabled
+    private ScenarioLoader loader;  // Configuration being loaded, or null when none is
+    private Consumer<String> loadErrorHandler;  // Told why the current load failed
+    private HBox loadBar;  // Shows the progress of a load, hidden when none is running
+    private Label loadStatus;  // Number of items loaded so far
+    private ProgressBar loadProgress;  // Fraction of the file read so far
 
     /**
      * Initializes the application, sets up the layout, controls, and starts the animation.
@@ -40,21 +68,22 @@ public class RobotSimulationApp extends Application {
         root.setTop(menuSetup.createMenuBar());  // Add menu to the top of the layout
 
         canvas = new Canvas(ARENA_WIDTH, ARENA_HEIGHT);  // Create a canvas for drawing the simulation
-        gc = canvas.getGraphicsContext2D();  // Get the graphics context for drawing
+        gc = new FxSurface(canvas.getGraphicsContext2D());  // Draw through the canvas' graphics context
 
         infoPanel = new InfoPanel();  // Initialize the info panel
         root.setRight(infoPanel);  // Add the info panel to the right side of the layout
 
         // Add obstacles to the arena
-        Arena.getInstance().addObject(new Obstacle(100, 100));
-        Arena.getInstance().addObject(new Obstacle(300, 400));
-        Arena.getInstance().addObject(new Obstacle(600, 200));
+        arena.addObject(new Obstacle(100, 100));
+        arena.addObject(new Obstacle(300, 400));
+        arena.addObject(new Obstacle(600, 200));
 
         // Add metal walls to the arena
-        Arena.getInstance().addObject(new MetalWall(200, 300));
-        Arena.getInstance().addObject(new MetalWall(500, 150));
+        arena.addObject(new MetalWall(200, 300));
+        arena.addObject(new MetalWall(500, 150));
 
         createControls();  // Set up the control buttons
+        startTelemetry();  // Serve external viewers if a telemetry port is configured
         setupAnimator();   // Set up the animation timer
 
         root.setCenter(canvas);  // Set the canvas as the center element in the layout
@@ -72,19 +101,167 @@ public class RobotSimulationApp extends Application {
         animator = new AnimationTimer() {
             @Override
             public void handle(long now) {
+                boolean changed = arena.applyCommands() > 0;  // Apply what the controls posted, even while paused
+                if (loader != null) {
+                    changed |= applyLoadedItems();  // Add what has been read since the last frame, between two ticks
+                }
+                tickNanos = 0;
                 if (!isPaused) {
-                    gc.clearRect(0, 0, ARENA_WIDTH, ARENA_HEIGHT);  // Clear the canvas
-                    Arena.getInstance().update();  // Update the state of all objects in the arena
-                    for (Item obj : Arena.getInstance().getObjects()) {
-                        obj.render(gc);  // Render each object in the arena
+                    runTicks();  // Update the state of all objects in the arena, as often as the speed asks
+                    if (telemetry != null) {
+                        telemetry.publish(arena);  // Stream the last tick to external viewers
                     }
-                    infoPanel.update(Arena.getInstance());  // Update the info panel with current data
+                    renderFrame();
+                } else if (changed) {
+                    renderFrame();  // Show the changes even while paused
                 }
+                measureRate(now);
             }
         };
         animator.start();  // Start the animation timer
     }
 
+    /**
+     * Runs up to {@link #speed} ticks, stopping early when the next one would overrun the frame's
+     * CPU budget. Only the last tick is drawn, so fast-forwarding is bounded by the cost of a tick
+     * rather than by the frame rate.
+     */
+    private void runTicks() {
+        long start = System.nanoTime();
+        for (int i = 1; i <= speed; i++) {
+            arena.update();
+            checkpoints.onTick(arena);  // Take a checkpoint every few ticks, drawn or not
+            rateTicks++;
+            tickNanos = System.nanoTime() - start;
+            if (tickNanos + tickNanos / i > TICK_BUDGET_NANOS) {
+                break;  // Another tick of the average length would not fit
+            }
+        }
+    }
+
+    /**
+     * Refreshes the ticks per second shown by the controls every {@link #RATE_INTERVAL_NANOS}.
+     *
+     * @param now The time of the current frame, in nanoseconds.
+     */
+    private void measureRate(long now) {
+        if (rateStart == 0) {
+            rateStart = now;
+        } else if (now - rateStart >= RATE_INTERVAL_NANOS) {
+            rateLabel.setText(String.format("%,.0f ticks/s, %s", rateTicks * 1e9 / (now - rateStart),
+                    governor.getQuality().name().toLowerCase()));  // Show the level of detail along with it
+            rateStart = now;
+            rateTicks = 0;
+        }
+    }
+
+    /**
+     * Starts loading a configuration in the background, replacing everything in the arena.
+     * Items appear as they are read while the simulation keeps running; a load already running is cancelled.
+     *
+     * @param file The JSON file to load.
+     * @param onError Told why loading failed, if it does; the items read until then are kept.
+     * @throws IOException if the file cannot be accessed
+     */
+    public void loadScenario(Path file, Consumer<String> onError) throws IOException {
+        ScenarioLoader next = new ScenarioLoader(file);
+        cancelLoad();
+        arena.post(a -> {  // Clear the existing items before the first batch arrives
+            a.clear();
+            checkpoints.clear();  // The history belongs to the previous scenario
+        });
+        loader = next;
+        loadErrorHandler = onError;
+        loadProgress.setProgress(0);
+        loadStatus.setText("Loading " + file.getFileName());
+        showLoadBar(true);
+        loader.start();
+    }
+
+    /**
+     * Cancels the configuration being loaded, keeping the items loaded so far.
+     */
+    private void cancelLoad() {
+        if (loader != null) {
+            loader.cancel();
+            loader = null;
+            showLoadBar(false);
+        }
+    }
+
+    /**
+     * Adds the items loaded since the last frame and updates the progress bar.
+     * Once the load has ended, hides the progress bar and reports any error.
+     *
+     * @return Whether any item was added.
+     */
+    private boolean applyLoadedItems() {
+        int added = loader.applyBatches(arena, LOAD_BUDGET_NANOS);
+        loadProgress.setProgress(loader.getProgress());
+        loadStatus.setText(String.format("Loading %s: %,d items", loader.getFile().getFileName(), loader.getItemsApplied()));
+        if (loader.isDone()) {
+            IOException error = loader.getError();
+            if (error != null && !loader.isCancelled()) {
+                String message = String.format("Error loading configuration after %,d items: %s",
+                        loader.getItemsApplied(), error.getMessage());
+                Consumer<String> handler = loadErrorHandler;
+                Platform.runLater(() -> handler.accept(message));  // Dialogs cannot be shown during an animation pulse
+            }
+            loader = null;
+            showLoadBar(false);
+        }
+        return added > 0;
+    }
+
+    /**
+     * Shows or hides the progress bar of a load.
+     *
+     * @param visible Whether the bar is shown.
+     */
+    private void showLoadBar(boolean visible) {
+        loadBar.setVisible(visible);
+        loadBar.setManaged(visible);  // Take no room while hidden
+    }
+
+    /**
+     * Starts the telemetry server when the {@code ok.telemetry.port} system property is set,
+     * so external viewers can connect to the loopback interface on that port.
+     */
+    private void startTelemetry() {
+        Integer port = Integer.getInteger("ok.telemetry.port");
+        if (port == null) {
+            return;
+        }
+        try {
+            telemetry = new TelemetryServer(port);
+        } catch (IOException ex) {
+            System.err.println("Telemetry disabled: " + ex.getMessage());  // The simulation runs without it
+        }
+    }
+
+    /**
+     * Stops the telemetry server when the application exits.
+     *
+     * @throws Exception if the server cannot be stopped
+     */
+    @Override
+    public void stop() throws Exception {
+        if (telemetry != null) {
+            telemetry.close();
+        }
+    }
+
+    /**
+     * Draws every object in the arena, at the level of detail the governor picks, and refreshes the info panel.
+     */
+    private void renderFrame() {
+        long start = System.nanoTime();
+        gc.clearRect(0, 0, ARENA_WIDTH, ARENA_HEIGHT);  // Clear the canvas
+        arena.render(gc, governor.getQuality());  // Render each object in the arena
+        governor.record(tickNanos, System.nanoTime() - start, arena.getObjects().size());  // Lower the detail if the frame ran long
+        infoPanel.update(arena);  // Update the info panel with current data
+    }
+
     /**
      * Creates the control buttons and sets their actions.
      */
@@ -95,6 +272,19 @@ public class RobotSimulationApp extends Application {
             pauseResumeBtn.setText(isPaused ? "Resume" : "Pause");  // Update button text accordingly
         });
 
+        // Create the time-warp control, running several ticks per frame, and the tick rate it achieves
+        ChoiceBox<Integer> speedBox = new ChoiceBox<>(FXCollections.observableArrayList(SPEEDS));
+        speedBox.setValue(speed);
+        speedBox.setOnAction(e -> speed = speedBox.getValue());
+        rateLabel = new Label();
+        rateLabel.setMinWidth(140);  // Keep the buttons still as the rate changes
+
+        // Create buttons to step back through the checkpoint history
+        Button rewindBtn = new Button("Rewind");
+        Button restoreBtn = new Button("Restore");
+        rewindBtn.setOnAction(e -> arena.post(checkpoints::rewind));  // Applied between ticks, and shown even while paused
+        restoreBtn.setOnAction(e -> arena.post(checkpoints::restoreLatest));
+
         // Create buttons to add various types of robots to the arena
         Button addSimpleRobotBtn = new Button("Add Simple Robot");
         Button addWhiskerRobotBtn = new Button("Add Whisker Robot");
@@ -103,6 +293,7 @@ public class RobotSimulationApp extends Application {
         Button addMagnetRobotBtn = new Button("Add Magnet Robot");
         Button addPathfinderRobotBtn = new Button("Add Pathfinder Robot");
         Button addSwarmRobotBtn = new Button("Add Swarm Robot");
+        Button addLidarRobotBtn = new Button("Add Lidar Robot");
         Button removeRobotBtn = new Button("Remove Robot");
 
         // Set button actions to add robots to the arena
@@ -113,11 +304,17 @@ public class RobotSimulationApp extends Application {
         addMagnetRobotBtn.setOnAction(e -> addRobot(RobotType.MAGNET));
         addPathfinderRobotBtn.setOnAction(e -> addRobot(RobotType.PATHFINDER));
         addSwarmRobotBtn.setOnAction(e -> addRobot(RobotType.SWARM));
+        addLidarRobotBtn.setOnAction(e -> addRobot(RobotType.LIDAR));
         removeRobotBtn.setOnAction(e -> removeRandomRobot());  // Remove a random robot
 
         // Create a horizontal box to hold the control buttons
         HBox controls = new HBox(10,
                 pauseResumeBtn,
+                new Label("Speed x"),
+                speedBox,
+                rateLabel,
+                rewindBtn,
+                restoreBtn,
                 addSimpleRobotBtn,
                 addWhiskerRobotBtn,
                 addEchoRobotBtn,
@@ -125,65 +322,49 @@ public class RobotSimulationApp extends Application {
                 addMagnetRobotBtn,
                 addPathfinderRobotBtn,
                 addSwarmRobotBtn,
+                addLidarRobotBtn,
                 removeRobotBtn
         );
         controls.setPadding(new Insets(10));  // Set padding for the controls
         controls.setAlignment(Pos.CENTER);  // Align buttons to the center
 
-        root.setBottom(controls);  // Set the controls at the bottom of the layout
+        // Create the progress bar of a load, hidden until one starts
+        loadStatus = new Label();
+        loadProgress = new ProgressBar(0);
+        loadProgress.setPrefWidth(300);
+        Button cancelLoadBtn = new Button("Cancel Loading");
+        cancelLoadBtn.setOnAction(e -> cancelLoad());
+        loadBar = new HBox(10, loadStatus, loadProgress, cancelLoadBtn);
+        loadBar.setPadding(new Insets(10, 10, 0, 10));
+        loadBar.setAlignment(Pos.CENTER);
+        showLoadBar(false);
+
+        root.setBottom(new VBox(loadBar, controls));  // Set the controls at the bottom of the layout
     }
 
     /**
      * Enum to define the types of robots that can be added to the arena.
      */
     private enum RobotType {
-        SIMPLE, WHISKER, ECHO, LIGHT_DETECTOR, MAGNET, PATHFINDER, SWARM
+        SIMPLE(SimpleRobot::new), WHISKER(WhiskerRobot::new), ECHO(EchoRobot::new),
+        LIGHT_DETECTOR(LightDetectorRobot::new), MAGNET(MagnetRobot::new), PATHFINDER(PathfinderRobot::new),
+        SWARM(SwarmRobot::new), LIDAR(LidarRobot::new);
+
+        private final RobotSpawner.Factory factory;  // Creates a robot of this type
+
+        RobotType(RobotSpawner.Factory factory) {
+            this.factory = factory;
+        }
     }
 
     /**
      * Adds a robot of the specified type to the arena at a random position.
-     * It ensures the robot does not overlap with any existing obstacles.
+     * The robot keeps clear of every item already in the arena; nothing is added once the arena is full.
      *
      * @param type The type of robot to be added.
      */
     private void addRobot(RobotType type) {
-        double x, y;
-        boolean validPosition;
-
-        // Try placing the robot until a valid position is found
-        do {
-            validPosition = true;
-            x = random.nextDouble(ARENA_WIDTH);  // Random x-coordinate
-            y = random.nextDouble(ARENA_HEIGHT);  // Random y-coordinate
-
-            // Check if the position overlaps with any obstacles
-            for (Item obj : Arena.getInstance().getObjects()) {
-                if (obj instanceof Obstacle) {
-                    double distance = Math.sqrt(
-                            Math.pow(x - obj.x, 2) +
-                                    Math.pow(y - obj.y, 2)
-                    );
-                    if (distance < obj.radius + 40) {  // If too close to an obstacle
-                        validPosition = false;
-                        break;
-                    }
-                }
-            }
-        } while (!validPosition);  // Repeat until a valid position is found
-
-        // Create the robot based on the selected type
-        Robot robot = switch(type) {
-            case SIMPLE -> new SimpleRobot(x, y);
-            case WHISKER -> new WhiskerRobot(x, y);
-            case ECHO -> new EchoRobot(x, y);
-            case LIGHT_DETECTOR -> new LightDetectorRobot(x, y);
-            case MAGNET -> new MagnetRobot(x, y);
-            case PATHFINDER -> new PathfinderRobot(x, y);
-            case SWARM -> new SwarmRobot(x, y);
-        };
-
-        // Add the robot to the arena
-        Arena.getInstance().addObject(robot);
+        arena.post(a -> spawner.spawn(type.factory, 1));  // Placed between ticks, against the arena as it is then
     }
 
     /**
@@ -191,15 +372,21 @@ public class RobotSimulationApp extends Application {
      * If no robots are present, no action is performed.
      */
     private void removeRandomRobot() {
-        var objects = Arena.getInstance().getObjects();
-        if (!objects.isEmpty()) {
-            for (int i = 0; i < objects.size(); i++) {
-                if (objects.get(i) instanceof Robot) {
-                    objects.remove(i);  // Remove the first robot found
-                    break;
-                }
+        arena.post(a -> {
+            var robots = a.getObjectsByTag(ItemTag.ROBOT);
+            if (!robots.isEmpty()) {
+                a.removeObject(robots.get(0));  // Remove the first robot found
             }
-        }
+        });
+    }
+
+    /**
+     * Gets the arena simulated by this application.
+     *
+     * @return The arena.
+     */
+    public Arena getArena() {
+        return arena;
     }
 
     /**
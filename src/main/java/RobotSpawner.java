@@ -0,0 +1,430 @@
+package ok;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Places many robots of one type at once, spread over a region of an Arena and clear of every item
+ * already in it and of each other.
+ *
+ * <p>
+ * Positions are drawn by Poisson-disk sampling (Bridson's algorithm): new positions are tried around
+ * positions already accepted, and a background grid with at most one position per cell answers
+ * whether a candidate is too close to an accepted one by looking at a few neighbouring cells.
+ * Candidates lie just beyond the spacing, at evenly spaced angles from a random start, rather than
+ * anywhere in the ring out to twice the spacing: that packs the robots tighter and needs a few
+ * candidates per position instead of thirty.
+ * The items already in the Arena are binned into a second grid beforehand, so each candidate is
+ * checked against the few items around it rather than against every obstacle. The distance between
+ * robots is chosen from the requested count, so the robots fill the region evenly instead of
+ * clustering where sampling started; when they do not fit at that distance, it is narrowed down to
+ * the robots' own size before giving up.
+ * </p>
+ *
+ * <p>
+ * Once the positions are known, the robots are built in parallel, each seeded from the spawner's
+ * generator in a fixed order, so a spawner created with a seed always spawns the same robots.
+ * Spawning must happen between ticks, like adding any item.
+ * </p>
+ */
+public class RobotSpawner {
+    public static final double GAP = 4;           // Clearance kept between a spawned robot and anything else
+    private static final int CANDIDATES = 8;      // Positions tried around an accepted one before it is retired
+    private static final int SEED_ATTEMPTS = 30;  // Random positions tried to start a new patch once growth stops
+    private static final double FILL = 0.7;       // Spacing squared per robot, relative to the area per robot requested
+    private static final double STEP = 1.0001;    // Distance of a new position from the one it grows from, in spacings
+    private static final double SHRINK = 0.85;    // Spacing factor applied when the robots did not fit
+    private static final int PARALLEL_THRESHOLD = 256; // Robots from which construction is spread over several threads
+    private static final int MAX_BLOCKER_CELLS = 1 << 20; // Upper bound on the cells of the grid of existing items
+
+    private final Arena arena;   // Arena the robots are added to
+    private final Random random; // Source of positions and of the robots' seeds
+
+    /**
+     * Creates the robot of a type at a position, typically a constructor reference such as
+     * {@code SimpleRobot::new}.
+     */
+    @FunctionalInterface
+    public interface Factory {
+        /**
+         * Creates a robot. Called from several threads at once.
+         *
+         * @param x the x-coordinate of the robot
+         * @param y the y-coordinate of the robot
+         * @return the new robot
+         */
+        Robot create(double x, double y);
+    }
+
+    /**
+     * Creates a spawner with an arbitrary seed.
+     *
+     * @param arena the Arena robots are added to
+     */
+    public RobotSpawner(Arena arena) {
+        this(arena, new Random().nextLong());
+    }
+
+    /**
+     * Creates a spawner whose positions and robots are all drawn from a seed.
+     *
+     * @param arena the Arena robots are added to
+     * @param seed the seed
+     */
+    public RobotSpawner(Arena arena, long seed) {
+        this.arena = arena;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Spawns robots anywhere in the Arena.
+     *
+     * @param type creates a robot of the type to spawn
+     * @param count the number of robots wanted
+     * @return the robots added, fewer than requested if no more fit
+     */
+    public List<Robot> spawn(Factory type, int count) {
+        return spawn(type, count, 0, 0, arena.getWidth(), arena.getHeight());
+    }
+
+    /**
+     * Spawns robots within a rectangular region of the Arena, the whole robot inside the region.
+     *
+     * @param type creates a robot of the type to spawn
+     * @param count the number of robots wanted
+     * @param x the left edge of the region
+     * @param y the top edge of the region
+     * @param width the width of the region
+     * @param height the height of the region
+     * @return the robots added, fewer than requested if no more fit
+     */
+    public List<Robot> spawn(Factory type, int count, double x, double y, double width, double height) {
+        if (count <= 0) {
+            return List.of();
+        }
+        double radius = type.create(x + width / 2, y + height / 2).getRadius(); // The size of the type
+        double minX = Math.max(x, 0) + radius;
+        double minY = Math.max(y, 0) + radius;
+        double maxX = Math.min(x + width, arena.getWidth()) - radius;
+        double maxY = Math.min(y + height, arena.getHeight()) - radius;
+        if (minX > maxX || minY > maxY) {
+            return List.of(); // The region cannot hold a single robot
+        }
+
+        Blockers blockers = new Blockers(arena.getObjects(), radius, minX, minY, maxX, maxY);
+        double minSpacing = 2 * radius + GAP;
+        double spacing = Math.max(minSpacing, Math.sqrt(FILL * (maxX - minX) * (maxY - minY) / count));
+        Sampler sampler;
+        while (true) {
+            sampler = new Sampler(spacing, blockers, minX, minY, maxX, maxY);
+            sampler.fill(random);
+            if (sampler.count >= count || spacing == minSpacing) {
+                break;
+            }
+            spacing = Math.max(minSpacing, spacing * SHRINK); // Too sparse to fit them all
+        }
+
+        // Keep a random subset of the positions, which is still evenly spread
+        int spawned = Math.min(count, sampler.count);
+        for (int i = 0; i < spawned; i++) {
+            sampler.swap(i, i + random.nextInt(sampler.count - i));
+        }
+        long[] seeds = new long[spawned];
+        for (int i = 0; i < spawned; i++) {
+            seeds[i] = random.nextLong();
+        }
+
+        Robot[] robots = new Robot[spawned];
+        Sampler positions = sampler;
+        IntStream indices = IntStream.range(0, spawned);
+        if (spawned >= PARALLEL_THRESHOLD) {
+            indices = indices.parallel(); // Robots share no state while they are built
+        }
+        indices.forEach(i -> {
+            robots[i] = type.create(positions.xs[i], positions.ys[i]);
+            robots[i].setSeed(seeds[i]);
+        });
+
+        List<Robot> added = Arrays.asList(robots);
+        arena.addObjects(added);
+        arena.applyPendingChanges();
+        return new ArrayList<>(added);
+    }
+
+    /**
+     * The items already in the Arena, binned into a grid over the spawning region. Each item is
+     * listed in every cell its keep-out zone overlaps, so a candidate only checks its own cell.
+     * The keep-out zone of a round item is a disk; that of a box is the square widened by the
+     * robot's radius and the gap, with rounded corners, tested against the closest point of the
+     * square as the collision system does.
+     */
+    private static class Blockers {
+        private final double originX, originY; // Top-left corner of the grid
+        private final double cellSize;         // Side length of a cell
+        private final int columns, rows;       // Size of the grid in cells
+        private final int[] cellStart;         // Start of each cell's items in cellItems, plus an end marker
+        private final int[] cellItems;         // Indices of the items of each cell, cell after cell
+        private final double[] xs, ys;         // Position of each item
+        private final double[] halves;         // Half-size of each box, 0 for round items
+        private final double[] reachSq;        // Squared distance a robot's centre must keep from each item's shape
+
+        /**
+         * Bins the items overlapping the region.
+         *
+         * @param items the items of the Arena
+         * @param radius the radius of the robots being spawned
+         * @param minX the smallest x-coordinate of a robot's centre
+         * @param minY the smallest y-coordinate of a robot's centre
+         * @param maxX the largest x-coordinate of a robot's centre
+         * @param maxY the largest y-coordinate of a robot's centre
+         */
+        Blockers(List<Item> items, double radius, double minX, double minY, double maxX, double maxY) {
+            originX = minX;
+            originY = minY;
+            double area = (maxX - minX) * (maxY - minY);
+            cellSize = Math.max(4 * radius, Math.sqrt(area / MAX_BLOCKER_CELLS));
+            columns = (int) ((maxX - minX) / cellSize) + 1;
+            rows = (int) ((maxY - minY) / cellSize) + 1;
+
+            // Keep the items whose keep-out disk reaches into the region
+            int n = 0;
+            double[] px = new double[items.size()];
+            double[] py = new double[items.size()];
+            double[] reach = new double[items.size()];
+            double[] half = new double[items.size()];
+            for (Item item : items) {
+                double r = item.radius + radius + GAP; // Half the extent of the keep-out zone
+                if (item.x + r > minX && item.x - r < maxX && item.y + r > minY && item.y - r < maxY) {
+                    px[n] = item.x;
+                    py[n] = item.y;
+                    half[n] = item.isBox() ? item.radius : 0;
+                    reach[n++] = r;
+                }
+            }
+            xs = px;
+            ys = py;
+            halves = half;
+            reachSq = new double[n];
+
+            // Count the items of every cell, then lay the lists out one after another
+            int cells = columns * rows;
+            cellStart = new int[cells + 1];
+            for (int i = 0; i < n; i++) {
+                for (int row = row(py[i] - reach[i]); row <= row(py[i] + reach[i]); row++) {
+                    for (int column = column(px[i] - reach[i]); column <= column(px[i] + reach[i]); column++) {
+                        cellStart[row * columns + column + 1]++;
+                    }
+                }
+                double clearance = reach[i] - half[i]; // Distance to keep from the item's shape
+                reachSq[i] = clearance * clearance;
+            }
+            for (int cell = 0; cell < cells; cell++) {
+                cellStart[cell + 1] += cellStart[cell];
+            }
+            cellItems = new int[cellStart[cells]];
+            int[] next = Arrays.copyOf(cellStart, cells); // Next free entry of each cell
+            for (int i = 0; i < n; i++) {
+                for (int row = row(py[i] - reach[i]); row <= row(py[i] + reach[i]); row++) {
+                    for (int column = column(px[i] - reach[i]); column <= column(px[i] + reach[i]); column++) {
+                        cellItems[next[row * columns + column]++] = i;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Checks whether a robot centred at a position keeps clear of every item.
+         *
+         * @param x the x-coordinate
+         * @param y the y-coordinate
+         * @return true if no item is too close
+         */
+        boolean isClear(double x, double y) {
+            int cell = row(y) * columns + column(x);
+            for (int k = cellStart[cell], end = cellStart[cell + 1]; k < end; k++) {
+                int i = cellItems[k];
+                // Offset from the closest point of the item's square, or from its centre if it is round
+                double dx = Math.max(Math.abs(x - xs[i]) - halves[i], 0);
+                double dy = Math.max(Math.abs(y - ys[i]) - halves[i], 0);
+                if (dx * dx + dy * dy < reachSq[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Gets the grid column of an x-coordinate, clamped to the grid.
+         *
+         * @param x the x-coordinate
+         * @return the column
+         */
+        private int column(double x) {
+            return Math.clamp((long) Math.floor((x - originX) / cellSize), 0, columns - 1);
+        }
+
+        /**
+         * Gets the grid row of a y-coordinate, clamped to the grid.
+         *
+         * @param y the y-coordinate
+         * @return the row
+         */
+        private int row(double y) {
+            return Math.clamp((long) Math.floor((y - originY) / cellSize), 0, rows - 1);
+        }
+    }
+
+    /**
+     * Poisson-disk sampling of a rectangle at a fixed spacing, avoiding the existing items.
+     * The background grid has cells of spacing / sqrt(2), so a cell holds at most one position and
+     * every position closer than the spacing lies within two cells of a candidate.
+     */
+    private static class Sampler {
+        private final double spacing;      // Smallest distance between two positions
+        private final Blockers blockers;   // The items to keep clear of
+        private final double minX, minY, maxX, maxY; // Bounds of the positions
+        private final double cellSize;     // Side length of a cell of the background grid
+        private final int columns, rows;   // Size of the background grid in cells
+        private final int[] grid;          // Position in each cell, or -1
+        double[] xs = new double[64];      // Accepted positions
+        double[] ys = new double[64];
+        int count;                         // Number of accepted positions
+        private int[] active = new int[64]; // Positions that may still have room around them
+        private int activeCount;
+
+        /**
+         * Creates an empty sample.
+         *
+         * @param spacing the smallest distance between two positions
+         * @param blockers the items to keep clear of
+         * @param minX the smallest x-coordinate of a position
+         * @param minY the smallest y-coordinate of a position
+         * @param maxX the largest x-coordinate of a position
+         * @param maxY the largest y-coordinate of a position
+         */
+        Sampler(double spacing, Blockers blockers, double minX, double minY, double maxX, double maxY) {
+            this.spacing = spacing;
+            this.blockers = blockers;
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            cellSize = spacing / Math.sqrt(2);
+            columns = (int) ((maxX - minX) / cellSize) + 1;
+            rows = (int) ((maxY - minY) / cellSize) + 1;
+            grid = new int[columns * rows];
+            Arrays.fill(grid, -1);
+        }
+
+        /**
+         * Fills the rectangle until no more positions fit. Sampling grows outwards from a random
+         * position; when it runs out of room, new random positions are tried, so regions cut off by
+         * obstacles are filled as well.
+         *
+         * @param random the source of positions
+         */
+        void fill(Random random) {
+            for (int attempt = 0; attempt < SEED_ATTEMPTS; attempt++) {
+                double x = minX + random.nextDouble() * (maxX - minX);
+                double y = minY + random.nextDouble() * (maxY - minY);
+                if (isFree(x, y)) {
+                    accept(x, y);
+                    grow(random);
+                    attempt = -1; // Look for another patch
+                }
+            }
+        }
+
+        /**
+         * Tries positions on a circle just beyond the spacing around the active positions, until none
+         * is left with room around it.
+         *
+         * @param random the source of positions
+         */
+        private void grow(Random random) {
+            while (activeCount > 0) {
+                int a = random.nextInt(activeCount);
+                int from = active[a];
+                boolean found = false;
+                double start = random.nextDouble();
+                for (int k = 0; k < CANDIDATES; k++) {
+                    double angle = (start + (double) k / CANDIDATES) * 2 * Math.PI;
+                    double distance = spacing * STEP;
+                    double x = xs[from] + distance * Math.cos(angle);
+                    double y = ys[from] + distance * Math.sin(angle);
+                    if (x >= minX && x <= maxX && y >= minY && y <= maxY && isFree(x, y)) {
+                        accept(x, y);
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) {
+                    active[a] = active[--activeCount]; // No room left around it
+                }
+            }
+        }
+
+        /**
+         * Checks whether a position is far enough from the accepted positions and the existing items.
+         *
+         * @param x the x-coordinate
+         * @param y the y-coordinate
+         * @return true if the position can be accepted
+         */
+        private boolean isFree(double x, double y) {
+            int column = (int) ((x - minX) / cellSize);
+            int row = (int) ((y - minY) / cellSize);
+            if (grid[row * columns + column] >= 0) {
+                return false;
+            }
+            double spacingSq = spacing * spacing;
+            for (int r = Math.max(0, row - 2); r <= Math.min(rows - 1, row + 2); r++) {
+                for (int c = Math.max(0, column - 2); c <= Math.min(columns - 1, column + 2); c++) {
+                    int other = grid[r * columns + c];
+                    if (other >= 0) {
+                        double dx = x - xs[other], dy = y - ys[other];
+                        if (dx * dx + dy * dy < spacingSq) {
+                            return false;
+                        }
+                    }
+                }
+            }
+            return blockers.isClear(x, y);
+        }
+
+        /**
+         * Accepts a position and makes it active.
+         *
+         * @param x the x-coordinate
+         * @param y the y-coordinate
+         */
+        private void accept(double x, double y) {
+            if (count == xs.length) {
+                xs = Arrays.copyOf(xs, count * 2);
+                ys = Arrays.copyOf(ys, count * 2);
+                active = Arrays.copyOf(active, count * 2);
+            }
+            grid[(int) ((y - minY) / cellSize) * columns + (int) ((x - minX) / cellSize)] = count;
+            xs[count] = x;
+            ys[count] = y;
+            active[activeCount++] = count++;
+        }
+
+        /**
+         * Swaps two accepted positions. Only used once sampling is over, since the grid is not updated.
+         *
+         * @param i the first position
+         * @param j the second position
+         */
+        void swap(int i, int j) {
+            double x = xs[i], y = ys[i];
+            xs[i] = xs[j];
+            ys[i] = ys[j];
+            xs[j] = x;
+            ys[j] = y;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package ok;
+
+/**
+ * Base of the sensors robots carry, which only runs a sensor every few ticks instead of every tick.
+ * Sensors of different robots, and of the same robot, are given staggered phases, so the sensing
+ * work of an Arena is spread evenly over the ticks rather than landing on the same tick.
+ *
+ * <p>
+ * The ticks between samples report the answer of the last sample, so a robot keeps reacting to what
+ * it detected until the next sample says otherwise.
+ * </p>
+ *
+ * <p>
+ * A sensor is a single object per robot, holding only what differs from one robot to the next: the
+ * robot, the sensor's phase among the robot's sensors and its last answer. The range and sampling
+ * period are the same for every robot of a type, so they live in a shared {@link SensorConfig}.
+ * </p>
+ */
+public abstract class SampledSensor implements Sensor {
+    protected final Robot robot;  // The robot carrying the sensor, whose slot staggers the phase
+    private SensorConfig config;  // Range and sampling period, shared with the robots of the same type
+    private byte phase;           // Position among the robot's sensors, which staggers the samples further
+    private boolean answer;       // Answer of the last sample
+
+    /**
+     * Creates a sensor.
+     *
+     * @param robot the robot carrying the sensor
+     * @param config the range and sampling period
+     */
+    protected SampledSensor(Robot robot, SensorConfig config) {
+        this.robot = robot;
+        this.config = config;
+    }
+
+    /**
+     * Samples the sensor if this tick is one of its sampling ticks.
+     *
+     * @param arena the Arena to sense
+     * @param x the x-coordinate of the robot
+     * @param y the y-coordinate of the robot
+     * @return the sensor's answer on a sampling tick, the answer of the last sample otherwise
+     */
+    @Override
+    public boolean sense(Arena arena, double x, double y) {
+        if (isDue()) {
+            answer = measure(arena, x, y);
+        }
+        return answer;
+    }
+
+    /**
+     * Evaluates the sensor on a sampling tick. By default the Arena is asked for the items within
+     * range carrying the sensor's target tag, and those are handed to {@link #detect(java.util.List)}.
+     * Sensors with a narrower shape override this to use a more specific query.
+     *
+     * @param arena the Arena to sense
+     * @param x the x-coordinate of the robot
+     * @param y the y-coordinate of the robot
+     * @return true if the sensor detects something
+     */
+    protected boolean measure(Arena arena, double x, double y) {
+        return detect(arena.getObjectsNear(x, y, getRange(), getTarget()));
+    }
+
+    /**
+     * Checks whether this tick is one of the sensor's sampling ticks.
+     *
+     * @return true if the sensor samples on this tick
+     */
+    boolean isDue() {
+        return robot.isDue(config.period(), phase);
+    }
+
+    /**
+     * Gets the range and sampling period of the sensor.
+     *
+     * @return the configuration, shared with other robots
+     */
+    public SensorConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Moves the sensor over to another configuration.
+     *
+     * @param config the new range and sampling period
+     */
+    public void setConfig(SensorConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Gets the detection range of the sensor.
+     *
+     * @return the detection range
+     */
+    @Override
+    public double getRange() {
+        return config.range();
+    }
+
+    /**
+     * Sets the detection range of this robot's sensor, leaving the other robots' sensors as they are.
+     *
+     * @param range the new detection range
+     */
+    public void setRange(double range) {
+        setConfig(config.withRange(range));
+    }
+
+    /**
+     * Gets the number of ticks between samples.
+     *
+     * @return the sampling period
+     */
+    public int getPeriod() {
+        return config.period();
+    }
+
+    /**
+     * Sets the number of ticks between samples of this robot's sensor.
+     *
+     * @param period the sampling period, 1 to sample every tick
+     */
+    public void setPeriod(int period) {
+        setConfig(config.withPeriod(period));
+    }
+
+    /**
+     * Sets the sensor's position among the robot's sensors, which shifts its sampling ticks.
+     * Called by the robot when the sensor is added.
+     *
+     * @param phase the position of the sensor
+     */
+    void setPhase(int phase) {
+        this.phase = (byte) phase;
+    }
+
+    /**
+     * Gets the answer of the last sample, for the robot's checkpoint.
+     *
+     * @return the last answer
+     */
+    boolean getLastAnswer() {
+        return answer;
+    }
+
+    /**
+     * Sets the answer reported until the next sample, when the robot is restored from a checkpoint.
+     *
+     * @param answer the last answer
+     */
+    void setLastAnswer(boolean answer) {
+        this.answer = answer;
+    }
+}
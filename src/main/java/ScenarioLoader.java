@@ -0,0 +1,222 @@
+package ok;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads a saved configuration (a JSON array of items, as written by File &gt; Save) on a background
+ * thread, so that even a file of hundreds of megabytes never holds up the thread running the
+ * simulation.
+ *
+ * <p>
+ * The file is read as a stream, one item at a time, and the parsed items are handed over in
+ * batches of {@value #BATCH_SIZE}. The simulation thread takes them with
+ * {@link #applyBatches(Arena, long)} between two ticks, within a time budget, so the Arena fills up
+ * while the simulation keeps running and whatever has been read so far is already on screen. At most
+ * {@value #MAX_QUEUED_BATCHES} batches wait to be applied; the background thread pauses once that
+ * many are queued, so parsing ahead of the Arena does not keep a second copy of the file in memory.
+ * </p>
+ */
+public class ScenarioLoader implements AutoCloseable {
+    public static final int BATCH_SIZE = 1000;           // Items handed over at a time
+    private static final int MAX_QUEUED_BATCHES = 16;    // Batches parsed ahead of the Arena
+    private static final long OFFER_WAIT_MILLIS = 50;    // How often a waiting parser checks for cancellation
+
+    private final Path file;                             // File being loaded
+    private final long fileSize;                         // Size of the file, in bytes
+    // Reads the items, skipping properties no item type declares, such as those of files from other versions
+    private final ObjectReader reader = new ObjectMapper()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES).readerFor(Item.class);
+    private final BlockingQueue<List<Item>> batches = new ArrayBlockingQueue<>(MAX_QUEUED_BATCHES); // Parsed, not yet applied
+    private final AtomicInteger itemsParsed = new AtomicInteger(); // Items read from the file so far
+    private final Thread thread;                         // Parses the file
+    private volatile long bytesRead;                     // Bytes of the file parsed so far
+    private volatile boolean cancelled;                  // Set by cancel()
+    private volatile boolean parsed;                     // Set once the parser thread has stopped
+    private volatile IOException error;                  // Why parsing failed, or null
+    private int itemsApplied;                            // Items added to the Arena, owned by the simulation thread
+
+    /**
+     * Creates a loader for a file. Nothing is read until {@link #start()} is called.
+     *
+     * @param file the file to load
+     * @throws IOException if the file cannot be accessed
+     */
+    public ScenarioLoader(Path file) throws IOException {
+        this.file = file;
+        this.fileSize = Files.size(file);
+        this.thread = new Thread(this::parse, "scenario-loader");
+        thread.setDaemon(true); // Closing the application must not wait for a load
+    }
+
+    /**
+     * Starts reading the file on the background thread.
+     */
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Adds the batches parsed so far to an Arena, stopping once the time budget has been used up.
+     * At least one waiting batch is applied per call, so loading always makes progress. Must be
+     * called between ticks, on the thread that updates the Arena.
+     *
+     * @param arena the Arena the items are added to
+     * @param budgetNanos the time that may be spent, in nanoseconds
+     * @return the number of items added
+     */
+    public int applyBatches(Arena arena, long budgetNanos) {
+        long start = System.nanoTime();
+        int added = 0;
+        List<Item> batch;
+        while (!cancelled && (batch = batches.poll()) != null) {
+            arena.addObjects(batch);
+            added += batch.size();
+            if (System.nanoTime() - start >= budgetNanos) {
+                break;
+            }
+        }
+        arena.applyPendingChanges(); // Show the items at once, even while the simulation is paused
+        itemsApplied += added;
+        return added;
+    }
+
+    /**
+     * Stops loading. Items already added to the Arena stay there; the rest are dropped.
+     */
+    public void cancel() {
+        cancelled = true;
+        batches.clear();
+    }
+
+    /**
+     * Cancels the load, like {@link #cancel()}.
+     */
+    @Override
+    public void close() {
+        cancel();
+    }
+
+    /**
+     * Checks whether loading has ended: the file has been read to the end or failed, and every
+     * parsed item has been applied, or the load has been cancelled.
+     *
+     * @return true if nothing more will be added to the Arena
+     */
+    public boolean isDone() {
+        return cancelled || (parsed && batches.isEmpty());
+    }
+
+    /**
+     * Checks whether the load has been cancelled.
+     *
+     * @return true if {@link #cancel()} has been called
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Gets the reason parsing stopped before the end of the file.
+     *
+     * @return the error, or null if there was none so far
+     */
+    public IOException getError() {
+        return error;
+    }
+
+    /**
+     * Gets how much of the file has been read.
+     *
+     * @return the fraction of the file parsed, between 0 and 1
+     */
+    public double getProgress() {
+        return fileSize == 0 ? 1 : Math.min(1, (double) bytesRead / fileSize);
+    }
+
+    /**
+     * Gets the number of items read from the file so far.
+     *
+     * @return the number of items parsed
+     */
+    public int getItemsParsed() {
+        return itemsParsed.get();
+    }
+
+    /**
+     * Gets the number of items added to the Arena so far.
+     *
+     * @return the number of items applied
+     */
+    public int getItemsApplied() {
+        return itemsApplied;
+    }
+
+    /**
+     * Gets the file being loaded.
+     *
+     * @return the file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Reads the file item by item and queues the items in batches. Runs on the background thread.
+     */
+    private void parse() {
+        try (JsonParser parser = reader.createParser(Files.newInputStream(file))) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new JsonParseException(parser, "Expected an array of items");
+            }
+            List<Item> batch = new ArrayList<>(BATCH_SIZE);
+            JsonToken token;
+            while (!cancelled && (token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token != JsonToken.START_OBJECT) {
+                    throw new JsonParseException(parser, "Expected an item, found " + token);
+                }
+                batch.add(reader.readValue(parser));
+                itemsParsed.incrementAndGet();
+                bytesRead = parser.currentLocation().getByteOffset();
+                if (batch.size() == BATCH_SIZE) {
+                    hand(batch);
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+            hand(batch);
+            bytesRead = fileSize;
+        } catch (IOException ex) {
+            error = ex; // The items parsed before the error are still applied
+        } catch (InterruptedException ex) {
+            cancel();
+        } finally {
+            parsed = true;
+        }
+    }
+
+    /**
+     * Queues a batch, waiting while the queue is full unless the load is cancelled.
+     *
+     * @param batch the parsed items
+     * @throws InterruptedException if the parser thread is interrupted
+     */
+    private void hand(List<Item> batch) throws InterruptedException {
+        while (!cancelled && !batch.isEmpty()
+                && !batches.offer(batch, OFFER_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+            // Wait for the simulation thread to take a batch
+        }
+    }
+}
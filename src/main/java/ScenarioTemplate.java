@@ -0,0 +1,72 @@
+package ok;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A template that builds a fresh Arena for one combination of sweep parameters.
+ * Implementations must not share mutable state between the Arenas they create,
+ * because a sweep builds and runs many of them at the same time.
+ */
+@FunctionalInterface
+public interface ScenarioTemplate {
+    /**
+     * A part of an Arena, such as the region a {@link DomainNode} owns.
+     */
+    @FunctionalInterface
+    interface Region {
+        /**
+         * The whole Arena.
+         */
+        Region EVERYWHERE = (arena, x, y) -> true;
+
+        /**
+         * Checks whether a position lies in the region.
+         *
+         * @param arena the Arena being built, whose size the region may depend on
+         * @param x the x-coordinate
+         * @param y the y-coordinate
+         * @return true if the position lies in the region
+         */
+        boolean contains(Arena arena, double x, double y);
+    }
+
+    /**
+     * Builds an Arena populated according to the given parameters.
+     *
+     * @param parameters the parameter values of this run, keyed by name
+     * @return the Arena to simulate
+     */
+    Arena create(Map<String, Double> parameters);
+
+    /**
+     * Builds the part of an Arena a region owns: every static item, and the moving items whose
+     * position lies in the region. Each item gets the handle it would have in the full Arena, and
+     * the slot table is as long as the full Arena's.
+     *
+     * <p>
+     * By default the full Arena is built and the moving items outside the region are removed.
+     * Templates that can tell where an item goes before building it override this to build only
+     * the items in the region.
+     * </p>
+     *
+     * @param parameters the parameter values of this run, keyed by name
+     * @param region the region whose moving items are kept
+     * @return the Arena holding the region's share of the world
+     */
+    default Arena create(Map<String, Double> parameters, Region region) {
+        Arena arena = create(parameters);
+        arena.applyPendingChanges();
+        List<Item> outside = new ArrayList<>();
+        for (Item obj : arena.getObjects()) {
+            if (!obj.isStatic() && !region.contains(arena, obj.x, obj.y)) {
+                outside.add(obj);
+            }
+        }
+        for (Item obj : outside) {
+            arena.removeObject(obj);
+        }
+        return arena;
+    }
+}
@@ -0,0 +1,48 @@
+package ok;
+
+/**
+ * Draws random numbers from a state that is a single {@code long}, so the state can be checkpointed
+ * with the robot using it or sent to another process. Numbers are drawn with the SplitMix64
+ * algorithm, which is fast and statistically sound.
+ *
+ * <p>
+ * There is no generator object: robots keep the state in a {@code long} field of their own, draw
+ * from it with {@link #nextDouble(long)} and step it by {@link #DOUBLE_STEP}. The same state gives
+ * the same number, on any machine and in any process.
+ * </p>
+ */
+public final class SeededRandom {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L; // Step of the state for every 64 random bits
+    static final long DOUBLE_STEP = 2 * GOLDEN_GAMMA; // Step of the state for every double, drawn from two sets of bits
+
+    /**
+     * Utility class, not meant to be instantiated.
+     */
+    private SeededRandom() {
+    }
+
+    /**
+     * Gets the random number drawn from a state. The caller steps the state by {@link #DOUBLE_STEP}
+     * after every draw.
+     *
+     * @param state the state before the draw
+     * @return the number in [0, 1)
+     */
+    static double nextDouble(long state) {
+        long high = mix(state + GOLDEN_GAMMA) >>> 38;     // 26 high bits
+        long low = mix(state + 2 * GOLDEN_GAMMA) >>> 37;  // 27 low bits
+        return ((high << 27) + low) * 0x1.0p-53;
+    }
+
+    /**
+     * Scrambles a state into 64 random bits, the output function of SplitMix64.
+     *
+     * @param z the state
+     * @return the random bits
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
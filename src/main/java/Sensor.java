@@ -4,4 +4,56 @@ import java.util.List;
 
 public interface Sensor {
     boolean detect(List<Item> objects);
-}
\ No newline at end of file
+
+    /**
+     * Runs the sensor at a position against the items of an Arena.
+     * By default the Arena is asked for the items within range carrying the sensor's target tag,
+     * and those are handed to {@link #detect(List)}. Sensors with a narrower shape can override
+     * this to use a more specific query.
+     *
+     * @param arena the Arena to sense
+     * @param x the x-coordinate of the robot carrying the sensor
+     * @param y the y-coordinate of the robot carrying the sensor
+     * @return true if the sensor detects something
+     */
+    default boolean sense(Arena arena, double x, double y) {
+        return detect(arena.getObjectsNear(x, y, getRange(), getTarget()));
+    }
+
+    /**
+     * Checks whether the sensor reports a safe margin after each detection, so its answers can be
+     * reused while the robot and the items around it barely move. Every {@link CachedSensor} does.
+     *
+     * @return true if the sensor's answers can be cached
+     */
+    default boolean isCacheable() {
+        return false;
+    }
+
+    /**
+     * Gets how far the robot and the items it was given could move relative to each other before
+     * the answer of the last {@link #detect(List)} could change. Only meaningful for cacheable sensors.
+     *
+     * @return the safe margin of the last answer
+     */
+    default double getSafeMargin() {
+        return 0;
+    }
+
+    /**
+     * Gets the distance from the robot within which this sensor can detect items.
+     * Robots use it to ask the Arena only for the items around them.
+     *
+     * @return the detection range
+     */
+    double getRange();
+
+    /**
+     * Gets the tag of the items this sensor reacts to, so the Arena only hands it those items.
+     *
+     * @return the tag, or null if the sensor reacts to every item
+     */
+    default ItemTag getTarget() {
+        return null;
+    }
+}
@@ -0,0 +1,71 @@
+package ok;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Settings a sensor shares with the same sensor of every other robot of its type: how far it
+ * reaches and how often it is sampled.
+ *
+ * <p>
+ * Configurations are immutable and interned by {@link #of(double, int)}, so a million robots built
+ * with the same settings point at one object instead of carrying a copy each. Changing the range of
+ * one robot's sensor moves that sensor over to another shared configuration and leaves the others
+ * as they are. Only as many configurations exist as there are distinct settings in use.
+ * </p>
+ *
+ * @param range the distance within which the sensor detects items
+ * @param period the number of ticks between samples, 1 to sample every tick
+ */
+public record SensorConfig(double range, int period) {
+    private static final Map<SensorConfig, SensorConfig> INTERNED = new ConcurrentHashMap<>(); // Every configuration handed out by of()
+
+    /**
+     * Checks the settings.
+     *
+     * @param range the distance within which the sensor detects items
+     * @param period the number of ticks between samples, 1 to sample every tick
+     * @throws IllegalArgumentException if the range is negative or not a number, or the period is below one tick
+     */
+    public SensorConfig {
+        if (!(range >= 0)) {
+            throw new IllegalArgumentException("Range must not be negative");
+        }
+        if (period < 1) {
+            throw new IllegalArgumentException("Period must be at least one tick");
+        }
+    }
+
+    /**
+     * Gets the shared configuration with the given settings.
+     *
+     * @param range the distance within which the sensor detects items
+     * @param period the number of ticks between samples, 1 to sample every tick
+     * @return the configuration, the same object for the same settings
+     */
+    public static SensorConfig of(double range, int period) {
+        SensorConfig config = new SensorConfig(range, period);
+        SensorConfig shared = INTERNED.putIfAbsent(config, config);
+        return shared != null ? shared : config;
+    }
+
+    /**
+     * Gets the shared configuration with another range and the same period.
+     *
+     * @param range the new range
+     * @return the configuration
+     */
+    public SensorConfig withRange(double range) {
+        return range == this.range ? this : of(range, period);
+    }
+
+    /**
+     * Gets the shared configuration with another period and the same range.
+     *
+     * @param period the new period, 1 to sample every tick
+     * @return the configuration
+     */
+    public SensorConfig withPeriod(int period) {
+        return period == this.period ? this : of(range, period);
+    }
+}
@@ -0,0 +1,16 @@
+package ok;
+
+/**
+ * A decoration shared by many items, such as a patrol path they all follow, which should be drawn
+ * once per frame rather than once per item. Items claim it with
+ * {@link Arena#claimSharedDecoration(SharedDecoration)} before drawing it; only the first claim of a
+ * render pass succeeds.
+ *
+ * <p>
+ * The decoration remembers the last render pass that claimed it, so claiming costs a comparison and
+ * the Arena keeps no table of decorations.
+ * </p>
+ */
+public final class SharedDecoration {
+    long lastPass = -1; // Render pass in which the decoration was last claimed, -1 if never
+}
@@ -1,17 +1,22 @@
 package ok;
 
-import javafx.scene.canvas.GraphicsContext;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import javafx.scene.paint.Color;
-import java.util.Random;
+
+import static ok.BehaviourTree.*;
 
 /**
  * A simple robot class that represents a robot with basic movement and collision handling.
  * The robot moves randomly within the arena and avoids obstacles by using sensors.
  */
 public class SimpleRobot extends Robot {
-    private static int nextIndex = 1;  // To keep track of the robot's index
-    private int index;  // Unique index for this robot
-    private Random random = new Random();  // Random object to generate random values
+    private static final SensorConfig OBSTACLE_SENSOR = SensorConfig.of(30, SENSOR_PERIOD); // Obstacle sensor of every SimpleRobot
+    // Wander now and then, and turn aside from whatever the sensors detect
+    private static final BehaviourTree BEHAVIOUR = compile(sequence(
+            varySpeed(),
+            optional(sequence(chance(0.02), wander())),
+            optional(sequence(sensing(), avoid(Math.PI / 2)))));
 
     /**
      * Constructor for the SimpleRobot.
@@ -20,31 +25,31 @@ public class SimpleRobot extends Robot {
      * @param x The x-coordinate of the robot's initial position.
      * @param y The y-coordinate of the robot's initial position.
      */
-    public SimpleRobot(double x, double y) {
+    @JsonCreator
+    public SimpleRobot(@JsonProperty("x") double x, @JsonProperty("y") double y) {
         super(x, y, 20, 3);  // Call the superclass constructor (Robot) with radius and speed
-        addSensor(new ObstacleSensor(this, 30));  // Add an obstacle sensor to the robot
-        index = nextIndex++;  // Assign a unique index to this robot
+        addSensor(new ObstacleSensor(this, OBSTACLE_SENSOR));  // Add an obstacle sensor to the robot
     }
 
     /**
-     * Returns a string representation of the robot.
+     * Gets the colour of the robot's body.
      *
-     * @return A string representing the robot's type and unique index.
+     * @return The colour.
      */
     @Override
-    public String toString() {
-        return "SimpleRobot " + index;
+    protected Color bodyColor() {
+        return Color.GREEN;
     }
 
     /**
      * Draws the robot on the canvas.
      *
-     * @param gc The GraphicsContext to draw on.
+     * @param gc The DrawingSurface to draw on.
      */
     @Override
-    protected void drawRobot(GraphicsContext gc) {
+    protected void drawRobot(DrawingSurface gc) {
         // Draw the robot's body
-        gc.setFill(Color.GREEN);  // Set the color to green
+        gc.setFill(bodyColor());  // Set the body color
         gc.fillOval(x - radius, y - radius, radius * 2, radius * 2);  // Draw a circle representing the robot's body
 
         // Draw wheels (optional method, could be implemented for more detail)
@@ -58,65 +63,20 @@ public class SimpleRobot extends Robot {
     }
 
     /**
-     * Handles collisions with walls and adjusts the robot's direction if it hits the arena boundaries.
-     *
-     * @param newX The new x-coordinate of the robot.
-     * @param newY The new y-coordinate of the robot.
-     */
-    protected void handleWallCollision(double newX, double newY) {
-        // Check if the robot has collided with the left or right walls
-        if (newX - radius < 0 || newX + radius > Arena.getInstance().getWidth()) {
-            direction = Math.PI - direction;  // Reverse the direction horizontally
-        }
-        // Check if the robot has collided with the top or bottom walls
-        if (newY - radius < 0 || newY + radius > Arena.getInstance().getHeight()) {
-            direction = -direction;  // Reverse the direction vertically
-        }
-    }
-
-    /**
-     * Moves the robot by updating its position and handling collisions with obstacles or walls.
+     * Steers the robot at random, turning away when its sensors detect an obstacle.
      */
     @Override
     public void move() {
-        updateSpeed();  // Update the robot's speed based on the current conditions
-        if (random.nextDouble() < 0.02) {
-            direction = random.nextDouble() * 2 * Math.PI;  // Change direction randomly
-        }
-
-        // Check if the robot detects any obstacles using its sensors
-        for (Sensor sensor : sensors) {
-            if (sensor.detect(Arena.getInstance().getObjects())) {
-                // If an obstacle is detected, the robot turns to avoid it
-                direction += Math.PI/2 + (random.nextDouble() - 0.5);
-                break;
-            }
-        }
-
-        // Handle collisions with the arena walls based on the robot's movement
-        handleWallCollision(x + currentSpeed * Math.cos(direction),
-                y + currentSpeed * Math.sin(direction));
-
-        // Update the robot's position based on the current direction and speed
-        x += currentSpeed * Math.cos(direction);
-        y += currentSpeed * Math.sin(direction);
-    }
-
-    /**
-     * Updates the robot's state, such as movement and interactions.
-     */
-    @Override
-    public void update() {
-        move();  // Call the move method to update the robot's position
+        BEHAVIOUR.run(this);
     }
 
     /**
      * Renders the robot on the canvas.
      *
-     * @param gc The GraphicsContext to render the robot.
+     * @param gc The DrawingSurface to render the robot.
      */
     @Override
-    public void render(GraphicsContext gc) {
+    public void render(DrawingSurface gc) {
         drawRobot(gc);  // Draw the robot on the canvas
     }
 }
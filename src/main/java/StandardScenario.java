@@ -0,0 +1,170 @@
+package ok;
+
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The scenario used by the application, as a template for parameter sweeps.
+ * It places the default obstacles and metal walls, then a mix of robots at random positions.
+ *
+ * <p>
+ * Recognised parameters are the robot counts ({@code SIMPLE}, {@code WHISKER}, {@code ECHO},
+ * {@code LIGHT_DETECTOR}, {@code MAGNET}, {@code PATHFINDER}, {@code SWARM}, {@code LIDAR}), the number of
+ * {@code LIGHTS}, the ranges {@code SWARM_RADIUS}, {@code MAGNETIC_RANGE} and {@code BEAM_RANGE},
+ * and the {@code SEED} from which the placement and every robot's random generator are drawn, so one
+ * seed always gives the same run. Missing parameters take their default values.
+ * </p>
+ *
+ * <p>
+ * Every robot's seed and position are drawn before the robot is built, so the part of the world a
+ * region owns can be built on its own: robots placed outside the region are skipped, and those
+ * inside take the slot they would have in the full world.
+ * </p>
+ *
+ * <p>
+ * Robots are placed wholly inside the arena and clear of the obstacles. A robot for which no such
+ * spot is found is left out, and its slot stays empty so the robots after it keep theirs.
+ * </p>
+ */
+public class StandardScenario implements ScenarioTemplate {
+    private static final double WIDTH = 800;   // Width of the arena
+    private static final double HEIGHT = 600;  // Height of the arena
+    private static final int MAX_PLACEMENT_ATTEMPTS = 1000;  // Attempts before giving up on a free spot
+
+    /**
+     * Builds an Arena with the default obstacles and the requested robot mix.
+     *
+     * @param parameters the parameter values of this run, keyed by name
+     * @return the populated Arena
+     */
+    @Override
+    public Arena create(Map<String, Double> parameters) {
+        return create(parameters, Region.EVERYWHERE);
+    }
+
+    /**
+     * Builds the static items and the robots placed in a region, skipping the others.
+     *
+     * @param parameters the parameter values of this run, keyed by name
+     * @param region the region whose robots are built
+     * @return the Arena holding the region's share of the world
+     */
+    @Override
+    public Arena create(Map<String, Double> parameters, Region region) {
+        Arena arena = new Arena(WIDTH, HEIGHT);
+        Random random = new Random((long) get(parameters, "SEED", 0));
+
+        // Same obstacles and metal walls as the interactive application
+        arena.addObject(new Obstacle(100, 100));
+        arena.addObject(new Obstacle(300, 400));
+        arena.addObject(new Obstacle(600, 200));
+        arena.addObject(new MetalWall(200, 300));
+        arena.addObject(new MetalWall(500, 150));
+
+        int lights = (int) get(parameters, "LIGHTS", 0);
+        for (int i = 0; i < lights; i++) {
+            arena.addObject(new Light(random.nextDouble(WIDTH), random.nextDouble(HEIGHT)));
+        }
+
+        double swarmRadius = get(parameters, "SWARM_RADIUS", SwarmRobot.SWARM_RADIUS);
+        double magneticRange = get(parameters, "MAGNETIC_RANGE", MagnetRobot.MAGNETIC_RANGE);
+        double beamRange = get(parameters, "BEAM_RANGE", EchoRobot.BEAM_RANGE);
+
+        int slot = arena.getSlotCount(); // Robots take the next slots in order, whether they are built or not
+        slot = place(arena, region, slot, (int) get(parameters, "SIMPLE", 0), SimpleRobot::new, random);
+        slot = place(arena, region, slot, (int) get(parameters, "WHISKER", 0), WhiskerRobot::new, random);
+        slot = place(arena, region, slot, (int) get(parameters, "ECHO", 0), (x, y) -> {
+            EchoRobot robot = new EchoRobot(x, y);
+            robot.setBeamRange(beamRange);
+            return robot;
+        }, random);
+        slot = place(arena, region, slot, (int) get(parameters, "LIGHT_DETECTOR", 0), LightDetectorRobot::new, random);
+        slot = place(arena, region, slot, (int) get(parameters, "MAGNET", 0), (x, y) -> {
+            MagnetRobot robot = new MagnetRobot(x, y);
+            robot.setMagneticRange(magneticRange);
+            return robot;
+        }, random);
+        slot = place(arena, region, slot, (int) get(parameters, "PATHFINDER", 0), PathfinderRobot::new, random);
+        slot = place(arena, region, slot, (int) get(parameters, "SWARM", 0), (x, y) -> {
+            SwarmRobot robot = new SwarmRobot(x, y);
+            robot.setSwarmRadius(swarmRadius);
+            return robot;
+        }, random);
+        slot = place(arena, region, slot, (int) get(parameters, "LIDAR", 0), LidarRobot::new, random);
+        arena.reserveSlots(slot); // As long as the full world's table, even if its last robots were skipped
+        return arena;
+    }
+
+    /**
+     * Draws a seed and a random position clear of obstacles for each of a number of robots, and
+     * builds and adds those placed in the region. Robots without a clear spot are not built.
+     *
+     * @param arena the Arena to add the robots to
+     * @param region the region whose robots are built
+     * @param slot the slot of the first robot
+     * @param count the number of robots
+     * @param factory builds a robot at its position
+     * @param random the random source used for seeding and placement
+     * @return the slot following the last robot's
+     */
+    private int place(Arena arena, Region region, int slot, int count, RobotSpawner.Factory factory, Random random) {
+        if (count <= 0) {
+            return slot;
+        }
+        double radius = factory.create(WIDTH / 2, HEIGHT / 2).getRadius(); // The size of the type
+        for (int i = 0; i < count; i++, slot++) {
+            long seed = random.nextLong();
+            double x = 0, y = 0;
+            boolean found = false; // Whether a clear spot was found
+            for (int attempt = 0; attempt < MAX_PLACEMENT_ATTEMPTS; attempt++) {
+                double tryX = radius + random.nextDouble(WIDTH - 2 * radius);
+                double tryY = radius + random.nextDouble(HEIGHT - 2 * radius);
+                if (isClear(arena, tryX, tryY)) {
+                    x = tryX;
+                    y = tryY;
+                    found = true;
+                    break;
+                }
+            }
+            if (found && region.contains(arena, x, y)) {
+                Robot robot = factory.create(x, y);
+                robot.setSeed(seed);
+                arena.addObject(robot, EntityHandle.of(slot, 0));
+            }
+        }
+        return slot;
+    }
+
+    /**
+     * Checks whether a position is far enough from every obstacle.
+     *
+     * @param arena the Arena to check
+     * @param x the x-coordinate to check
+     * @param y the y-coordinate to check
+     * @return true if no obstacle is too close
+     */
+    private boolean isClear(Arena arena, double x, double y) {
+        for (Item obj : arena.getObjectsByTag(ItemTag.OBSTACLE)) {
+            if (obj instanceof Obstacle) {
+                double distance = Math.sqrt(Math.pow(x - obj.x, 2) + Math.pow(y - obj.y, 2));
+                if (distance < obj.radius + 40) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Looks up a parameter, falling back to a default value.
+     *
+     * @param parameters the parameter values of this run
+     * @param name the parameter name
+     * @param defaultValue the value used if the parameter is missing
+     * @return the parameter value
+     */
+    private static double get(Map<String, Double> parameters, String name, double defaultValue) {
+        Double value = parameters.get(name);
+        return value != null ? value : defaultValue;
+    }
+}
@@ -1,7 +1,9 @@
 package ok;
 
-import javafx.scene.canvas.GraphicsContext;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import javafx.scene.paint.Color;
+import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -10,8 +12,11 @@ import java.util.stream.Collectors;
  * It tries to stay within a group while avoiding too close proximity to other robots.
  */
 public class SwarmRobot extends SimpleRobot {
-    private static final double SWARM_RADIUS = 100;  // Maximum distance within which robots will swarm
+    public static final double SWARM_RADIUS = 100;  // Default maximum distance within which robots will swarm
     private static final double SEPARATION_DISTANCE = 40;  // Minimum distance to maintain between robots
+    private static final int COHESION_PERIOD = 3;  // Ticks between updates of the swarm heading
+    private static final SensorConfig SWARM = SensorConfig.of(SWARM_RADIUS, COHESION_PERIOD);  // Swarm sensing of every SwarmRobot
+    private SensorConfig swarm = SWARM;  // Distance within which this robot swarms, and ticks between heading updates
 
     /**
      * Constructor for SwarmRobot.
@@ -20,22 +25,102 @@ public class SwarmRobot extends SimpleRobot {
      * @param x The x-coordinate of the robot's initial position.
      * @param y The y-coordinate of the robot's initial position.
      */
-    public SwarmRobot(double x, double y) {
+    @JsonCreator
+    public SwarmRobot(@JsonProperty("x") double x, @JsonProperty("y") double y) {
         super(x, y);  // Call the constructor of the parent SimpleRobot
     }
 
+    /**
+     * Tags the robot as taking part in swarming, in addition to the tags of every robot.
+     *
+     * @return The tag mask.
+     */
+    @Override
+    public int getTagMask() {
+        return super.getTagMask() | ItemTag.SWARM.mask();
+    }
+
+    /**
+     * Gets the distance within which this robot swarms with others.
+     *
+     * @return The swarm radius.
+     */
+    public double getSwarmRadius() {
+        return swarm.range();
+    }
+
+    /**
+     * Sets the distance within which this robot swarms with others.
+     *
+     * @param swarmRadius The new swarm radius.
+     */
+    public void setSwarmRadius(double swarmRadius) {
+        swarm = swarm.withRange(swarmRadius);
+    }
+
+    /**
+     * Gets the number of checkpoint values, including the swarm radius.
+     *
+     * @return The number of state values.
+     */
+    @Override
+    public int getStateSize() {
+        return super.getStateSize() + 1;
+    }
+
+    /**
+     * Copies the robot's state, including the swarm radius, into a checkpoint buffer.
+     *
+     * @param buffer The buffer to write into.
+     * @param offset The index of the first value to write.
+     * @return The index just past the last value written.
+     */
+    @Override
+    public int saveState(double[] buffer, int offset) {
+        offset = super.saveState(buffer, offset);
+        buffer[offset++] = swarm.range();
+        return offset;
+    }
+
+    /**
+     * Restores the robot's state, including the swarm radius, from a checkpoint buffer.
+     *
+     * @param buffer The buffer to read from.
+     * @param offset The index of the first value to read.
+     * @return The index just past the last value read.
+     */
+    @Override
+    public int restoreState(double[] buffer, int offset) {
+        offset = super.restoreState(buffer, offset);
+        swarm = swarm.withRange(buffer[offset++]);
+        return offset;
+    }
+
     /**
      * Moves the robot by calculating swarm behavior: cohesion and separation.
      * Robots will try to move towards the average position of nearby robots
      * while avoiding being too close to them.
+     * The swarm heading is recomputed every few ticks; in between the robot keeps its heading.
      */
     @Override
     public void move() {
+        if (isDue(swarm.period())) {
+            steer();
+        }
+    }
+
+    /**
+     * Turns the robot toward the average position of the nearby robots (cohesion),
+     * pushed away from those that are too close (separation).
+     */
+    private void steer() {
+        double swarmRadius = swarm.range();
         // Find all nearby SwarmRobot objects within the defined swarm radius
-        List<SwarmRobot> nearbyRobots = Arena.getInstance().getObjects().stream()
-                .filter(obj -> obj instanceof SwarmRobot && obj != this)  // Filter for other SwarmRobots
+        List<SwarmRobot> nearbyRobots = arena.getObjectsNear(x, y, swarmRadius, ItemTag.SWARM).stream()
+                .filter(obj -> obj.hasTag(ItemTag.SWARM) && obj != this)  // Filter for other SwarmRobots
                 .map(obj -> (SwarmRobot) obj)
-                .filter(robot -> distance(robot) < SWARM_RADIUS)  // Check if within swarm radius
+                .filter(robot -> distance(robot) < swarmRadius)  // Check if within swarm radius
+                .sorted(Comparator.comparingLong(Item::getHandle))  // Sum in the same order in every process
                 .collect(Collectors.toList());
 
         if (!nearbyRobots.isEmpty()) {
@@ -58,14 +143,6 @@ public class SwarmRobot extends SimpleRobot {
                     (avgX - x) * 0.5 + dx   // Cohesion factor with separation correction
             );
         }
-
-        // Handle wall collisions before moving
-        handleWallCollision(x + currentSpeed * Math.cos(direction),
-                y + currentSpeed * Math.sin(direction));
-
-        // Update the robot's position based on its current direction and speed
-        x += currentSpeed * Math.cos(direction);
-        y += currentSpeed * Math.sin(direction);
     }
 
     /**
@@ -78,15 +155,25 @@ public class SwarmRobot extends SimpleRobot {
         return Math.sqrt(Math.pow(x - other.x, 2) + Math.pow(y - other.y, 2));
     }
 
+    /**
+     * Gets the colour of the robot's body.
+     *
+     * @return The colour.
+     */
+    @Override
+    protected Color bodyColor() {
+        return Color.LIGHTGREEN;
+    }
+
     /**
      * Draws the SwarmRobot on the canvas, including its swarm radius.
      *
-     * @param gc The GraphicsContext to render the robot.
+     * @param gc The DrawingSurface to render the robot.
      */
     @Override
-    protected void drawRobot(GraphicsContext gc) {
+    protected void drawRobot(DrawingSurface gc) {
         // Set the color for the robot's body and draw it
-        gc.setFill(Color.LIGHTGREEN);
+        gc.setFill(bodyColor());
         gc.fillOval(x - radius, y - radius, radius * 2, radius * 2);
 
         // Draw the robot's wheels (inherits from SimpleRobot)
@@ -94,6 +181,7 @@ public class SwarmRobot extends SimpleRobot {
 
         // Draw the swarm radius around the robot
         gc.setStroke(Color.LIGHTGREEN.deriveColor(1, 1, 1, 0.3));  // Semi-transparent color
-        gc.strokeOval(x - SWARM_RADIUS, y - SWARM_RADIUS, SWARM_RADIUS * 2, SWARM_RADIUS * 2);  // Draw the swarm radius
+        double swarmRadius = swarm.range();
+        gc.strokeOval(x - swarmRadius, y - swarmRadius, swarmRadius * 2, swarmRadius * 2);  // Draw the swarm radius
     }
 }
@@ -0,0 +1,241 @@
+package ok;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Runs a scenario headlessly for every combination of a parameter grid.
+ * Each combination gets its own Arena, and runs are spread over a work-stealing pool,
+ * so the wall-clock time of a sweep falls with the number of cores.
+ *
+ * <p>
+ * One CSV row is written per run as soon as it finishes, holding the run index, the parameter
+ * values and the measured metrics. Rows therefore appear in completion order, not grid order.
+ * </p>
+ */
+public class SweepEngine {
+    private final ScenarioTemplate template;  // Builds the Arena of each run
+    private final ParameterGrid grid;         // Parameter combinations to run
+    private final int ticksPerRun;            // Number of updates simulated per run
+    private final int parallelism;            // Number of runs executed at the same time
+    private Function<Arena, Map<String, Double>> metrics = SweepEngine::defaultMetrics;  // Measured after each run
+    private ProgressListener progressListener = (completed, total) -> {};  // Notified after each run
+    private volatile boolean cancelled;       // Set when the sweep in progress should stop early
+    private final AtomicInteger completed = new AtomicInteger();  // Number of finished runs
+    private boolean headerWritten;            // Guarded by the CSV writer
+
+    /**
+     * Receives progress notifications from a running sweep.
+     * Notifications arrive on the pool's worker threads.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * Called after each finished run.
+         *
+         * @param completed the number of runs finished so far
+         * @param total the total number of runs in the sweep
+         */
+        void onProgress(int completed, int total);
+    }
+
+    /**
+     * Constructs a sweep engine.
+     *
+     * @param template the scenario built for every run
+     * @param grid the parameter combinations to run
+     * @param ticksPerRun the number of updates simulated per run
+     * @param parallelism the number of runs executed at the same time
+     */
+    public SweepEngine(ScenarioTemplate template, ParameterGrid grid, int ticksPerRun, int parallelism) {
+        if (ticksPerRun < 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("Ticks must not be negative and parallelism must be positive");
+        }
+        this.template = template;
+        this.grid = grid;
+        this.ticksPerRun = ticksPerRun;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the function that measures an Arena once its run has finished.
+     * It must return the same metric names, in the same order, for every run.
+     *
+     * @param metrics the measuring function
+     */
+    public void setMetrics(Function<Arena, Map<String, Double>> metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sets the listener notified after each finished run.
+     *
+     * @param progressListener the progress listener
+     */
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Runs every combination of the grid and streams the results into a CSV file.
+     * Blocks until all runs have finished or the sweep has been cancelled. A cancellation only
+     * stops the sweep in progress, so the engine can run the grid again afterwards.
+     *
+     * @param csv the file the results are written to
+     * @return the number of runs that finished
+     * @throws IOException if the CSV file cannot be written
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public int run(Path csv) throws IOException, InterruptedException {
+        int total = grid.size();
+        cancelled = false;
+        completed.set(0);
+        headerWritten = false;
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try (BufferedWriter writer = Files.newBufferedWriter(csv)) {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(total);
+            for (int i = 0; i < total; i++) {
+                int index = i;
+                tasks.add(pool.submit(() -> runOne(index, total, writer)));
+            }
+            for (ForkJoinTask<?> task : tasks) {
+                try {
+                    task.get();
+                } catch (ExecutionException ex) {
+                    cancel(); // Stop the remaining runs, the sweep has failed
+                    if (ex.getCause() instanceof UncheckedIOException io) {
+                        throw io.getCause();
+                    }
+                    throw new IllegalStateException("Sweep run failed", ex.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return completed.get();
+    }
+
+    /**
+     * Requests the sweep to stop. Runs in progress stop at their next tick and
+     * runs not yet started are skipped.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Checks whether the sweep has been cancelled.
+     *
+     * @return true if the sweep has been cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Simulates one combination of the grid and writes its CSV row.
+     *
+     * @param index the combination index
+     * @param total the total number of runs, for progress reporting
+     * @param writer the CSV writer shared by all runs
+     */
+    private void runOne(int index, int total, BufferedWriter writer) {
+        if (cancelled) {
+            return;
+        }
+        Map<String, Double> parameters = grid.combination(index);
+        long start = System.nanoTime();
+        Arena arena = template.create(parameters);
+        for (int t = 0; t < ticksPerRun; t++) {
+            if (cancelled) {
+                return; // Discard the partial run
+            }
+            arena.update();
+        }
+
+        Map<String, Double> result = new LinkedHashMap<>(metrics.apply(arena));
+        result.put("millis", (System.nanoTime() - start) / 1e6);
+        writeRow(writer, index, parameters, result);
+        progressListener.onProgress(completed.incrementAndGet(), total);
+    }
+
+    /**
+     * Appends one run to the CSV file, writing the header before the first row.
+     *
+     * @param writer the CSV writer
+     * @param index the combination index
+     * @param parameters the parameter values of the run
+     * @param result the measured metrics of the run
+     */
+    private void writeRow(BufferedWriter writer, int index,
+                          Map<String, Double> parameters, Map<String, Double> result) {
+        try {
+            synchronized (writer) {
+                if (!headerWritten) {
+                    StringBuilder header = new StringBuilder("run");
+                    parameters.keySet().forEach(name -> header.append(',').append(name));
+                    result.keySet().forEach(name -> header.append(',').append(name));
+                    writer.write(header.toString());
+                    writer.newLine();
+                    headerWritten = true;
+                }
+                StringBuilder row = new StringBuilder().append(index);
+                parameters.values().forEach(value -> row.append(',').append(value));
+                result.values().forEach(value -> row.append(',').append(value));
+                writer.write(row.toString());
+                writer.newLine();
+                writer.flush(); // Make the row visible while the sweep is still running
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Measures the robot count, mean speed and mean distance from the robots' centroid.
+     *
+     * @param arena the Arena at the end of its run
+     * @return the metrics, keyed by name
+     */
+    public static Map<String, Double> defaultMetrics(Arena arena) {
+        int robots = 0;
+        double speed = 0, sumX = 0, sumY = 0;
+        for (Item item : arena.getObjectsByTag(ItemTag.ROBOT)) {
+            if (item instanceof Robot robot) {
+                robots++;
+                speed += robot.getCurrentSpeed();
+                sumX += robot.getX();
+                sumY += robot.getY();
+            }
+        }
+
+        double spread = 0;
+        if (robots > 0) {
+            double centerX = sumX / robots;
+            double centerY = sumY / robots;
+            for (Item item : arena.getObjectsByTag(ItemTag.ROBOT)) {
+                spread += Math.sqrt(Math.pow(item.x - centerX, 2) + Math.pow(item.y - centerY, 2));
+            }
+        }
+
+        Map<String, Double> metrics = new LinkedHashMap<>();
+        metrics.put("ticks", (double) arena.getTick());
+        metrics.put("robots", (double) robots);
+        metrics.put("meanSpeed", robots > 0 ? speed / robots : 0);
+        metrics.put("meanSpread", robots > 0 ? spread / robots : 0);
+        return metrics;
+    }
+}
@@ -0,0 +1,561 @@
+package ok;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Streams the state of a running simulation to external viewers over a local socket, so that
+ * dashboards and second monitors can watch it without the simulating JVM rendering anything.
+ *
+ * <p>
+ * The simulation thread calls {@link #publish(Arena)} after each tick, which only copies the
+ * quantised state of every item into a snapshot. A single background thread serves every client
+ * with non-blocking NIO channels. Each client is sent the difference between the newest snapshot
+ * and what it received last, limited to its interest region. A client that has not finished
+ * reading its previous frame is skipped; it receives the newest snapshot once it catches up, and
+ * because frames are differences against what that client already has, skipping loses nothing.
+ * </p>
+ *
+ * <p>
+ * Every value is big-endian. Server frames are an {@code int} byte length, then the {@code long}
+ * tick, an {@code int} record count and the records. Positions are in units of
+ * 1/{@value #POSITION_SCALE} pixel and headings in 1/65536 of a turn. Records start with a byte:
+ * </p>
+ * <ul>
+ *   <li>{@code ENTER}: varint slot, varint generation, kind (length byte and ASCII class name),
+ *       varint tag mask, varint radius, zigzag varint x and y, unsigned short heading; it replaces
+ *       whatever the client had in that slot</li>
+ *   <li>{@code MOVE}: varint slot, flags byte (1 position, 2 heading), zigzag varint change of x and y
+ *       if the position changed, unsigned short heading if the heading changed</li>
+ *   <li>{@code LEAVE}: varint slot</li>
+ * </ul>
+ * <p>
+ * Clients may send {@code INTEREST} (a byte, then four {@code float}s: min x, min y, max x, max y)
+ * to only receive the items overlapping a rectangle, or {@code EVERYTHING} (a byte) to undo it.
+ * </p>
+ */
+public class TelemetryServer implements AutoCloseable {
+    public static final int POSITION_SCALE = 8;   // Quantisation steps per pixel
+    public static final byte ENTER = 0;           // Record of an item the client does not have yet
+    public static final byte MOVE = 1;            // Record of an item whose position or heading changed
+    public static final byte LEAVE = 2;           // Record of an item removed or out of the interest region
+    public static final byte INTEREST = 1;        // Client message setting the interest region
+    public static final byte EVERYTHING = 2;      // Client message clearing the interest region
+    private static final int MAX_RECORD = 100;    // Upper bound of an encoded record, in bytes
+    private static final int MAX_KIND = 63;       // Longest kind name sent, in bytes
+    private static final int HEADER = 16;         // Length, tick and record count of a frame
+    private static final int SEND_BUFFER = 1 << 16; // Socket send buffer, so slow viewers drop frames instead of queueing them
+
+    private final ServerSocketChannel server;     // Accepts viewers
+    private final Selector selector;              // Multiplexes every channel on the server thread
+    private final SocketAddress address;          // Address the server is bound to
+    private final Thread thread;                  // Serves the clients
+    private final List<Client> clients = new ArrayList<>(); // Connected viewers, owned by the server thread
+    private final AtomicReference<Snapshot> pending = new AtomicReference<>(); // Newest unserved snapshot
+    private final AtomicReference<Snapshot> spare = new AtomicReference<>();   // Snapshot to reuse
+    private final AtomicLong droppedFrames = new AtomicLong(); // Snapshots skipped for slow clients
+    private volatile int clientCount;             // Number of connected viewers
+    private volatile boolean running = true;      // Cleared by close()
+    private Snapshot current;                     // Newest snapshot taken by the server thread
+
+    /**
+     * The quantised state of every item at the end of one tick.
+     */
+    private static class Snapshot {
+        long tick;           // Tick the snapshot was taken at
+        int count;           // Number of items
+        long[] handles = new long[64];
+        int[] x = new int[64], y = new int[64], heading = new int[64], radius = new int[64], tags = new int[64];
+        String[] kinds = new String[64];
+
+        /**
+         * Copies the state of every item of an Arena.
+         *
+         * @param arena the Arena
+         */
+        void fill(Arena arena) {
+            List<Item> objects = arena.getObjects();
+            if (handles.length < objects.size()) {
+                int capacity = Math.max(objects.size(), handles.length * 2);
+                handles = Arrays.copyOf(handles, capacity);
+                x = Arrays.copyOf(x, capacity);
+                y = Arrays.copyOf(y, capacity);
+                heading = Arrays.copyOf(heading, capacity);
+                radius = Arrays.copyOf(radius, capacity);
+                tags = Arrays.copyOf(tags, capacity);
+                kinds = Arrays.copyOf(kinds, capacity);
+            }
+            tick = arena.getTick();
+            count = objects.size();
+            for (int i = 0; i < count; i++) {
+                Item obj = objects.get(i);
+                handles[i] = obj.getHandle();
+                x[i] = (int) Math.round(obj.x * POSITION_SCALE);
+                y[i] = (int) Math.round(obj.y * POSITION_SCALE);
+                radius[i] = (int) Math.round(obj.radius * POSITION_SCALE);
+                heading[i] = obj instanceof Robot robot
+                        ? (int) Math.round(robot.direction / (2 * Math.PI) * 65536) & 0xFFFF : 0;
+                tags[i] = obj.tags;
+                kinds[i] = obj.getClass().getSimpleName();
+            }
+        }
+    }
+
+    /**
+     * A connected viewer and the state it has been sent so far, indexed by item slot.
+     */
+    private static class Client {
+        final SocketChannel channel;      // Connection to the viewer
+        final ByteBuffer in = ByteBuffer.allocate(64); // Partial client message
+        ByteBuffer out = ByteBuffer.allocate(0);       // Frame being written
+        long sentTick = -1;               // Tick of the last frame encoded for this client
+        double minX = Double.NEGATIVE_INFINITY, minY = Double.NEGATIVE_INFINITY; // Interest region
+        double maxX = Double.POSITIVE_INFINITY, maxY = Double.POSITIVE_INFINITY;
+        long[] handles = new long[64];    // Handle sent for each slot
+        int[] x = new int[64], y = new int[64], heading = new int[64]; // State sent for each slot
+        int[] seen = new int[64];         // Frame in which each slot was last in the snapshot and region
+        int[] visible = new int[64];      // Slots the client currently has
+        int visibleCount;                 // Number of slots the client currently has
+        int frame;                        // Number of frames encoded for this client
+
+        Client(SocketChannel channel) {
+            this.channel = channel;
+            Arrays.fill(handles, EntityHandle.NONE);
+        }
+
+        /**
+         * Grows the per-slot arrays to hold a slot.
+         *
+         * @param slot the slot
+         */
+        void ensureSlot(int slot) {
+            if (slot >= handles.length) {
+                int capacity = Math.max(slot + 1, handles.length * 2);
+                int old = handles.length;
+                handles = Arrays.copyOf(handles, capacity);
+                Arrays.fill(handles, old, capacity, EntityHandle.NONE);
+                x = Arrays.copyOf(x, capacity);
+                y = Arrays.copyOf(y, capacity);
+                heading = Arrays.copyOf(heading, capacity);
+                seen = Arrays.copyOf(seen, capacity);
+            }
+        }
+    }
+
+    /**
+     * Starts a server on a TCP port of the loopback interface.
+     *
+     * @param port the port, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public TelemetryServer(int port) throws IOException {
+        this(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    /**
+     * Starts a server on a socket address: a TCP address, or a {@link UnixDomainSocketAddress}.
+     *
+     * @param address the address to bind
+     * @throws IOException if the address cannot be bound
+     */
+    public TelemetryServer(SocketAddress address) throws IOException {
+        server = ServerSocketChannel.open(address instanceof UnixDomainSocketAddress
+                ? StandardProtocolFamily.UNIX : StandardProtocolFamily.INET);
+        server.bind(address);
+        server.configureBlocking(false);
+        this.address = server.getLocalAddress();
+        selector = Selector.open();
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        thread = new Thread(this::serve, "telemetry");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Gets the address the server is bound to, with the actual port if port 0 was requested.
+     *
+     * @return the address
+     */
+    public SocketAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * Gets the number of connected viewers.
+     *
+     * @return the client count
+     */
+    public int getClientCount() {
+        return clientCount;
+    }
+
+    /**
+     * Gets the number of frames skipped because a client was still reading an earlier one.
+     *
+     * @return the dropped frame count, over all clients
+     */
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    /**
+     * Publishes the state of an Arena at the end of a tick. Called on the simulation thread;
+     * it only copies the quantised state, and does nothing while no viewer is connected.
+     *
+     * @param arena the Arena
+     */
+    public void publish(Arena arena) {
+        if (clientCount == 0) {
+            return;
+        }
+        Snapshot snapshot = spare.getAndSet(null);
+        if (snapshot == null) {
+            snapshot = new Snapshot();
+        }
+        snapshot.fill(arena);
+        Snapshot unserved = pending.getAndSet(snapshot);
+        if (unserved != null) {
+            spare.set(unserved); // The server thread never saw it
+        }
+        selector.wakeup();
+    }
+
+    /**
+     * Stops the server and disconnects every viewer. If the calling thread is interrupted while
+     * waiting for the server thread to finish, its interrupt status is set again.
+     *
+     * @throws IOException if interrupted before the server thread has finished
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while stopping the telemetry server", ex);
+        }
+    }
+
+    /**
+     * Serves the clients until the server is closed.
+     */
+    private void serve() {
+        try {
+            while (running) {
+                selector.select();
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Client client = (Client) key.attachment();
+                        try {
+                            if (key.isReadable()) {
+                                read(client);
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                flush(client, key);
+                            }
+                        } catch (IOException ex) {
+                            disconnect(client, key); // The viewer went away
+                        }
+                    }
+                }
+                selector.selectedKeys().clear();
+
+                Snapshot snapshot = pending.getAndSet(null);
+                if (snapshot != null) {
+                    if (current != null) {
+                        spare.compareAndSet(null, current);
+                    }
+                    current = snapshot;
+                }
+                if (current != null) {
+                    for (Client client : new ArrayList<>(clients)) {
+                        SelectionKey key = client.channel.keyFor(selector);
+                        if (client.sentTick == current.tick) {
+                            continue;
+                        }
+                        if (client.out.hasRemaining()) {
+                            if (snapshot != null) {
+                                droppedFrames.incrementAndGet(); // Still writing an older frame
+                            }
+                            continue;
+                        }
+                        try {
+                            encode(client, current);
+                            flush(client, key);
+                        } catch (IOException ex) {
+                            disconnect(client, key);
+                        }
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            // The selector failed; stop serving like a close would
+        } finally {
+            for (Client client : clients) {
+                closeQuietly(client.channel);
+            }
+            clients.clear();
+            clientCount = 0;
+            closeQuietly(server);
+            try {
+                selector.close();
+            } catch (IOException ex) {
+                // Nothing left to release
+            }
+            if (address instanceof UnixDomainSocketAddress unix) {
+                try {
+                    Files.deleteIfExists(unix.getPath());
+                } catch (IOException ex) {
+                    // A stale socket file is harmless
+                }
+            }
+        }
+    }
+
+    /**
+     * Accepts a pending viewer.
+     *
+     * @throws IOException if the selector cannot register the viewer
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.SO_SNDBUF, SEND_BUFFER);
+        if (!(address instanceof UnixDomainSocketAddress)) {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        }
+        Client client = new Client(channel);
+        channel.register(selector, SelectionKey.OP_READ, client);
+        clients.add(client);
+        clientCount = clients.size();
+    }
+
+    /**
+     * Reads and applies the messages a viewer has sent.
+     *
+     * @param client the viewer
+     * @throws IOException if the viewer has disconnected
+     */
+    private void read(Client client) throws IOException {
+        if (client.channel.read(client.in) < 0) {
+            throw new IOException("Viewer disconnected");
+        }
+        client.in.flip();
+        while (client.in.hasRemaining()) {
+            int type = client.in.get(client.in.position());
+            if (type == INTEREST) {
+                if (client.in.remaining() < 17) {
+                    break; // Wait for the rest of the message
+                }
+                client.in.get();
+                client.minX = client.in.getFloat();
+                client.minY = client.in.getFloat();
+                client.maxX = client.in.getFloat();
+                client.maxY = client.in.getFloat();
+            } else if (type == EVERYTHING) {
+                client.in.get();
+                client.minX = client.minY = Double.NEGATIVE_INFINITY;
+                client.maxX = client.maxY = Double.POSITIVE_INFINITY;
+            } else {
+                throw new IOException("Unknown viewer message " + type);
+            }
+            client.sentTick = -1; // Send the change of region even if the tick has not changed
+        }
+        client.in.compact();
+    }
+
+    /**
+     * Writes as much of a viewer's pending frame as its socket accepts, and waits for the socket
+     * to become writable if some remains.
+     *
+     * @param client the viewer
+     * @param key the viewer's selection key
+     * @throws IOException if the viewer has disconnected
+     */
+    private void flush(Client client, SelectionKey key) throws IOException {
+        client.channel.write(client.out);
+        key.interestOps(client.out.hasRemaining()
+                ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+
+    /**
+     * Encodes the difference between a snapshot and what a viewer has, within its interest region.
+     *
+     * @param client the viewer
+     * @param snapshot the snapshot to send
+     */
+    private void encode(Client client, Snapshot snapshot) {
+        int bound = HEADER + (snapshot.count + client.visibleCount) * MAX_RECORD;
+        if (client.out.capacity() < bound) {
+            client.out = ByteBuffer.allocate(Math.max(bound, client.out.capacity() * 2));
+        }
+        ByteBuffer out = client.out;
+        out.clear();
+        out.position(HEADER);
+        int records = 0;
+        int frame = ++client.frame;
+        double scale = POSITION_SCALE;
+
+        for (int i = 0; i < snapshot.count; i++) {
+            double r = snapshot.radius[i] / scale;
+            double cx = snapshot.x[i] / scale;
+            double cy = snapshot.y[i] / scale;
+            if (cx + r < client.minX || cx - r > client.maxX || cy + r < client.minY || cy - r > client.maxY) {
+                continue; // Outside the interest region
+            }
+            long handle = snapshot.handles[i];
+            int slot = EntityHandle.slot(handle);
+            client.ensureSlot(slot);
+            if (client.handles[slot] != handle) {
+                if (client.handles[slot] == EntityHandle.NONE) {
+                    addVisible(client, slot);
+                }
+                out.put(ENTER);
+                putVarint(out, slot);
+                putVarint(out, EntityHandle.generation(handle));
+                byte[] kind = snapshot.kinds[i].getBytes(StandardCharsets.US_ASCII);
+                int length = Math.min(kind.length, MAX_KIND);
+                out.put((byte) length);
+                out.put(kind, 0, length);
+                putVarint(out, snapshot.tags[i]);
+                putVarint(out, snapshot.radius[i]);
+                putVarint(out, zigzag(snapshot.x[i]));
+                putVarint(out, zigzag(snapshot.y[i]));
+                out.putShort((short) snapshot.heading[i]);
+                records++;
+            } else {
+                int flags = (snapshot.x[i] != client.x[slot] || snapshot.y[i] != client.y[slot] ? 1 : 0)
+                        | (snapshot.heading[i] != client.heading[slot] ? 2 : 0);
+                if (flags != 0) {
+                    out.put(MOVE);
+                    putVarint(out, slot);
+                    out.put((byte) flags);
+                    if ((flags & 1) != 0) {
+                        putVarint(out, zigzag(snapshot.x[i] - client.x[slot]));
+                        putVarint(out, zigzag(snapshot.y[i] - client.y[slot]));
+                    }
+                    if ((flags & 2) != 0) {
+                        out.putShort((short) snapshot.heading[i]);
+                    }
+                    records++;
+                }
+            }
+            client.handles[slot] = handle;
+            client.x[slot] = snapshot.x[i];
+            client.y[slot] = snapshot.y[i];
+            client.heading[slot] = snapshot.heading[i];
+            client.seen[slot] = frame;
+        }
+
+        // Items the client has that were removed or left its region
+        for (int v = client.visibleCount - 1; v >= 0; v--) {
+            int slot = client.visible[v];
+            if (client.seen[slot] != frame) {
+                out.put(LEAVE);
+                putVarint(out, slot);
+                records++;
+                client.handles[slot] = EntityHandle.NONE;
+                client.visible[v] = client.visible[--client.visibleCount];
+            }
+        }
+
+        out.putInt(0, out.position() - 4);
+        out.putLong(4, snapshot.tick);
+        out.putInt(12, records);
+        out.flip();
+        client.sentTick = snapshot.tick;
+    }
+
+    /**
+     * Records that a viewer now has an item in a slot.
+     *
+     * @param client the viewer
+     * @param slot the slot
+     */
+    private static void addVisible(Client client, int slot) {
+        if (client.visibleCount == client.visible.length) {
+            client.visible = Arrays.copyOf(client.visible, client.visibleCount * 2);
+        }
+        client.visible[client.visibleCount++] = slot;
+    }
+
+    /**
+     * Disconnects a viewer.
+     *
+     * @param client the viewer
+     * @param key the viewer's selection key
+     */
+    private void disconnect(Client client, SelectionKey key) {
+        if (key != null) {
+            key.cancel();
+        }
+        closeQuietly(client.channel);
+        clients.remove(client);
+        clientCount = clients.size();
+    }
+
+    /**
+     * Closes a channel, ignoring failures.
+     *
+     * @param channel the channel
+     */
+    private static void closeQuietly(Channel channel) {
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            // Already unusable
+        }
+    }
+
+    /**
+     * Writes an unsigned variable-length integer: seven bits per byte, lowest first.
+     *
+     * @param out the buffer to write to
+     * @param value the value, treated as unsigned
+     */
+    private static void putVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    /**
+     * Maps a signed integer to an unsigned one, so small negative values also encode in few bytes.
+     *
+     * @param value the signed value
+     * @return the zigzag-encoded value
+     */
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+}
@@ -3,13 +3,10 @@ package ok;
 import java.util.List;
 
 /**
- * The WhiskerSensor class implements the Sensor interface and simulates a whisker sensor for a robot.
+ * The WhiskerSensor class is a cached sensor and simulates a whisker sensor for a robot.
  * The whisker sensor detects obstacles within a certain distance (defined by the length of the whisker).
  */
-public class WhiskerSensor implements Sensor {
-    private Robot robot;  // The robot that this whisker sensor is attached to
-    private double length;  // The length of the whisker sensor
-
+public class WhiskerSensor extends CachedSensor {
     /**
      * Constructor for WhiskerSensor.
      * Initializes the sensor with the robot it belongs to and the whisker's length.
@@ -18,8 +15,17 @@ public class WhiskerSensor implements Sensor {
      * @param length The length of the whisker sensor.
      */
     public WhiskerSensor(Robot robot, double length) {
-        this.robot = robot;  // Set the robot
-        this.length = length;  // Set the whisker's length
+        this(robot, SensorConfig.of(length, Robot.SENSOR_PERIOD));
+    }
+
+    /**
+     * Constructor for WhiskerSensor sharing the whisker's length and sampling period with other robots.
+     *
+     * @param robot The robot that the sensor is attached to.
+     * @param config The length of the whisker and the sampling period of the sensor.
+     */
+    public WhiskerSensor(Robot robot, SensorConfig config) {
+        super(robot, config);
     }
 
     /**
@@ -31,6 +37,8 @@ public class WhiskerSensor implements Sensor {
      */
     @Override
     public boolean detect(List<Item> objects) {
+        double length = getRange();  // The length of the whisker
+        double nearestGap = Double.POSITIVE_INFINITY;  // Signed distance of the nearest object beyond the whisker
         for (Item obj : objects) {
             // Ignore the robot itself while checking for obstacles
             if (obj != robot) {
@@ -40,13 +48,11 @@ public class WhiskerSensor implements Sensor {
                                 Math.pow(robot.y - obj.y, 2)
                 );
 
-                // If the distance is less than the whisker's length plus the object's radius, it's detected
-                if (distance < length + obj.radius) {
-                    return true;
-                }
+                // The object is detected if the distance is less than the whisker's length plus its radius
+                nearestGap = Math.min(nearestGap, distance - (length + obj.radius));
             }
         }
-        // If no object is detected within range, return false
-        return false;
+        setSafeMargin(Math.abs(nearestGap));
+        return nearestGap < 0;
     }
 }
@@ -6,4 +6,5 @@ module ok {
     requires com.fasterxml.jackson.core;
     requires com.fasterxml.jackson.annotation;
     exports ok;
+    opens ok to com.fasterxml.jackson.databind; // Lets saved configurations set protected fields when loaded
 }
\ No newline at end of file